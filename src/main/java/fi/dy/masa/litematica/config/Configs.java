@@ -6,6 +6,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import fi.dy.masa.litematica.Reference;
 import fi.dy.masa.litematica.data.DataManager;
+import fi.dy.masa.litematica.printer.PrinterFacingRules;
 import fi.dy.masa.litematica.selection.CornerSelectionMode;
 import fi.dy.masa.litematica.util.BlockInfoAlignment;
 import fi.dy.masa.litematica.util.InventoryUtils;
@@ -20,6 +21,7 @@ import fi.dy.masa.malilib.config.options.ConfigDouble;
 import fi.dy.masa.malilib.config.options.ConfigInteger;
 import fi.dy.masa.malilib.config.options.ConfigOptionList;
 import fi.dy.masa.malilib.config.options.ConfigString;
+import fi.dy.masa.malilib.config.options.ConfigStringList;
 import fi.dy.masa.malilib.util.FileUtils;
 import fi.dy.masa.malilib.util.JsonUtils;
 
@@ -32,6 +34,7 @@ public class Configs implements IConfigHandler
         public static final ConfigBoolean       AREAS_PER_WORLD         = new ConfigBoolean(    "areaSelectionsPerWorld", true, "Use per-world or server root directories for the area selections\n§6NOTE: Don't switch this OFF while you are live streaming,\n§6as then the Area Selection browser will show the server IP\n§6in the navigation widget and also in the current selection name/path\n§6until you change the current directory and selection again");
         public static final ConfigBoolean       BETTER_RENDER_ORDER     = new ConfigBoolean(    "betterRenderOrder", true, "If enabled, then the schematic rendering is done\nby injecting the different render call into the vanilla\nrendering code. This should result in better translucent block\nrendering/ordering and schematic blocks not getting rendered\nthrough the client world blocks/terrain.\nIf the rendering doesn't work (for example with Optifine),\ntry disabling this option.");
         public static final ConfigBoolean       CHANGE_SELECTED_CORNER  = new ConfigBoolean(    "changeSelectedCornerOnMove", true, "If true, then the selected corner of an area selection\nis always set to the last moved corner,\nwhen using the set corner hotkeys");
+        public static final ConfigInteger       CHUNK_TASK_TICK_BUDGET  = new ConfigInteger(    "chunkTaskTickBudget", 20, 1, 50, "The time budget in milliseconds per game tick for the area tasks,\nlike saving a schematic, filling or deleting an area\nor creating a material list. When the budget runs out,\nthe task continues from where it left off on the next tick.");
         public static final ConfigBoolean       EASY_PLACE_MODE         = new ConfigBoolean(    "easyPlaceMode", false, "When enabled, then simply trying to use an item/place a block\non schematic blocks will place\nthat block in that position");
         public static final ConfigBoolean       EASY_PLACE_HOLD_ENABLED = new ConfigBoolean(    "easyPlaceHoldEnabled", false, "When enabled, then simply holding down the use key\nand looking at different schematic blocks will place them");
         public static final ConfigInteger       EASY_PLACE_MODE_RANGE_X = new ConfigInteger(    "easyPlaceModeRangeX", 3, 0, 12, "X Range for EasyPlace");
@@ -39,6 +42,13 @@ public class Configs implements IConfigHandler
         public static final ConfigInteger       EASY_PLACE_MODE_RANGE_Z = new ConfigInteger(    "easyPlaceModeRangeZ", 3, 0, 12, "Z Range for EasyPlace");
         public static final ConfigInteger       EASY_PLACE_MODE_MAX_BLOCKS= new ConfigInteger(    "easyPlaceModeMaxBlocks", 3, 1, 1000000, "Max block interactions per cycle");
         public static final ConfigBoolean       EASY_PLACE_MODE_BREAK_BLOCKS= new ConfigBoolean(    "easyPlaceModeBreakBlocks", false, "Automatically breaks blocks. Currently only works in Creative.");
+        public static final ConfigStringList    EASY_PLACE_FACING_RULES = new ConfigStringList( "easyPlaceFacingRules", ImmutableList.of(), "Extra or overridden per-block facing rules for the printer,\nin the format 'block_id;type;reversed', where type is one of\nall, horizontal, wall_mountable or none.\nExample: minecraft:observer;all;false");
+        public static final ConfigBoolean       EASY_PLACE_HOTBAR_STAGING = new ConfigBoolean( "easyPlaceHotbarStaging", true, "When enabled, the printer keeps the most needed upcoming\nmaterials in the pickBlockableSlots hotbar slots, replacing\nthe least needed and least recently used items first,\nand moves them there in advance on idle ticks");
+        public static final ConfigInteger       EASY_PLACE_PRINTER_TICK_BUDGET = new ConfigInteger( "easyPlacePrinterTickBudget", 5, 1, 50, "The time budget in milliseconds per game tick for the\ncontinuous printer task, started with the easyPlacePrinterToggle hotkey.\nThe printer continues from where it left off on the next tick.");
+        public static final ConfigBoolean       EASY_PLACE_THROTTLE     = new ConfigBoolean(    "easyPlaceThrottle", true, "When enabled, the printer's interactions are paced\nby a rate limit, which backs off when the server\nreverts placements, and recovers gradually afterwards");
+        public static final ConfigInteger       EASY_PLACE_THROTTLE_PER_TICK = new ConfigInteger( "easyPlaceThrottlePerTick", 4, 1, 100, "The maximum number of printer interactions per game tick,\nwhen easyPlaceThrottle is enabled");
+        public static final ConfigInteger       EASY_PLACE_THROTTLE_PER_SECOND = new ConfigInteger( "easyPlaceThrottlePerSecond", 40, 1, 1000, "The maximum number of printer interactions per second,\nwhen easyPlaceThrottle is enabled.\nThe actual rate backs off below this when the server reverts placements.");
+        public static final ConfigInteger       EASY_PLACE_THROTTLE_VERIFY_TICKS = new ConfigInteger( "easyPlaceThrottleVerifyTicks", 10, 1, 100, "The number of game ticks after which a placed block is\nchecked to see if the server accepted the placement");
         public static final ConfigBoolean       EXECUTE_REQUIRE_TOOL    = new ConfigBoolean(    "executeRequireHoldingTool", true, "Require holding an enabled tool item\nfor the executeOperation hotkey to work");
         public static final ConfigBoolean       FIX_RAIL_ROTATION       = new ConfigBoolean(    "fixRailRotation", true, "If true, then a fix is applied for the vanilla bug in rails,\nwhere the 180 degree rotations of straight north-south and\neast-west rails rotate 90 degrees counterclockwise instead >_>");
         public static final ConfigBoolean       LOAD_ENTIRE_SCHEMATICS  = new ConfigBoolean(    "loadEntireSchematics", false, "If true, then the entire schematic is always loaded at once.\nIf false, then only the part that is within the client's view distance is loaded.");
@@ -50,10 +60,15 @@ public class Configs implements IConfigHandler
         public static final ConfigString        PICK_BLOCKABLE_SLOTS    = new ConfigString(     "pickBlockableSlots", "1,2,3,4,5", "The hotbar slots that are allowed to be\nused for the schematic pick block");
         public static final ConfigBoolean       PLACEMENT_RESTRICTION   = new ConfigBoolean(    "placementRestriction", false, "When enabled, the use key can only be used\nwhen holding the correct item for the targeted position,\nand the targeted position must have a missing block in the schematic", "Placement Restriction");
         public static final ConfigBoolean       RENDER_MATERIALS_IN_GUI = new ConfigBoolean(    "renderMaterialListInGuis", true, "Whether or not the material list should\nbe rendered inside GUIs");
+        public static final ConfigInteger       RENDER_BUFFER_POOL_LIMIT = new ConfigInteger(   "renderBufferPoolLimit", 128, 8, 4096, "The maximum amount of memory in MB kept in the pool of\ncurrently unused schematic rendering buffers.\nThe unused buffers are also freed after a while.");
+        public static final ConfigInteger       RENDER_THREAD_COUNT     = new ConfigInteger(    "renderThreadCount", 0, 0, 32, "The number of schematic chunk rendering worker threads.\n0 = automatic, based on the number of CPU cores and the available memory.\nThis can be changed while the game is running.");
+        public static final ConfigInteger       RENDER_THREAD_YIELD_QUEUE = new ConfigInteger(  "renderThreadYieldQueue", 32, 0, 10000, "When the vanilla chunk renderer has more than this many chunks\nwaiting to be re-built, then all but one of the schematic\nrendering threads pause, to not slow down the vanilla\nchunk building. The chunks closest to the camera are still\nbuilt in any case. 0 = never pause.");
         public static final ConfigBoolean       RENDER_THREAD_NO_TIMEOUT = new ConfigBoolean(   "renderThreadNoTimeout", true, "Removes the timeout from the rendering worker threads.\nIf you get very stuttery rendering when moving around\nor dealing with large schematics, try disabling this. It will however make\nthe schematic rendering a lot slower in some cases.");
+        public static final ConfigInteger       SCHEMATIC_LOAD_THREADS  = new ConfigInteger(    "schematicLoadThreads", 2, 0, 16, "The number of worker threads used for placing the schematic\nblocks into the schematic world, when placements are\nadded, moved or rotated, or chunks come into view.\n0 = place the blocks on the client thread.");
         public static final ConfigOptionList    SELECTION_CORNERS_MODE  = new ConfigOptionList( "selectionCornersMode", CornerSelectionMode.CORNERS, "The Area Selection corners mode to use (Corners, or Expand)");
         public static final ConfigString        TOOL_ITEM               = new ConfigString(     "toolItem", "minecraft:stick", "The item to use as the \"tool\" for selections etc.");
         public static final ConfigBoolean       TOOL_ITEM_ENABLED       = new ConfigBoolean(    "toolItemEnabled", true, "If true, then the \"tool\" item can be used to control selections etc.", "Tool Item Enabled");
+        public static final ConfigInteger       VERIFIER_THREADS        = new ConfigInteger(    "verifierThreads", 2, 0, 16, "The number of worker threads used by the Schematic Verifier\nfor comparing the chunks.\n0 = compare the chunks on the client thread.");
 
         public static final ImmutableList<IConfigBase> OPTIONS = ImmutableList.of(
                 AREAS_PER_WORLD,
@@ -66,6 +81,13 @@ public class Configs implements IConfigHandler
                 EASY_PLACE_MODE_RANGE_Z,
                 EASY_PLACE_MODE_MAX_BLOCKS,
                 EASY_PLACE_MODE_BREAK_BLOCKS,
+                EASY_PLACE_FACING_RULES,
+                EASY_PLACE_HOTBAR_STAGING,
+                EASY_PLACE_PRINTER_TICK_BUDGET,
+                EASY_PLACE_THROTTLE,
+                EASY_PLACE_THROTTLE_PER_TICK,
+                EASY_PLACE_THROTTLE_PER_SECOND,
+                EASY_PLACE_THROTTLE_VERIFY_TICKS,
                 EXECUTE_REQUIRE_TOOL,
                 FIX_RAIL_ROTATION,
                 LOAD_ENTIRE_SCHEMATICS,
@@ -78,11 +100,17 @@ public class Configs implements IConfigHandler
                 PASTE_REPLACE_BEHAVIOR,
                 SELECTION_CORNERS_MODE,
 
+                CHUNK_TASK_TICK_BUDGET,
                 PASTE_COMMAND_INTERVAL,
                 PASTE_COMMAND_LIMIT,
                 PASTE_COMMAND_SETBLOCK,
                 PICK_BLOCKABLE_SLOTS,
-                TOOL_ITEM
+                RENDER_BUFFER_POOL_LIMIT,
+                RENDER_THREAD_COUNT,
+                RENDER_THREAD_YIELD_QUEUE,
+                SCHEMATIC_LOAD_THREADS,
+                TOOL_ITEM,
+                VERIFIER_THREADS
         );
     }
 
@@ -102,6 +130,7 @@ public class Configs implements IConfigHandler
         public static final ConfigBoolean       RENDER_COLLIDING_SCHEMATIC_BLOCKS   = new ConfigBoolean("renderCollidingSchematicBlocks", false, "If enabled, then blocks in the schematics are rendered\nalso when there is already a (wrong) block in the client world.\nProbably mostly useful when trying to build\nsomething where there are snow layers or water in the way.");
         public static final ConfigBoolean       RENDER_ERROR_MARKER_CONNECTIONS     = new ConfigBoolean("renderErrorMarkerConnections", false, "Render connecting lines between subsequent verifier hilight box corners.\nThis was a rendering bug that some people experienced, but at least some players\nliked it and requested for it to stay, so this options \"restores\" it");
         public static final ConfigBoolean       RENDER_ERROR_MARKER_SIDES           = new ConfigBoolean("renderErrorMarkerSides", true, "If enabled, then the error markers in the Schematic Verifier\nwill have (translucent) sides rendered instead of just the outline");
+        public static final ConfigBoolean       RENDER_INCREMENTAL_UPDATES          = new ConfigBoolean("renderIncrementalUpdates", false, "If enabled, then single block changes in the client world\nare patched into the already built schematic render data,\nby removing the placed schematic block and updating the overlay\nat and around the changed position, instead of re-building\nthe entire 16x16x16 area. This helps while printing quickly.\nNote: The overlay sides are not depth sorted in this mode.");
         public static final ConfigBoolean       RENDER_PLACEMENT_BOX_SIDES          = new ConfigBoolean("renderPlacementBoxSides", false, "If enabled, then the placed schematic sub-region boxes\nwill have their side quads rendered");
         public static final ConfigBoolean       RENDER_PLACEMENT_ENCLOSING_BOX      = new ConfigBoolean("renderPlacementEnclosingBox", true, "If enabled, then an enclosing box is rendered around\nall the sub-regions in a schematic (placement)");
         public static final ConfigBoolean       RENDER_PLACEMENT_ENCLOSING_BOX_SIDES= new ConfigBoolean("renderPlacementEnclosingBoxSides", false, "If enabled, then the enclosing box around\na schematic placement will have its side quads rendered");
@@ -133,6 +162,7 @@ public class Configs implements IConfigHandler
                 RENDER_COLLIDING_SCHEMATIC_BLOCKS,
                 RENDER_ERROR_MARKER_CONNECTIONS,
                 RENDER_ERROR_MARKER_SIDES,
+                RENDER_INCREMENTAL_UPDATES,
                 RENDER_PLACEMENT_BOX_SIDES,
                 RENDER_PLACEMENT_ENCLOSING_BOX,
                 RENDER_PLACEMENT_ENCLOSING_BOX_SIDES,
@@ -259,6 +289,7 @@ public class Configs implements IConfigHandler
 
         DataManager.setToolItem(Generic.TOOL_ITEM.getStringValue());
         InventoryUtils.setPickBlockableSlots(Generic.PICK_BLOCKABLE_SLOTS.getStringValue());
+        PrinterFacingRules.getInstance().setCustomRules(Generic.EASY_PLACE_FACING_RULES.getStrings());
     }
 
     public static void saveToFile()
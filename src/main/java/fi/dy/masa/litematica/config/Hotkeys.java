@@ -12,6 +12,7 @@ public class Hotkeys
     public static final ConfigHotkey DELETE_SELECTION_BOX               = new ConfigHotkey("deleteSelectionBox",                "",     "Delete the currently selected box");
     public static final ConfigHotkey EASY_PLACE_ACTIVATION              = new ConfigHotkey("easyPlaceActivation",               "",     KeybindSettings.MODIFIER_INGAME_EMPTY, "When the easyPlaceMode is enabled, this key must\nbe held to enable placing the blocks when\nusing the vanilla Use key");
     public static final ConfigHotkey EASY_PLACE_TOGGLE                  = new ConfigHotkey("easyPlaceToggle",                   "",     "Allows quickly toggling on/off the Easy Place mode");
+    public static final ConfigHotkey EASY_PLACE_PRINTER_TOGGLE          = new ConfigHotkey("easyPlacePrinterToggle",            "",     "Starts or stops the continuous printer task, which prints\nthe schematic around the player over multiple ticks\nwhile the Easy Place mode is enabled");
     public static final ConfigHotkey EXECUTE_OPERATION                  = new ConfigHotkey("executeOperation",                  "",     "Execute the currently selected tool operation with the\ncurrent selection or placement in the Fill, Replace,\nPaste Schematic etc. modes");
     public static final ConfigHotkey FILL_TO_SCHEMATIC                  = new ConfigHotkey("fillToSchematic",                   "",     "Fill selected area in schemattic");
     public static final ConfigHotkey INVERT_GHOST_BLOCK_RENDER_STATE    = new ConfigHotkey("invertGhostBlockRenderState",       "",     "Inverts the schematic/ghost block rendering status\nwhile this keybind is held down");
@@ -85,6 +86,7 @@ public class Hotkeys
             DELETE_SELECTION_BOX,
             EASY_PLACE_ACTIVATION,
             EASY_PLACE_TOGGLE,
+            EASY_PLACE_PRINTER_TOGGLE,
             EXECUTE_OPERATION,
             FILL_TO_SCHEMATIC,
             INVERT_GHOST_BLOCK_RENDER_STATE,
@@ -23,6 +23,7 @@ import fi.dy.masa.litematica.materials.MaterialListBase;
 import fi.dy.masa.litematica.materials.MaterialListHudRenderer;
 import fi.dy.masa.litematica.render.infohud.InfoHud;
 import fi.dy.masa.litematica.scheduler.TaskScheduler;
+import fi.dy.masa.litematica.schematic.SchematicCatalog;
 import fi.dy.masa.litematica.schematic.placement.SchematicPlacementManager;
 import fi.dy.masa.litematica.schematic.projects.SchematicProjectsManager;
 import fi.dy.masa.litematica.schematic.verifier.SchematicVerifier;
@@ -238,6 +239,7 @@ public class DataManager implements IDirectoryCache
     {
         save(false);
         MaterialCache.getInstance().writeToFile();
+        SchematicCatalog.getInstance().writeToFile();
     }
 
     public static void save(boolean forceSave)
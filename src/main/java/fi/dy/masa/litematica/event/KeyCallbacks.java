@@ -19,8 +19,11 @@ import fi.dy.masa.litematica.gui.GuiSchematicPlacementsList;
 import fi.dy.masa.litematica.gui.GuiSchematicVerifier;
 import fi.dy.masa.litematica.gui.GuiSubRegionConfiguration;
 import fi.dy.masa.litematica.materials.MaterialListBase;
+import fi.dy.masa.litematica.printer.PrinterFacingRules;
+import fi.dy.masa.litematica.scheduler.tasks.TaskPrinter;
 import fi.dy.masa.litematica.schematic.placement.SchematicPlacement;
 import fi.dy.masa.litematica.schematic.placement.SubRegionPlacement;
+import fi.dy.masa.litematica.schematic.verifier.SchematicVerifier;
 import fi.dy.masa.litematica.selection.AreaSelection;
 import fi.dy.masa.litematica.selection.CornerSelectionMode;
 import fi.dy.masa.litematica.selection.SelectionManager;
@@ -57,8 +60,11 @@ public class KeyCallbacks
         ValueChangeCallback valueChangeCallback = new ValueChangeCallback();
 
         Configs.Generic.PICK_BLOCKABLE_SLOTS.setValueChangeCallback(valueChangeCallback);
+        Configs.Generic.EASY_PLACE_FACING_RULES.setValueChangeCallback((config) -> PrinterFacingRules.getInstance().setCustomRules(config.getStrings()));
+        Configs.Generic.VERIFIER_THREADS.setValueChangeCallback((config) -> SchematicVerifier.onThreadCountChanged());
 
         Hotkeys.CLONE_SELECTION.getKeybind().setCallback(callbackHotkeys);
+        Hotkeys.EASY_PLACE_PRINTER_TOGGLE.getKeybind().setCallback(callbackHotkeys);
         Hotkeys.EXECUTE_OPERATION.getKeybind().setCallback(callbackHotkeys);
         Hotkeys.FILL_TO_SCHEMATIC.getKeybind().setCallback(callbackHotkeys);
         Hotkeys.LAYER_MODE_NEXT.getKeybind().setCallback(callbackHotkeys);
@@ -406,6 +412,19 @@ public class KeyCallbacks
 
                 return true;
             }
+            else if (key == Hotkeys.EASY_PLACE_PRINTER_TOGGLE.getKeybind())
+            {
+                if (TaskPrinter.toggle())
+                {
+                    InfoUtils.printActionbarMessage("litematica.message.printer_task_started");
+                }
+                else
+                {
+                    InfoUtils.printActionbarMessage("litematica.message.printer_task_stopped");
+                }
+
+                return true;
+            }
             else if (key == Hotkeys.RERENDER_SCHEMATIC.getKeybind())
             {
                 SchematicWorldRefresher.INSTANCE.updateAll();
@@ -2,6 +2,7 @@ package fi.dy.masa.litematica.event;
 
 import javax.annotation.Nullable;
 import fi.dy.masa.litematica.data.DataManager;
+import fi.dy.masa.litematica.printer.PrinterThrottle;
 import fi.dy.masa.litematica.world.SchematicWorldHandler;
 import fi.dy.masa.malilib.interfaces.IWorldLoadListener;
 import net.minecraft.client.MinecraftClient;
@@ -23,6 +24,7 @@ public class WorldLoadListener implements IWorldLoadListener
     public void onWorldLoadPost(@Nullable ClientWorld worldBefore, @Nullable ClientWorld worldAfter, MinecraftClient mc)
     {
         SchematicWorldHandler.recreateSchematicWorld(worldAfter == null);
+        PrinterThrottle.getInstance().clear();
 
         if (worldAfter != null)
         {
@@ -6,6 +6,8 @@ import fi.dy.masa.litematica.data.DataManager;
 import fi.dy.masa.litematica.data.SchematicHolder;
 import fi.dy.masa.litematica.gui.GuiMainMenu.ButtonListenerChangeMenu;
 import fi.dy.masa.litematica.materials.MaterialListSchematic;
+import fi.dy.masa.litematica.scheduler.TaskScheduler;
+import fi.dy.masa.litematica.scheduler.tasks.TaskLoadSchematic;
 import fi.dy.masa.litematica.schematic.LitematicaSchematic;
 import fi.dy.masa.litematica.schematic.placement.SchematicPlacement;
 import fi.dy.masa.litematica.schematic.placement.SchematicPlacementManager;
@@ -24,6 +26,7 @@ import fi.dy.masa.malilib.gui.widgets.WidgetFileBrowserBase.DirectoryEntry;
 import fi.dy.masa.malilib.util.GuiUtils;
 import fi.dy.masa.malilib.util.InfoUtils;
 import fi.dy.masa.malilib.util.StringUtils;
+import net.minecraft.client.MinecraftClient;
 import net.minecraft.util.math.BlockPos;
 
 public class GuiSchematicLoad extends GuiSchematicBrowserBase
@@ -148,6 +151,16 @@ public class GuiSchematicLoad extends GuiSchematicBrowserBase
 
             if (fileType == FileType.LITEMATICA_SCHEMATIC)
             {
+                if (this.type == Type.LOAD_SCHEMATIC)
+                {
+                    // Read the file in the background, large schematics can take a while to load
+                    final boolean enabled = GuiBase.isShiftDown() == false;
+                    final String fileName = file.getName();
+                    TaskLoadSchematic task = new TaskLoadSchematic(file, (loaded) -> addLoadedSchematic(loaded, fileName, enabled));
+                    TaskScheduler.getInstanceClient().scheduleTask(task, 1);
+                    return;
+                }
+
                 schematic = LitematicaSchematic.createFromFile(entry.getDirectory(), entry.getName());
             }
             else if (fileType == FileType.SCHEMATICA_SCHEMATIC)
@@ -169,20 +182,7 @@ public class GuiSchematicLoad extends GuiSchematicBrowserBase
             {
                 if (this.type == Type.LOAD_SCHEMATIC)
                 {
-                    SchematicHolder.getInstance().addSchematic(schematic, true);
-                    this.gui.addMessage(MessageType.SUCCESS, "litematica.info.schematic_load.schematic_loaded", file.getName());
-
-                    if (DataManager.getCreatePlacementOnLoad())
-                    {
-                        BlockPos pos = new BlockPos(this.gui.mc.player.getPos());
-                        String name = schematic.getMetadata().getName();
-                        boolean enabled = GuiBase.isShiftDown() == false;
-
-                        SchematicPlacementManager manager = DataManager.getSchematicPlacementManager();
-                        SchematicPlacement placement = SchematicPlacement.createFor(schematic, pos, name, enabled, enabled);
-                        manager.addSchematicPlacement(placement, true);
-                        manager.setSelectedSchematicPlacement(placement);
-                    }
+                    addLoadedSchematic(schematic, file.getName(), GuiBase.isShiftDown() == false);
                 }
                 else if (this.type == Type.MATERIAL_LIST)
                 {
@@ -209,6 +209,25 @@ public class GuiSchematicLoad extends GuiSchematicBrowserBase
             }
         }
 
+        private static void addLoadedSchematic(LitematicaSchematic schematic, String fileName, boolean enabled)
+        {
+            SchematicHolder.getInstance().addSchematic(schematic, true);
+            InfoUtils.showGuiOrInGameMessage(MessageType.SUCCESS, "litematica.info.schematic_load.schematic_loaded", fileName);
+
+            MinecraftClient mc = MinecraftClient.getInstance();
+
+            if (DataManager.getCreatePlacementOnLoad() && mc.player != null)
+            {
+                BlockPos pos = new BlockPos(mc.player.getPos());
+                String name = schematic.getMetadata().getName();
+
+                SchematicPlacementManager manager = DataManager.getSchematicPlacementManager();
+                SchematicPlacement placement = SchematicPlacement.createFor(schematic, pos, name, enabled, enabled);
+                manager.addSchematicPlacement(placement, true);
+                manager.setSelectedSchematicPlacement(placement);
+            }
+        }
+
         public enum Type
         {
             LOAD_SCHEMATIC  ("litematica.gui.button.load_schematic_to_memory"),
@@ -2,8 +2,10 @@ package fi.dy.masa.litematica.gui.widgets;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -13,9 +15,11 @@ import fi.dy.masa.litematica.data.DataManager;
 import fi.dy.masa.litematica.gui.GuiSchematicBrowserBase;
 import fi.dy.masa.litematica.gui.Icons;
 import fi.dy.masa.litematica.schematic.LitematicaSchematic;
+import fi.dy.masa.litematica.schematic.SchematicCatalog;
 import fi.dy.masa.litematica.schematic.SchematicMetadata;
 import fi.dy.masa.malilib.gui.interfaces.ISelectionListener;
 import fi.dy.masa.malilib.gui.widgets.WidgetFileBrowserBase;
+import fi.dy.masa.malilib.gui.widgets.WidgetFileBrowserBase.DirectoryEntryType;
 import fi.dy.masa.malilib.render.RenderUtils;
 import fi.dy.masa.malilib.util.StringUtils;
 import net.minecraft.client.gui.DrawableHelper;
@@ -207,21 +211,48 @@ public class WidgetSchematicBrowser extends WidgetFileBrowserBase
         {
             if (entry.getName().endsWith(LitematicaSchematic.FILE_EXTENSION))
             {
-                LitematicaSchematic schematic = LitematicaSchematic.createFromFile(entry.getDirectory(), entry.getName());
+                // The catalog reads the missing entries in the background,
+                // so keep asking until the entry is available
+                SchematicCatalog.CatalogEntry catalogEntry = SchematicCatalog.getInstance().getEntry(file);
 
-                if (schematic != null)
+                if (catalogEntry != null)
                 {
-                    meta = schematic.getMetadata();
+                    meta = catalogEntry.getMetadata();
                     this.createPreviewImage(file, meta);
+                    this.cachedMetadata.put(file, meta);
                 }
             }
-
-            this.cachedMetadata.put(file, meta);
+            else
+            {
+                this.cachedMetadata.put(file, null);
+            }
         }
 
         return meta;
     }
 
+    @Override
+    protected List<String> getEntryStringsForFilter(DirectoryEntry entry)
+    {
+        List<String> strings = new ArrayList<>(super.getEntryStringsForFilter(entry));
+
+        if (entry.getType() == DirectoryEntryType.FILE && entry.getName().endsWith(LitematicaSchematic.FILE_EXTENSION))
+        {
+            // Only use the already cataloged entries here, the missing ones are read in the background
+            SchematicCatalog.CatalogEntry catalogEntry = SchematicCatalog.getInstance().getEntry(entry.getFullPath());
+
+            if (catalogEntry != null)
+            {
+                SchematicMetadata meta = catalogEntry.getMetadata();
+                strings.add(meta.getName().toLowerCase());
+                strings.add(meta.getAuthor().toLowerCase());
+                strings.addAll(catalogEntry.getMaterials());
+            }
+        }
+
+        return strings;
+    }
+
     private void clearPreviewImages()
     {
         for (Pair<Identifier, NativeImageBackedTexture> pair : this.cachedPreviewImages.values())
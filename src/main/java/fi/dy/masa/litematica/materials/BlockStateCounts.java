@@ -0,0 +1,86 @@
+package fi.dy.masa.litematica.materials;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.block.BlockState;
+
+/**
+ * The total, missing and mismatched block counts per schematic block state,
+ * for one chunk or for a whole placement.
+ */
+public class BlockStateCounts
+{
+    private final Object2IntOpenHashMap<BlockState> countsTotal = new Object2IntOpenHashMap<>();
+    private final Object2IntOpenHashMap<BlockState> countsMissing = new Object2IntOpenHashMap<>();
+    private final Object2IntOpenHashMap<BlockState> countsMismatch = new Object2IntOpenHashMap<>();
+
+    public Object2IntOpenHashMap<BlockState> getCountsTotal()
+    {
+        return this.countsTotal;
+    }
+
+    public Object2IntOpenHashMap<BlockState> getCountsMissing()
+    {
+        return this.countsMissing;
+    }
+
+    public Object2IntOpenHashMap<BlockState> getCountsMismatch()
+    {
+        return this.countsMismatch;
+    }
+
+    public void clear()
+    {
+        this.countsTotal.clear();
+        this.countsMissing.clear();
+        this.countsMismatch.clear();
+    }
+
+    /**
+     * Adds <b>amount</b> (which can be negative) to the counts of one position with the given states
+     */
+    public void countPosition(BlockState stateSchematic, BlockState stateClient, int amount)
+    {
+        if (stateSchematic.isAir() == false)
+        {
+            addTo(this.countsTotal, stateSchematic, amount);
+
+            if (stateClient.isAir())
+            {
+                addTo(this.countsMissing, stateSchematic, amount);
+            }
+            else if (stateClient != stateSchematic)
+            {
+                addTo(this.countsMissing, stateSchematic, amount);
+                addTo(this.countsMismatch, stateSchematic, amount);
+            }
+        }
+    }
+
+    /**
+     * Adds (or subtracts, if <b>sign</b> is negative) all the counts from the other counts to these counts
+     */
+    public void addAll(BlockStateCounts other, int sign)
+    {
+        addAll(this.countsTotal, other.countsTotal, sign);
+        addAll(this.countsMissing, other.countsMissing, sign);
+        addAll(this.countsMismatch, other.countsMismatch, sign);
+    }
+
+    private static void addAll(Object2IntOpenHashMap<BlockState> map, Object2IntOpenHashMap<BlockState> other, int sign)
+    {
+        for (Object2IntMap.Entry<BlockState> entry : other.object2IntEntrySet())
+        {
+            addTo(map, entry.getKey(), sign * entry.getIntValue());
+        }
+    }
+
+    private static void addTo(Object2IntOpenHashMap<BlockState> map, BlockState state, int amount)
+    {
+        // Don't leave empty entries around, they would show up in the material list
+        if (map.addTo(state, amount) + amount == 0)
+        {
+            map.removeInt(state);
+        }
+    }
+}
@@ -29,6 +29,7 @@ public abstract class MaterialListBase implements IMaterialList
     protected long countTotal;
     protected long countMissing;
     protected long countMismatched;
+    protected int modificationCount;
 
     public abstract String getName();
 
@@ -51,6 +52,11 @@ public abstract class MaterialListBase implements IMaterialList
 
     public List<MaterialListEntry> getMaterialsFiltered(boolean refresh)
     {
+        if (refresh)
+        {
+            this.updateLiveCounts();
+        }
+
         if (this.hideAvailable)
         {
             return this.getMaterialsMissingOnly(refresh);
@@ -102,6 +108,7 @@ public abstract class MaterialListBase implements IMaterialList
         this.ignored.add(entry);
         this.materialListPreFiltered.remove(entry);
         this.recreateFilteredList();
+        ++this.modificationCount;
     }
 
     public void clearIgnored()
@@ -109,6 +116,26 @@ public abstract class MaterialListBase implements IMaterialList
         this.ignored.clear();
         this.refreshPreFilteredList();
         this.recreateFilteredList();
+        ++this.modificationCount;
+    }
+
+    /**
+     * Returns a counter that changes whenever the entries, their counts,
+     * or the filtering or sorting of the entries change.
+     */
+    public int getModificationCount()
+    {
+        return this.modificationCount;
+    }
+
+    /**
+     * Applies any changes that have happened in the counted area since the last call
+     * to the material list entries, if the material list type keeps live counts.
+     * @return true if the entries were updated
+     */
+    public boolean updateLiveCounts()
+    {
+        return false;
     }
 
     /**
@@ -123,6 +150,7 @@ public abstract class MaterialListBase implements IMaterialList
         this.materialListAll = ImmutableList.copyOf(list);
         this.refreshPreFilteredList();
         this.updateCounts();
+        ++this.modificationCount;
 
         if (this.completionListener != null)
         {
@@ -130,6 +158,32 @@ public abstract class MaterialListBase implements IMaterialList
         }
     }
 
+    /**
+     * Replaces the entries with ones with updated counts, but unlike {@link #setMaterialListEntries(List)}
+     * this keeps the entries that have already been filtered out, filtered out.
+     */
+    protected void updateMaterialListEntries(List<MaterialListEntry> list)
+    {
+        Set<MaterialListEntry> oldEntries = new HashSet<>(this.materialListAll);
+        Set<MaterialListEntry> oldPreFiltered = new HashSet<>(this.materialListPreFiltered);
+
+        this.materialListAll = ImmutableList.copyOf(list);
+        this.materialListPreFiltered.clear();
+
+        for (MaterialListEntry entry : list)
+        {
+            if (oldPreFiltered.contains(entry) ||
+                (oldEntries.contains(entry) == false && this.ignored.contains(entry) == false))
+            {
+                this.materialListPreFiltered.add(entry);
+            }
+        }
+
+        this.recreateFilteredList();
+        this.updateCounts();
+        ++this.modificationCount;
+    }
+
     @Override
     public BlockInfoListType getMaterialListType()
     {
@@ -177,16 +231,20 @@ public abstract class MaterialListBase implements IMaterialList
             this.sortCriteria = criteria;
             this.reverse = criteria == SortCriteria.NAME;
         }
+
+        ++this.modificationCount;
     }
 
     public void setHideAvailable(boolean hideAvailable)
     {
         this.hideAvailable = hideAvailable;
+        ++this.modificationCount;
     }
 
     public void setMultiplier(int multiplier)
     {
         this.multiplier = MathHelper.clamp(multiplier, 1, Integer.MAX_VALUE);
+        ++this.modificationCount;
     }
 
     public void updateCounts()
@@ -6,9 +6,9 @@ import net.minecraft.item.ItemStack;
 public class MaterialListEntry
 {
     private final ItemType item;
-    private final int countTotal;
-    private final int countMissing;
-    private final int countMismatched;
+    private int countTotal;
+    private int countMissing;
+    private int countMismatched;
     private int countAvailable;
 
     public MaterialListEntry(ItemStack stack, int countTotal, int countMissing, int countMismatched, int countAvailable)
@@ -59,6 +59,16 @@ public class MaterialListEntry
         this.countAvailable = countAvailable;
     }
 
+    /**
+     * Adds the given (possibly negative) amounts to the counts of this entry
+     */
+    public void addCounts(int countTotal, int countMissing, int countMismatched)
+    {
+        this.countTotal += countTotal;
+        this.countMissing += countMissing;
+        this.countMismatched += countMismatched;
+    }
+
     @Override
     public int hashCode()
     {
@@ -19,7 +19,8 @@ public class MaterialListHudRenderer implements IInfoHudRenderer
     protected final MaterialListBase materialList;
     protected final MaterialListSorter sorter;
     protected boolean shouldRender;
-    protected long lastUpdateTime;
+    protected int lastListModificationCount = -1;
+    protected int lastInventoryChangeCount = -1;
 
     public MaterialListHudRenderer(MaterialListBase materialList)
     {
@@ -60,15 +61,25 @@ public class MaterialListHudRenderer implements IInfoHudRenderer
     public int render(int xOffset, int yOffset, HudAlignment alignment)
     {
         MinecraftClient mc = MinecraftClient.getInstance();
-        long currentTime = System.currentTimeMillis();
         List<MaterialListEntry> list;
 
-        if (currentTime - this.lastUpdateTime > 2000)
+        // Only re-check the inventory and re-sort when the list or the inventory contents have changed.
+        // The live counts of the list are updated once per client tick, not here.
+        final int listModificationCount = this.materialList.getModificationCount();
+        final int inventoryChangeCount = mc.player.inventory.getChangeCount();
+
+        if (listModificationCount != this.lastListModificationCount ||
+            inventoryChangeCount != this.lastInventoryChangeCount)
         {
-            MaterialListUtils.updateAvailableCounts(this.materialList.getMaterialsAll(), mc.player);
+            if (inventoryChangeCount != this.lastInventoryChangeCount)
+            {
+                MaterialListUtils.updateAvailableCounts(this.materialList.getMaterialsAll(), mc.player);
+            }
+
             list = this.materialList.getMaterialsMissingOnly(true);
             Collections.sort(list, this.sorter);
-            this.lastUpdateTime = currentTime;
+            this.lastListModificationCount = listModificationCount;
+            this.lastInventoryChangeCount = inventoryChangeCount;
         }
         else
         {
@@ -1,15 +1,55 @@
 package fi.dy.masa.litematica.materials;
 
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import com.google.common.collect.ImmutableList;
+import fi.dy.masa.litematica.data.DataManager;
 import fi.dy.masa.litematica.scheduler.TaskScheduler;
 import fi.dy.masa.litematica.scheduler.tasks.TaskCountBlocksPlacement;
 import fi.dy.masa.litematica.schematic.placement.SchematicPlacement;
+import fi.dy.masa.litematica.util.BlockInfoListType;
+import fi.dy.masa.litematica.world.WorldSchematic;
 import fi.dy.masa.malilib.gui.Message.MessageType;
 import fi.dy.masa.malilib.util.InfoUtils;
+import fi.dy.masa.malilib.util.IntBoundingBox;
+import fi.dy.masa.malilib.util.ItemType;
+import fi.dy.masa.malilib.util.LayerRange;
 import fi.dy.masa.malilib.util.StringUtils;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 
+/**
+ * The material list of a placement. After the placement has been counted once,
+ * the counts are kept up to date per chunk from the client world block changes,
+ * and the chunks are re-counted when their schematic chunk gets loaded again.
+ * The changed counts are applied to the existing entries once per client tick.
+ */
 public class MaterialListPlacement extends MaterialListBase
 {
     private final SchematicPlacement placement;
+    private final Long2ObjectOpenHashMap<BlockStateCounts> chunkCounts = new Long2ObjectOpenHashMap<>();
+    /** The counted chunks whose schematic chunk is not currently loaded, so their counts can't be updated */
+    private final LongOpenHashSet unloadedChunks = new LongOpenHashSet();
+    private final BlockStateCounts counts = new BlockStateCounts();
+    /** The count changes since the entries were last updated */
+    private final BlockStateCounts pendingChanges = new BlockStateCounts();
+    private final Map<ItemType, MaterialListEntry> entriesByType = new Object2ObjectOpenHashMap<>();
+    private ImmutableList<MaterialListEntry> entriesByTypeSource = ImmutableList.of();
+    /** The layer range used by the last counting task, which the live updates must also use */
+    @Nullable private LayerRange countedLayerRange;
+    private boolean countsChanged;
 
     public MaterialListPlacement(SchematicPlacement placement)
     {
@@ -53,4 +93,239 @@ public class MaterialListPlacement extends MaterialListBase
         TaskScheduler.getInstanceClient().scheduleTask(task, 20);
         InfoUtils.showGuiOrInGameMessage(MessageType.INFO, "litematica.message.scheduled_task_added");
     }
+
+    /**
+     * Sets the layer range that the counting task uses
+     */
+    public void setCountedLayerRange(LayerRange range)
+    {
+        this.countedLayerRange = range;
+    }
+
+    /**
+     * Replaces the counts of the given chunk with the new counts
+     */
+    public void setChunkCounts(long chunkKey, BlockStateCounts counts)
+    {
+        BlockStateCounts old = this.chunkCounts.put(chunkKey, counts);
+
+        if (old != null)
+        {
+            this.counts.addAll(old, -1);
+            this.pendingChanges.addAll(old, -1);
+        }
+
+        this.counts.addAll(counts, 1);
+        this.pendingChanges.addAll(counts, 1);
+        this.unloadedChunks.remove(chunkKey);
+        this.countsChanged = true;
+    }
+
+    /**
+     * Called when the counting task has finished. Removes the counts of any
+     * previously counted chunks that were not counted this time, and re-creates the entries.
+     */
+    public void onCountingFinished(LongSet countedChunks)
+    {
+        ObjectIterator<Long2ObjectMap.Entry<BlockStateCounts>> iter = this.chunkCounts.long2ObjectEntrySet().fastIterator();
+
+        while (iter.hasNext())
+        {
+            Long2ObjectMap.Entry<BlockStateCounts> entry = iter.next();
+
+            if (countedChunks.contains(entry.getLongKey()) == false)
+            {
+                this.counts.addAll(entry.getValue(), -1);
+                this.unloadedChunks.remove(entry.getLongKey());
+                iter.remove();
+            }
+        }
+
+        this.countsChanged = false;
+        this.pendingChanges.clear();
+        this.setMaterialListEntries(this.createEntries());
+    }
+
+    /**
+     * Updates the counts of the given position, when the client world block changes
+     * from <b>stateClientOld</b> to <b>stateClientNew</b>.
+     */
+    public void onClientBlockChange(BlockPos pos, BlockState stateSchematic, BlockState stateClientOld, BlockState stateClientNew)
+    {
+        long chunkKey = ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4);
+        BlockStateCounts counts = this.chunkCounts.get(chunkKey);
+
+        if (counts == null || this.unloadedChunks.contains(chunkKey) || this.isPositionCounted(pos) == false)
+        {
+            return;
+        }
+
+        counts.countPosition(stateSchematic, stateClientOld, -1);
+        counts.countPosition(stateSchematic, stateClientNew, 1);
+        this.counts.countPosition(stateSchematic, stateClientOld, -1);
+        this.counts.countPosition(stateSchematic, stateClientNew, 1);
+        this.pendingChanges.countPosition(stateSchematic, stateClientOld, -1);
+        this.pendingChanges.countPosition(stateSchematic, stateClientNew, 1);
+        this.countsChanged = true;
+    }
+
+    public void onSchematicChunkUnloaded(int chunkX, int chunkZ)
+    {
+        long chunkKey = ChunkPos.toLong(chunkX, chunkZ);
+
+        if (this.chunkCounts.containsKey(chunkKey))
+        {
+            this.unloadedChunks.add(chunkKey);
+        }
+    }
+
+    /**
+     * Re-counts the given chunk, if it has been counted before,
+     * so that any changes while it wasn't loaded get included.
+     */
+    public void onSchematicChunkLoaded(int chunkX, int chunkZ, WorldSchematic worldSchematic, ClientWorld worldClient)
+    {
+        long chunkKey = ChunkPos.toLong(chunkX, chunkZ);
+
+        if (this.chunkCounts.containsKey(chunkKey) == false)
+        {
+            return;
+        }
+
+        BlockStateCounts counts = new BlockStateCounts();
+        BlockPos.Mutable posMutable = new BlockPos.Mutable();
+
+        for (IntBoundingBox bb : this.placement.getBoxesWithinChunk(chunkX, chunkZ).values())
+        {
+            for (int y = bb.minY; y <= bb.maxY; ++y)
+            {
+                for (int z = bb.minZ; z <= bb.maxZ; ++z)
+                {
+                    for (int x = bb.minX; x <= bb.maxX; ++x)
+                    {
+                        posMutable.set(x, y, z);
+
+                        if (this.isPositionCounted(posMutable))
+                        {
+                            counts.countPosition(worldSchematic.getBlockState(posMutable), worldClient.getBlockState(posMutable), 1);
+                        }
+                    }
+                }
+            }
+        }
+
+        this.setChunkCounts(chunkKey, counts);
+    }
+
+    private boolean isPositionCounted(BlockPos pos)
+    {
+        if (this.countedLayerRange != null)
+        {
+            return this.countedLayerRange.isPositionWithinRange(pos);
+        }
+
+        return this.getMaterialListType() == BlockInfoListType.ALL ||
+               DataManager.getRenderLayerRange().isPositionWithinRange(pos);
+    }
+
+    /**
+     * Applies the count changes since the last call to the entries.
+     * This is called once per client tick for the active material list.
+     */
+    @Override
+    public boolean updateLiveCounts()
+    {
+        if (this.countsChanged && MinecraftClient.getInstance().player != null)
+        {
+            this.countsChanged = false;
+
+            // Only new item types, or item types that are no longer needed at all, require re-creating the entries
+            if (this.applyPendingChanges() == false)
+            {
+                this.updateMaterialListEntries(this.createEntries());
+            }
+
+            this.pendingChanges.clear();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Adds the pending count changes to the existing entries in place.
+     * @return false if the changes can't be applied to the existing entries
+     */
+    private boolean applyPendingChanges()
+    {
+        MaterialCache cache = MaterialCache.getInstance();
+        Object2IntOpenHashMap<ItemType> changesTotal = new Object2IntOpenHashMap<>();
+        Object2IntOpenHashMap<ItemType> changesMissing = new Object2IntOpenHashMap<>();
+        Object2IntOpenHashMap<ItemType> changesMismatch = new Object2IntOpenHashMap<>();
+
+        MaterialListUtils.convertStatesToStacks(this.pendingChanges.getCountsTotal(), changesTotal, cache);
+        MaterialListUtils.convertStatesToStacks(this.pendingChanges.getCountsMissing(), changesMissing, cache);
+        MaterialListUtils.convertStatesToStacks(this.pendingChanges.getCountsMismatch(), changesMismatch, cache);
+
+        if (this.entriesByTypeSource != this.materialListAll)
+        {
+            this.entriesByType.clear();
+
+            for (MaterialListEntry entry : this.materialListAll)
+            {
+                this.entriesByType.put(new ItemType(entry.getStack(), false, true), entry);
+            }
+
+            this.entriesByTypeSource = this.materialListAll;
+        }
+
+        // Check everything first, so that the entries are either all updated or not at all
+        if (this.canApplyChanges(changesTotal, true) == false ||
+            this.canApplyChanges(changesMissing, false) == false ||
+            this.canApplyChanges(changesMismatch, false) == false)
+        {
+            return false;
+        }
+
+        for (Object2IntMap.Entry<ItemType> change : changesTotal.object2IntEntrySet())
+        {
+            this.entriesByType.get(change.getKey()).addCounts(change.getIntValue(), 0, 0);
+        }
+
+        for (Object2IntMap.Entry<ItemType> change : changesMissing.object2IntEntrySet())
+        {
+            this.entriesByType.get(change.getKey()).addCounts(0, change.getIntValue(), 0);
+        }
+
+        for (Object2IntMap.Entry<ItemType> change : changesMismatch.object2IntEntrySet())
+        {
+            this.entriesByType.get(change.getKey()).addCounts(0, 0, change.getIntValue());
+        }
+
+        this.updateCounts();
+        ++this.modificationCount;
+
+        return true;
+    }
+
+    private boolean canApplyChanges(Object2IntOpenHashMap<ItemType> changes, boolean isTotal)
+    {
+        for (Object2IntMap.Entry<ItemType> change : changes.object2IntEntrySet())
+        {
+            MaterialListEntry entry = this.entriesByType.get(change.getKey());
+
+            if (entry == null || (isTotal && entry.getCountTotal() + change.getIntValue() <= 0))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private List<MaterialListEntry> createEntries()
+    {
+        return MaterialListUtils.getMaterialList(this.counts.getCountsTotal(), this.counts.getCountsMissing(),
+                                                 this.counts.getCountsMismatch(), MinecraftClient.getInstance().player);
+    }
 }
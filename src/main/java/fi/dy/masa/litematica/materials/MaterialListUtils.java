@@ -4,15 +4,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import fi.dy.masa.litematica.schematic.LitematicaSchematic;
-import fi.dy.masa.litematica.schematic.container.LitematicaBlockStateContainer;
 import fi.dy.masa.malilib.util.InventoryUtils;
 import fi.dy.masa.malilib.util.ItemType;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.item.ItemStack;
-import net.minecraft.util.math.Vec3i;
 
 public class MaterialListUtils
 {
@@ -27,25 +26,13 @@ public class MaterialListUtils
 
         for (String regionName : subRegions)
         {
-            LitematicaBlockStateContainer container = schematic.getSubRegionContainer(regionName);
+            Object2IntOpenHashMap<BlockState> counts = schematic.getBlockStateCounts(regionName);
 
-            if (container != null)
+            if (counts != null)
             {
-                Vec3i size = container.getSize();
-                final int sizeX = size.getX();
-                final int sizeY = size.getY();
-                final int sizeZ = size.getZ();
-
-                for (int y = 0; y < sizeY; ++y)
+                for (Object2IntMap.Entry<BlockState> entry : counts.object2IntEntrySet())
                 {
-                    for (int z = 0; z < sizeZ; ++z)
-                    {
-                        for (int x = 0; x < sizeX; ++x)
-                        {
-                            BlockState state = container.get(x, y, z);
-                            countsTotal.addTo(state, 1);
-                        }
-                    }
+                    countsTotal.addTo(entry.getKey(), entry.getIntValue());
                 }
             }
         }
@@ -89,7 +76,7 @@ public class MaterialListUtils
         return list;
     }
 
-    private static void convertStatesToStacks(
+    public static void convertStatesToStacks(
             Object2IntOpenHashMap<BlockState> blockStatesIn,
             Object2IntOpenHashMap<ItemType> itemTypesOut,
             MaterialCache cache)
@@ -0,0 +1,16 @@
+package fi.dy.masa.litematica.mixin;
+
+import java.nio.ByteBuffer;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+import net.minecraft.client.render.BufferBuilder;
+
+@Mixin(BufferBuilder.class)
+public interface IMixinBufferBuilder
+{
+    @Accessor("vertexCount")
+    int litematica_getVertexCount();
+
+    @Accessor("buffer")
+    ByteBuffer litematica_getBuffer();
+}
@@ -0,0 +1,17 @@
+package fi.dy.masa.litematica.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+import net.minecraft.util.PackedIntegerArray;
+import net.minecraft.world.chunk.Palette;
+import net.minecraft.world.chunk.PalettedContainer;
+
+@Mixin(PalettedContainer.class)
+public interface IMixinPalettedContainer<T>
+{
+    @Accessor("palette")
+    Palette<T> litematica_getPalette();
+
+    @Accessor("data")
+    PackedIntegerArray litematica_getData();
+}
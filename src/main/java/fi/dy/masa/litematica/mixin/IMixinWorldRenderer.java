@@ -0,0 +1,14 @@
+package fi.dy.masa.litematica.mixin;
+
+import java.util.Set;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+import net.minecraft.client.render.WorldRenderer;
+import net.minecraft.client.render.chunk.ChunkBuilder;
+
+@Mixin(WorldRenderer.class)
+public interface IMixinWorldRenderer
+{
+    @Accessor("chunksToRebuild")
+    Set<ChunkBuilder.BuiltChunk> litematica_getChunksToRebuild();
+}
@@ -18,6 +18,9 @@ public abstract class MixinClientPlayNetworkHandler
     @Inject(method = "onChunkData", at = @At("RETURN"))
     private void onChunkData(ChunkDataS2CPacket packetIn, CallbackInfo ci)
     {
+        DataManager.getSchematicPlacementManager().getPrinterWorkIndex().invalidateChunk(packetIn.getX(), packetIn.getZ());
+        DataManager.getSchematicPlacementManager().queueMaterialListRecount(packetIn.getX(), packetIn.getZ());
+
         if (Configs.Visuals.ENABLE_RENDERING.getBooleanValue() &&
             Configs.Visuals.ENABLE_SCHEMATIC_RENDERING.getBooleanValue())
         {
@@ -1,16 +1,39 @@
 package fi.dy.masa.litematica.mixin;
 
+import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.Redirect;
 import org.spongepowered.asm.mixin.injection.Slice;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+import fi.dy.masa.litematica.data.DataManager;
 import fi.dy.masa.litematica.util.WorldUtils;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.WorldChunk;
 
 @Mixin(WorldChunk.class)
 public abstract class MixinWorldChunk
 {
+    @Shadow @Final private World world;
+
+    @Shadow public abstract BlockState getBlockState(BlockPos pos);
+
+    @Inject(method = "setBlockState", at = @At("HEAD"))
+    private void onSetBlockState(BlockPos pos, BlockState state, boolean moved, CallbackInfoReturnable<BlockState> cir)
+    {
+        // This also catches the client-side predicted changes when the player places or breaks blocks,
+        // which the block update packets from the server then don't change anymore
+        if (this.world == MinecraftClient.getInstance().world)
+        {
+            DataManager.getSchematicPlacementManager().onClientBlockChange(pos, this.getBlockState(pos), state);
+        }
+    }
+
     @Redirect(method = "setBlockState",
                 slice = @Slice(from = @At(value = "INVOKE",
                                 target = "Lnet/minecraft/world/chunk/ChunkSection;getBlockState(III)" +
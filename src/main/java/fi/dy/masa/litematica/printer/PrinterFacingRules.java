@@ -0,0 +1,213 @@
+package fi.dy.masa.litematica.printer;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import fi.dy.masa.litematica.Litematica;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.block.AbstractButtonBlock;
+import net.minecraft.block.BedBlock;
+import net.minecraft.block.BeehiveBlock;
+import net.minecraft.block.Block;
+import net.minecraft.block.CarvedPumpkinBlock;
+import net.minecraft.block.ChestBlock;
+import net.minecraft.block.ComparatorBlock;
+import net.minecraft.block.DispenserBlock;
+import net.minecraft.block.DoorBlock;
+import net.minecraft.block.DropperBlock;
+import net.minecraft.block.EndPortalFrameBlock;
+import net.minecraft.block.EnderChestBlock;
+import net.minecraft.block.FenceGateBlock;
+import net.minecraft.block.FurnaceBlock;
+import net.minecraft.block.LecternBlock;
+import net.minecraft.block.LeverBlock;
+import net.minecraft.block.LoomBlock;
+import net.minecraft.block.ObserverBlock;
+import net.minecraft.block.PistonBlock;
+import net.minecraft.block.PumpkinBlock;
+import net.minecraft.block.RepeaterBlock;
+import net.minecraft.block.StairsBlock;
+import net.minecraft.block.StonecutterBlock;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.registry.Registry;
+
+/**
+ * Defines how the printer needs to be facing to place a directional block in the correct orientation.
+ * The built-in rules match blocks by their class, and they can be extended or overridden
+ * per block via the easyPlaceFacingRules config option, using entries in the format
+ * <b>block_id;type;reversed</b>, for example <b>minecraft:observer;all;false</b>.
+ * The valid types are <b>all</b>, <b>horizontal</b>, <b>wall_mountable</b> and <b>none</b>.
+ * The rules are resolved once per Block and then cached.
+ */
+public class PrinterFacingRules
+{
+    private static final PrinterFacingRules INSTANCE = new PrinterFacingRules();
+    private static final FacingData NO_RULE = new FacingData(FacingType.NONE, false);
+
+    private final Map<Class<? extends Block>, FacingData> classRules = new LinkedHashMap<>();
+    private final Map<Block, FacingData> blockRules = new Reference2ObjectOpenHashMap<>();
+    private final Reference2ObjectOpenHashMap<Block, FacingData> resolved = new Reference2ObjectOpenHashMap<>();
+
+    public static PrinterFacingRules getInstance()
+    {
+        return INSTANCE;
+    }
+
+    private PrinterFacingRules()
+    {
+        // All directions, reverse of what player is facing
+        this.addClassRule(PistonBlock.class,            FacingType.ALL, true);
+        this.addClassRule(DispenserBlock.class,         FacingType.ALL, true);
+        this.addClassRule(DropperBlock.class,           FacingType.ALL, true);
+
+        // All directions, normal direction of player
+        this.addClassRule(ObserverBlock.class,          FacingType.ALL, false);
+
+        // Horizontal directions, normal direction
+        this.addClassRule(StairsBlock.class,            FacingType.HORIZONTAL, false);
+        this.addClassRule(DoorBlock.class,              FacingType.HORIZONTAL, false);
+        this.addClassRule(BedBlock.class,               FacingType.HORIZONTAL, false);
+        this.addClassRule(FenceGateBlock.class,         FacingType.HORIZONTAL, false);
+
+        // Horizontal directions, reverse of what player is facing
+        this.addClassRule(ChestBlock.class,             FacingType.HORIZONTAL, true);
+        this.addClassRule(RepeaterBlock.class,          FacingType.HORIZONTAL, true);
+        this.addClassRule(ComparatorBlock.class,        FacingType.HORIZONTAL, true);
+        this.addClassRule(EnderChestBlock.class,        FacingType.HORIZONTAL, true);
+        this.addClassRule(FurnaceBlock.class,           FacingType.HORIZONTAL, true);
+        this.addClassRule(LecternBlock.class,           FacingType.HORIZONTAL, true);
+        this.addClassRule(LoomBlock.class,              FacingType.HORIZONTAL, true);
+        this.addClassRule(BeehiveBlock.class,           FacingType.HORIZONTAL, true);
+        this.addClassRule(StonecutterBlock.class,       FacingType.HORIZONTAL, true);
+        this.addClassRule(CarvedPumpkinBlock.class,     FacingType.HORIZONTAL, true);
+        this.addClassRule(PumpkinBlock.class,           FacingType.HORIZONTAL, true);
+        this.addClassRule(EndPortalFrameBlock.class,    FacingType.HORIZONTAL, true);
+
+        // Top/bottom placeable side mountable blocks
+        this.addClassRule(LeverBlock.class,             FacingType.WALL_MOUNTABLE, false);
+        this.addClassRule(AbstractButtonBlock.class,    FacingType.WALL_MOUNTABLE, false);
+    }
+
+    private void addClassRule(Class<? extends Block> clazz, FacingType type, boolean isReversed)
+    {
+        this.classRules.put(clazz, new FacingData(type, isReversed));
+    }
+
+    /**
+     * Sets the per-block rules from the config strings.
+     * These take precedence over the built-in class based rules.
+     */
+    public void setCustomRules(List<String> rules)
+    {
+        this.blockRules.clear();
+        this.resolved.clear();
+
+        for (String str : rules)
+        {
+            String[] parts = str.trim().split(";");
+
+            if (parts.length != 3)
+            {
+                Litematica.logger.warn("Invalid printer facing rule '{}', expected the format 'block_id;type;reversed'", str);
+                continue;
+            }
+
+            FacingType type = FacingType.fromString(parts[1].trim());
+            Block block = null;
+
+            try
+            {
+                Optional<Block> optional = Registry.BLOCK.getOrEmpty(new Identifier(parts[0].trim()));
+                block = optional.orElse(null);
+            }
+            catch (Exception e)
+            {
+            }
+
+            if (block == null || type == null)
+            {
+                Litematica.logger.warn("Invalid printer facing rule '{}'", str);
+                continue;
+            }
+
+            this.blockRules.put(block, new FacingData(type, Boolean.parseBoolean(parts[2].trim())));
+        }
+    }
+
+    /**
+     * Returns the facing rule for the given block, or null if the block doesn't have any.
+     */
+    @Nullable
+    public FacingData getFacingData(Block block)
+    {
+        FacingData data = this.resolved.get(block);
+
+        if (data == null)
+        {
+            data = this.resolve(block);
+            this.resolved.put(block, data);
+        }
+
+        return data != NO_RULE ? data : null;
+    }
+
+    private FacingData resolve(Block block)
+    {
+        FacingData data = this.blockRules.get(block);
+
+        if (data != null)
+        {
+            return data.type != FacingType.NONE ? data : NO_RULE;
+        }
+
+        for (Map.Entry<Class<? extends Block>, FacingData> entry : this.classRules.entrySet())
+        {
+            if (entry.getKey().isInstance(block))
+            {
+                return entry.getValue();
+            }
+        }
+
+        return NO_RULE;
+    }
+
+    public enum FacingType
+    {
+        /** Up/down/east/west/south/north directions */
+        ALL,
+        /** Horizontal directions only */
+        HORIZONTAL,
+        /** Wall attachable blocks, which use the player direction only when not on a wall */
+        WALL_MOUNTABLE,
+        /** No facing restriction */
+        NONE;
+
+        @Nullable
+        public static FacingType fromString(String name)
+        {
+            for (FacingType type : values())
+            {
+                if (type.name().equalsIgnoreCase(name))
+                {
+                    return type;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    public static class FacingData
+    {
+        public final FacingType type;
+        public final boolean isReversed;
+
+        public FacingData(FacingType type, boolean isReversed)
+        {
+            this.type = type;
+            this.isReversed = isReversed;
+        }
+    }
+}
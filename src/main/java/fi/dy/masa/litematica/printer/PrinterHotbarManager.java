@@ -0,0 +1,167 @@
+package fi.dy.masa.litematica.printer;
+
+import java.util.List;
+import fi.dy.masa.litematica.util.EntityUtils;
+import fi.dy.masa.litematica.util.InventoryUtils;
+import fi.dy.masa.malilib.util.ItemType;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.container.SlotActionType;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.ItemStack;
+
+/**
+ * Manages the pick-blockable hotbar slots for the printer, using the upcoming
+ * material demand from the {@link PrinterMaterialBatcher}.
+ * When an item needs to be brought to the hotbar, the slot to replace is the one whose item
+ * is needed the least by the upcoming placements, and of those the least recently used one.
+ * During idle ticks the most needed items that aren't in the hotbar yet are moved there
+ * one at a time, so that the printer doesn't need to wait on inventory clicks mid-burst.
+ */
+public class PrinterHotbarManager
+{
+    private final PrinterMaterialBatcher batcher;
+    private final long[] lastUsed = new long[PlayerInventory.getHotbarSize()];
+    private long useCounter;
+
+    public PrinterHotbarManager(PrinterMaterialBatcher batcher)
+    {
+        this.batcher = batcher;
+    }
+
+    /**
+     * Selects the hotbar slot with the given item, moving the item
+     * to the hotbar first if it's only in the main inventory.
+     * @return true if the item is now in the player's hand
+     */
+    public boolean pickItem(MinecraftClient mc, ItemStack stack)
+    {
+        PlayerInventory inv = mc.player.inventory;
+        int slot = inv.getSlotWithStack(stack);
+
+        if (slot == -1)
+        {
+            return false;
+        }
+
+        if (PlayerInventory.isValidHotbarIndex(slot) == false)
+        {
+            int hotbarSlot = this.getSlotToReplace(inv, Integer.MAX_VALUE, -1);
+
+            if (hotbarSlot == -1)
+            {
+                InventoryUtils.setPickedItemToHand(stack, mc);
+                return EntityUtils.getUsedHandForItem(mc.player, stack) != null;
+            }
+
+            this.swapToHotbar(mc, slot, hotbarSlot);
+            slot = hotbarSlot;
+        }
+
+        inv.selectedSlot = slot;
+        this.lastUsed[slot] = ++this.useCounter;
+
+        return true;
+    }
+
+    /**
+     * Moves the most needed upcoming item that isn't in the hotbar yet, if any,
+     * into the hotbar. Only one stack is moved per call, to keep the inventory traffic low.
+     */
+    public void onIdleTick(MinecraftClient mc)
+    {
+        PlayerEntity player = mc.player;
+
+        if (player == null || player.abilities.creativeMode || mc.currentScreen != null)
+        {
+            return;
+        }
+
+        Object2IntMap<ItemType> demand = this.batcher.getPlacementCounts();
+        PlayerInventory inv = player.inventory;
+        ItemType bestType = null;
+        int bestCount = 0;
+        int bestSlot = -1;
+
+        for (Object2IntMap.Entry<ItemType> entry : demand.object2IntEntrySet())
+        {
+            int count = entry.getIntValue();
+
+            if (count > bestCount)
+            {
+                ItemType type = entry.getKey();
+                int slot = inv.getSlotWithStack(type.getStack());
+
+                // Not in the hotbar yet, but available in the main inventory
+                if (slot != -1 && PlayerInventory.isValidHotbarIndex(slot) == false)
+                {
+                    bestType = type;
+                    bestCount = count;
+                    bestSlot = slot;
+                }
+            }
+        }
+
+        if (bestType != null)
+        {
+            // Never evict something that is needed at least as much, or the item currently in hand
+            int hotbarSlot = this.getSlotToReplace(inv, bestCount, inv.selectedSlot);
+
+            if (hotbarSlot != -1)
+            {
+                this.swapToHotbar(mc, bestSlot, hotbarSlot);
+                this.lastUsed[hotbarSlot] = ++this.useCounter;
+            }
+        }
+    }
+
+    private int getSlotToReplace(PlayerInventory inv, int maxDemand, int excludedSlot)
+    {
+        Object2IntMap<ItemType> demand = this.batcher.getPlacementCounts();
+        List<Integer> slots = InventoryUtils.getPickBlockableSlots();
+        int bestSlot = -1;
+        int bestDemand = Integer.MAX_VALUE;
+        long bestLastUsed = Long.MAX_VALUE;
+
+        for (int i = 0; i < slots.size(); ++i)
+        {
+            int slot = slots.get(i) - 1;
+
+            if (slot == excludedSlot || PlayerInventory.isValidHotbarIndex(slot) == false)
+            {
+                continue;
+            }
+
+            ItemStack stack = inv.main.get(slot);
+
+            if (stack.isEmpty())
+            {
+                return slot;
+            }
+
+            int slotDemand = demand.getInt(new ItemType(stack, false, true));
+
+            if (slotDemand >= maxDemand)
+            {
+                continue;
+            }
+
+            if (slotDemand < bestDemand || (slotDemand == bestDemand && this.lastUsed[slot] < bestLastUsed))
+            {
+                bestSlot = slot;
+                bestDemand = slotDemand;
+                bestLastUsed = this.lastUsed[slot];
+            }
+        }
+
+        return bestSlot;
+    }
+
+    private void swapToHotbar(MinecraftClient mc, int inventorySlot, int hotbarSlot)
+    {
+        PlayerEntity player = mc.player;
+        // The main inventory slots 9..35 have the same slot numbers in the player container
+        mc.interactionManager.clickSlot(player.playerContainer.syncId, inventorySlot, hotbarSlot, SlotActionType.SWAP, player);
+    }
+}
@@ -0,0 +1,182 @@
+package fi.dy.masa.litematica.printer;
+
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.Nullable;
+import fi.dy.masa.litematica.materials.MaterialCache;
+import fi.dy.masa.malilib.util.InventoryUtils;
+import fi.dy.masa.malilib.util.ItemType;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.block.BedBlock;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.DoorBlock;
+import net.minecraft.block.enums.BedPart;
+import net.minecraft.block.enums.DoubleBlockHalf;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * Chooses which item the printer should be placing, so that it can place
+ * all the reachable positions of one item before swapping to the next one.
+ * The pending positions are grouped by the item they require, and the item with the most
+ * placements is selected. The selection is kept for as long as there are still positions
+ * left for that item, so that the item in hand isn't swapped back and forth between ticks.
+ * The counts can include positions that can't be placed right now (for example because
+ * of the player's facing), so an item that a whole pass didn't manage to place
+ * is skipped until all the other items have been tried too.
+ */
+public class PrinterMaterialBatcher
+{
+    private static final ItemType NO_ITEM = new ItemType(ItemStack.EMPTY, false, true);
+
+    private final Object2IntOpenHashMap<ItemType> placementCounts = new Object2IntOpenHashMap<>();
+    private final Reference2ObjectOpenHashMap<BlockState, ItemType> itemTypesForStates = new Reference2ObjectOpenHashMap<>();
+    private final Set<ItemType> stalledItems = new HashSet<>();
+    private final BlockPos.Mutable posMutable = new BlockPos.Mutable();
+    @Nullable private ItemType currentItem;
+
+    /**
+     * Groups the given positions by their required item, and returns the item to print next,
+     * or null if none of the positions need anything placed that the player has.
+     */
+    @Nullable
+    public ItemStack selectItem(LongList positions, World worldSchematic, World worldClient, PlayerEntity player)
+    {
+        Object2IntOpenHashMap<ItemType> counts = this.placementCounts;
+        counts.clear();
+
+        final int size = positions.size();
+
+        for (int i = 0; i < size; ++i)
+        {
+            long packed = positions.getLong(i);
+            this.posMutable.set(BlockPos.unpackLongX(packed), BlockPos.unpackLongY(packed), BlockPos.unpackLongZ(packed));
+            BlockState stateSchematic = worldSchematic.getBlockState(this.posMutable);
+
+            if (stateSchematic.isAir())
+            {
+                continue;
+            }
+
+            BlockState stateClient = worldClient.getBlockState(this.posMutable);
+
+            // Only count the positions where something can actually be placed
+            if (stateClient == stateSchematic || (stateClient.isAir() == false && stateClient.getMaterial().isReplaceable() == false))
+            {
+                continue;
+            }
+
+            // The printer never places these halves directly, they come with the other half
+            if ((stateSchematic.getBlock() instanceof DoorBlock && stateSchematic.get(DoorBlock.HALF) == DoubleBlockHalf.UPPER) ||
+                (stateSchematic.getBlock() instanceof BedBlock && stateSchematic.get(BedBlock.PART) == BedPart.HEAD))
+            {
+                continue;
+            }
+
+            ItemType type = this.getItemType(stateSchematic);
+
+            if (type != NO_ITEM)
+            {
+                counts.addTo(type, 1);
+            }
+        }
+
+        if (counts.isEmpty())
+        {
+            this.currentItem = null;
+            this.stalledItems.clear();
+            return null;
+        }
+
+        this.stalledItems.retainAll(counts.keySet());
+
+        // All the remaining items have been tried, start over
+        if (this.stalledItems.size() >= counts.size())
+        {
+            this.stalledItems.clear();
+        }
+
+        Object2IntOpenHashMap<ItemType> available = player.abilities.creativeMode ? null : InventoryUtils.getInventoryItemCounts(player.inventory);
+
+        if (this.currentItem != null && counts.getInt(this.currentItem) > 0 &&
+            this.stalledItems.contains(this.currentItem) == false &&
+            (available == null || available.getInt(this.currentItem) > 0))
+        {
+            return this.currentItem.getStack();
+        }
+
+        ItemType best = null;
+        int bestCount = 0;
+
+        for (Object2IntMap.Entry<ItemType> entry : counts.object2IntEntrySet())
+        {
+            ItemType type = entry.getKey();
+            int count = entry.getIntValue();
+
+            if (count > bestCount && this.stalledItems.contains(type) == false &&
+                (available == null || available.getInt(type) > 0))
+            {
+                best = type;
+                bestCount = count;
+            }
+        }
+
+        this.currentItem = best;
+
+        return best != null ? best.getStack() : null;
+    }
+
+    /**
+     * Returns the number of placements per item from the last selection
+     */
+    public Object2IntMap<ItemType> getPlacementCounts()
+    {
+        return this.placementCounts;
+    }
+
+    @Nullable
+    public ItemStack getCurrentItem()
+    {
+        return this.currentItem != null ? this.currentItem.getStack() : null;
+    }
+
+    /**
+     * Called when a whole pass over the positions didn't place anything with the current item,
+     * so that the next selection moves on to another item, instead of getting stuck on this one.
+     */
+    public void onCurrentItemStalled()
+    {
+        if (this.currentItem != null)
+        {
+            this.stalledItems.add(this.currentItem);
+            this.currentItem = null;
+        }
+    }
+
+    public void clear()
+    {
+        this.currentItem = null;
+        this.stalledItems.clear();
+        this.placementCounts.clear();
+        this.itemTypesForStates.clear();
+    }
+
+    private ItemType getItemType(BlockState state)
+    {
+        ItemType type = this.itemTypesForStates.get(state);
+
+        if (type == null)
+        {
+            ItemStack stack = MaterialCache.getInstance().getItemForState(state);
+            type = stack.isEmpty() ? NO_ITEM : new ItemType(stack, false, true);
+            this.itemTypesForStates.put(state, type);
+        }
+
+        return type;
+    }
+}
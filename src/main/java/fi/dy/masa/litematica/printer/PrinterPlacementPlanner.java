@@ -0,0 +1,226 @@
+package fi.dy.masa.litematica.printer;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.EndRodBlock;
+import net.minecraft.block.LadderBlock;
+import net.minecraft.block.SignBlock;
+import net.minecraft.block.TorchBlock;
+import net.minecraft.block.TrapdoorBlock;
+import net.minecraft.block.TripwireHookBlock;
+import net.minecraft.block.WallMountedBlock;
+import net.minecraft.state.property.Properties;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+
+/**
+ * Orders the printer's candidate positions so that the blocks that other blocks
+ * attach to get placed first, and within each such tier the positions closest
+ * to the player come first. The blocks that need a supporting block are left out
+ * until the support exists in the client world, or is one of the candidates itself.
+ * The ordering is re-done on every call, but it is a bucketed counting sort over
+ * the squared distance, so it is linear in the number of candidates.
+ */
+public class PrinterPlacementPlanner
+{
+    public static final int TIER_FREE_STANDING = 0;
+    public static final int TIER_NEEDS_SUPPORT = 1;
+    private static final int TIER_COUNT = 2;
+    private static final int DISTANCE_BUCKETS = 64;
+
+    private final int[] bucketStarts = new int[TIER_COUNT * DISTANCE_BUCKETS + 1];
+    private final LongArrayList orderedPositions = new LongArrayList();
+    private final LongOpenHashSet candidateSet = new LongOpenHashSet();
+    private final BlockPos.Mutable posMutable = new BlockPos.Mutable();
+    private int[] keys = new int[256];
+
+    /**
+     * Returns the given positions ordered by the dependency tier first, and then by
+     * the distance to the given position. Positions further away than <b>maxDistance</b>,
+     * and positions whose supporting block is neither present nor queued, are dropped.
+     * The distance should be measured from the same point as the printer's own reach check.
+     * The returned list is owned by this planner and is reused on the next call.
+     */
+    public LongList orderPositions(LongList positions, World worldSchematic, World worldClient,
+            double playerX, double playerY, double playerZ, double maxDistance)
+    {
+        final int count = positions.size();
+        final double maxDistanceSq = maxDistance * maxDistance;
+        final double bucketScale = (DISTANCE_BUCKETS - 1) / maxDistanceSq;
+        final int[] starts = this.bucketStarts;
+        int[] keys = this.keys;
+
+        if (keys.length < count)
+        {
+            keys = new int[Math.max(count, keys.length * 2)];
+            this.keys = keys;
+        }
+
+        Arrays.fill(starts, 0);
+        this.candidateSet.clear();
+        this.candidateSet.addAll(positions);
+
+        for (int i = 0; i < count; ++i)
+        {
+            long packed = positions.getLong(i);
+            int x = BlockPos.unpackLongX(packed);
+            int y = BlockPos.unpackLongY(packed);
+            int z = BlockPos.unpackLongZ(packed);
+            double dx = playerX - x - 0.5;
+            double dy = playerY - y - 0.5;
+            double dz = playerZ - z - 0.5;
+            double distSq = dx * dx + dy * dy + dz * dz;
+
+            if (distSq > maxDistanceSq)
+            {
+                keys[i] = -1;
+                continue;
+            }
+
+            this.posMutable.set(x, y, z);
+            BlockState state = worldSchematic.getBlockState(this.posMutable);
+            int tier = TIER_FREE_STANDING;
+
+            if (requiresSupportingBlock(state.getBlock()))
+            {
+                if (this.hasSupport(state, worldSchematic, worldClient) == false)
+                {
+                    keys[i] = -1;
+                    continue;
+                }
+
+                tier = TIER_NEEDS_SUPPORT;
+            }
+
+            int key = tier * DISTANCE_BUCKETS + (int) (distSq * bucketScale);
+
+            keys[i] = key;
+            starts[key + 1]++;
+        }
+
+        for (int i = 1; i < starts.length; ++i)
+        {
+            starts[i] += starts[i - 1];
+        }
+
+        final int total = starts[starts.length - 1];
+        LongArrayList out = this.orderedPositions;
+        out.size(total);
+        long[] outArr = out.elements();
+
+        for (int i = 0; i < count; ++i)
+        {
+            int key = keys[i];
+
+            if (key >= 0)
+            {
+                outArr[starts[key]++] = positions.getLong(i);
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Checks if the block that the state at the current position attaches to
+     * already exists in the client world, or is going to be placed from the candidates.
+     * Uses and modifies the current position in posMutable.
+     */
+    private boolean hasSupport(BlockState state, World worldSchematic, World worldClient)
+    {
+        // Trapdoors don't need a support block, they are only ordered after their neighbors for the orientation
+        if (state.getBlock() instanceof TrapdoorBlock)
+        {
+            return true;
+        }
+
+        Direction side = getSupportDirection(state);
+        BlockPos.Mutable pos = this.posMutable;
+
+        if (side != null)
+        {
+            pos.setOffset(side);
+            return isSupportAt(pos, worldSchematic, worldClient);
+        }
+
+        // Unknown attachment side, any neighbor will do
+        final int x = pos.getX();
+        final int y = pos.getY();
+        final int z = pos.getZ();
+
+        for (Direction dir : Direction.values())
+        {
+            pos.set(x + dir.getOffsetX(), y + dir.getOffsetY(), z + dir.getOffsetZ());
+
+            if (isSupportAt(pos, worldSchematic, worldClient))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isSupportAt(BlockPos pos, World worldSchematic, World worldClient)
+    {
+        if (worldClient.getBlockState(pos).getMaterial().isReplaceable() == false)
+        {
+            return true;
+        }
+
+        return this.candidateSet.contains(pos.asLong()) && worldSchematic.getBlockState(pos).isAir() == false;
+    }
+
+    /**
+     * Returns the side of the block where its supporting block is, or null if it's not known
+     */
+    @Nullable
+    public static Direction getSupportDirection(BlockState state)
+    {
+        if (state.getBlock() instanceof WallMountedBlock)
+        {
+            switch (state.get(WallMountedBlock.FACE))
+            {
+                case FLOOR:     return Direction.DOWN;
+                case CEILING:   return Direction.UP;
+                default:        return state.get(WallMountedBlock.FACING).getOpposite();
+            }
+        }
+
+        if (state.contains(Properties.FACING))
+        {
+            return state.get(Properties.FACING).getOpposite();
+        }
+
+        if (state.contains(Properties.HORIZONTAL_FACING))
+        {
+            return state.get(Properties.HORIZONTAL_FACING).getOpposite();
+        }
+
+        // Standing torches and signs
+        if (state.getBlock() instanceof TorchBlock || state.getBlock() instanceof SignBlock)
+        {
+            return Direction.DOWN;
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns true if the block has to be placed by clicking on an adjacent
+     * supporting block to get the correct orientation or to be placeable at all.
+     */
+    public static boolean requiresSupportingBlock(Block block)
+    {
+        return block instanceof WallMountedBlock || block instanceof TorchBlock ||
+               block instanceof LadderBlock || block instanceof TrapdoorBlock ||
+               block instanceof TripwireHookBlock || block instanceof SignBlock ||
+               block instanceof EndRodBlock;
+    }
+}
@@ -0,0 +1,153 @@
+package fi.dy.masa.litematica.printer;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Remembers the positions that the printer has recently placed or clicked,
+ * so that they don't get interacted with again before the server has had time to respond.
+ * The placed and clicked positions are kept in separate tracks, each of which is a primitive
+ * long-keyed hash map of the insertion times, plus a ring of time buckets used for expiring the old entries.
+ */
+public class PrinterPositionCache
+{
+    public static final long TIMEOUT_PLACED = 2000000000L;
+    public static final long TIMEOUT_CLICKED = 1000000000L;
+
+    private final Track placed = new Track(TIMEOUT_PLACED);
+    private final Track clicked = new Track(TIMEOUT_CLICKED);
+
+    public void cachePosition(BlockPos pos, boolean useClicked, long currentTime)
+    {
+        if (useClicked)
+        {
+            this.clicked.add(pos.asLong(), currentTime);
+        }
+        else
+        {
+            this.placed.add(pos.asLong(), currentTime);
+        }
+    }
+
+    /**
+     * Returns true if the position has been clicked recently, or if <b>useClicked</b>
+     * is false, then if it has been either placed or clicked recently.
+     */
+    public boolean isPositionCached(BlockPos pos, boolean useClicked, long currentTime)
+    {
+        long key = pos.asLong();
+
+        if (this.clicked.contains(key, currentTime))
+        {
+            return true;
+        }
+
+        return useClicked == false && this.placed.contains(key, currentTime);
+    }
+
+    public int getSize()
+    {
+        return this.placed.times.size() + this.clicked.times.size();
+    }
+
+    public void clear()
+    {
+        this.placed.clear();
+        this.clicked.clear();
+    }
+
+    private static class Track
+    {
+        private static final int BUCKET_COUNT = 8;
+        private static final long NOT_FOUND = Long.MIN_VALUE;
+
+        private final Long2LongOpenHashMap times = new Long2LongOpenHashMap();
+        private final LongArrayList[] buckets = new LongArrayList[BUCKET_COUNT];
+        private final long timeout;
+        private final long bucketDuration;
+        private long currentBucketStart;
+        private int currentBucket;
+
+        private Track(long timeout)
+        {
+            this.timeout = timeout;
+            // Make sure that the whole ring spans more than the timeout,
+            // so that a bucket only gets reused once all of its entries have expired
+            this.bucketDuration = timeout / (BUCKET_COUNT - 1) + 1;
+            this.times.defaultReturnValue(NOT_FOUND);
+
+            for (int i = 0; i < BUCKET_COUNT; ++i)
+            {
+                this.buckets[i] = new LongArrayList();
+            }
+        }
+
+        private void add(long pos, long currentTime)
+        {
+            this.advance(currentTime);
+            this.times.put(pos, currentTime);
+            this.buckets[this.currentBucket].add(pos);
+        }
+
+        private boolean contains(long pos, long currentTime)
+        {
+            this.advance(currentTime);
+            long time = this.times.get(pos);
+            return time != NOT_FOUND && currentTime - time <= this.timeout;
+        }
+
+        private void advance(long currentTime)
+        {
+            long elapsed = currentTime - this.currentBucketStart;
+
+            if (elapsed < this.bucketDuration)
+            {
+                return;
+            }
+
+            if (elapsed >= this.bucketDuration * BUCKET_COUNT)
+            {
+                this.clear();
+                this.currentBucketStart = currentTime;
+                return;
+            }
+
+            while (currentTime - this.currentBucketStart >= this.bucketDuration)
+            {
+                this.currentBucket = (this.currentBucket + 1) % BUCKET_COUNT;
+                this.currentBucketStart += this.bucketDuration;
+                this.expireBucket(this.buckets[this.currentBucket], currentTime);
+            }
+        }
+
+        private void expireBucket(LongArrayList bucket, long currentTime)
+        {
+            final int size = bucket.size();
+
+            for (int i = 0; i < size; ++i)
+            {
+                long pos = bucket.getLong(i);
+                long time = this.times.get(pos);
+
+                // The position may have been re-added later, in which case it is also in a newer bucket
+                if (time != NOT_FOUND && currentTime - time > this.timeout)
+                {
+                    this.times.remove(pos);
+                }
+            }
+
+            bucket.clear();
+        }
+
+        private void clear()
+        {
+            this.times.clear();
+
+            for (LongArrayList bucket : this.buckets)
+            {
+                bucket.clear();
+            }
+        }
+    }
+}
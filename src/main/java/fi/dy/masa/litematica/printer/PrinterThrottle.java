@@ -0,0 +1,252 @@
+package fi.dy.masa.litematica.printer;
+
+import fi.dy.masa.litematica.config.Configs;
+import fi.dy.masa.litematica.data.DataManager;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Paces the printer's interactions with the server.
+ * The interactions are limited by a token bucket, which refills at the current rate per second,
+ * and additionally by a hard limit per game tick.
+ * The placements sent are remembered for a number of ticks, after which the client world
+ * block is compared against the placed block (not the full state, as for example connecting
+ * blocks may legitimately differ until their neighbors get placed). If the server has reverted
+ * the placement (or it gets reverted while waiting), then the rate is halved, and each confirmed
+ * placement increases it additively again, so that the rate settles at what the server actually accepts.
+ */
+public class PrinterThrottle
+{
+    private static final PrinterThrottle INSTANCE = new PrinterThrottle();
+    private static final long NANOS_PER_TICK = 50000000L;
+    private static final double MIN_RATE = 1.0;
+    private static final double DECREASE_FACTOR = 0.5;
+
+    private final Long2ObjectOpenHashMap<PendingPlacement> pendingPlacements = new Long2ObjectOpenHashMap<>();
+    private final BlockPos.Mutable posMutable = new BlockPos.Mutable();
+    private double currentRate = -1;
+    private double tokens;
+    private long lastRefillTime;
+    private long lastDecreaseTime;
+    private long currentTickStart;
+    private int interactionsThisTick;
+    private int confirmedCount;
+    private int revertedCount;
+
+    public static PrinterThrottle getInstance()
+    {
+        return INSTANCE;
+    }
+
+    private PrinterThrottle()
+    {
+        this.lastDecreaseTime = System.nanoTime();
+    }
+
+    /**
+     * Tries to take the permission for one interaction with the server.
+     * @return true if the interaction can be sent now
+     */
+    public boolean tryAcquire(long currentTime)
+    {
+        if (Configs.Generic.EASY_PLACE_THROTTLE.getBooleanValue() == false)
+        {
+            return true;
+        }
+
+        this.checkPendingPlacements(currentTime);
+        this.refill(currentTime);
+
+        long tickStart = DataManager.getClientTickStartTime();
+
+        if (tickStart != this.currentTickStart)
+        {
+            this.currentTickStart = tickStart;
+            this.interactionsThisTick = 0;
+        }
+
+        if (this.interactionsThisTick >= Configs.Generic.EASY_PLACE_THROTTLE_PER_TICK.getIntegerValue() || this.tokens < 1.0)
+        {
+            return false;
+        }
+
+        this.tokens -= 1.0;
+        ++this.interactionsThisTick;
+
+        return true;
+    }
+
+    /**
+     * Remembers a placement that was sent to the server, so that it
+     * can be checked later whether the server accepted it or not.
+     * This should be called after the client has done its own predicted placement.
+     */
+    public void onPlacementSent(BlockPos pos, BlockState expectedState, long currentTime)
+    {
+        if (Configs.Generic.EASY_PLACE_THROTTLE.getBooleanValue())
+        {
+            MinecraftClient mc = MinecraftClient.getInstance();
+            PendingPlacement pending = new PendingPlacement(expectedState.getBlock(), currentTime);
+            pending.seen = mc.world != null && mc.world.getBlockState(pos).getBlock() == pending.expectedBlock;
+            this.pendingPlacements.put(pos.asLong(), pending);
+        }
+    }
+
+    /**
+     * Called when a block changes in the client world. A pending placement that the
+     * client had already predicted, but which then changes to something else, has been reverted by the server.
+     */
+    public void onClientBlockChange(BlockPos pos, BlockState newState)
+    {
+        if (this.pendingPlacements.isEmpty())
+        {
+            return;
+        }
+
+        long key = pos.asLong();
+        PendingPlacement pending = this.pendingPlacements.get(key);
+
+        if (pending != null)
+        {
+            if (newState.getBlock() == pending.expectedBlock)
+            {
+                pending.seen = true;
+            }
+            else if (pending.seen)
+            {
+                this.pendingPlacements.remove(key);
+                this.onPlacementReverted(pending, System.nanoTime());
+            }
+        }
+    }
+
+    public double getCurrentRate()
+    {
+        return Math.max(this.currentRate, MIN_RATE);
+    }
+
+    public int getPendingCount()
+    {
+        return this.pendingPlacements.size();
+    }
+
+    public int getConfirmedCount()
+    {
+        return this.confirmedCount;
+    }
+
+    public int getRevertedCount()
+    {
+        return this.revertedCount;
+    }
+
+    public void clear()
+    {
+        this.pendingPlacements.clear();
+        this.currentRate = -1;
+        this.tokens = 0;
+        this.confirmedCount = 0;
+        this.revertedCount = 0;
+        this.lastDecreaseTime = System.nanoTime();
+    }
+
+    private void refill(long currentTime)
+    {
+        double maxRate = Configs.Generic.EASY_PLACE_THROTTLE_PER_SECOND.getIntegerValue();
+
+        if (this.currentRate < 0)
+        {
+            this.currentRate = maxRate;
+            this.tokens = 1.0;
+            this.lastRefillTime = currentTime;
+        }
+
+        this.currentRate = Math.min(this.currentRate, maxRate);
+
+        double elapsedSeconds = (currentTime - this.lastRefillTime) / 1000000000.0;
+        // Allow bursting at most one second's worth of interactions
+        this.tokens = Math.min(this.tokens + elapsedSeconds * this.currentRate, Math.max(this.currentRate, 1.0));
+        this.lastRefillTime = currentTime;
+    }
+
+    private void checkPendingPlacements(long currentTime)
+    {
+        MinecraftClient mc = MinecraftClient.getInstance();
+
+        if (this.pendingPlacements.isEmpty() || mc.world == null)
+        {
+            return;
+        }
+
+        final long timeout = Configs.Generic.EASY_PLACE_THROTTLE_VERIFY_TICKS.getIntegerValue() * NANOS_PER_TICK;
+        ObjectIterator<Long2ObjectMap.Entry<PendingPlacement>> iter = this.pendingPlacements.long2ObjectEntrySet().fastIterator();
+
+        while (iter.hasNext())
+        {
+            Long2ObjectMap.Entry<PendingPlacement> entry = iter.next();
+            PendingPlacement pending = entry.getValue();
+
+            if (currentTime - pending.sentTime < timeout)
+            {
+                continue;
+            }
+
+            long key = entry.getLongKey();
+            iter.remove();
+            this.posMutable.set(BlockPos.unpackLongX(key), BlockPos.unpackLongY(key), BlockPos.unpackLongZ(key));
+
+            if (mc.world.getBlockState(this.posMutable).getBlock() == pending.expectedBlock)
+            {
+                this.onPlacementConfirmed();
+            }
+            // Only the predicted placements that the server then reverted count as a sign of going too fast.
+            // If the client never placed the block in the first place (for example an invalid click target),
+            // then the rate has nothing to do with it.
+            else if (pending.seen)
+            {
+                this.onPlacementReverted(pending, currentTime);
+            }
+        }
+    }
+
+    private void onPlacementConfirmed()
+    {
+        ++this.confirmedCount;
+
+        // Additive increase, by roughly one interaction per second for each second's worth of confirmed placements
+        double maxRate = Configs.Generic.EASY_PLACE_THROTTLE_PER_SECOND.getIntegerValue();
+        this.currentRate = Math.min(this.currentRate + 1.0 / Math.max(this.currentRate, MIN_RATE), maxRate);
+    }
+
+    private void onPlacementReverted(PendingPlacement pending, long currentTime)
+    {
+        ++this.revertedCount;
+
+        // Only back off once for all the placements sent before the previous back off,
+        // as those were sent at the old rate
+        if (pending.sentTime > this.lastDecreaseTime)
+        {
+            this.currentRate = Math.max(this.currentRate * DECREASE_FACTOR, MIN_RATE);
+            this.tokens = Math.min(this.tokens, 0.0);
+            this.lastDecreaseTime = currentTime;
+        }
+    }
+
+    private static class PendingPlacement
+    {
+        private final Block expectedBlock;
+        private final long sentTime;
+        private boolean seen;
+
+        private PendingPlacement(Block expectedBlock, long sentTime)
+        {
+            this.expectedBlock = expectedBlock;
+            this.sentTime = sentTime;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package fi.dy.masa.litematica.printer;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import fi.dy.masa.litematica.data.DataManager;
+import fi.dy.masa.litematica.schematic.placement.SchematicPlacementManager.PlacementPart;
+import fi.dy.masa.litematica.util.WorldUtils;
+import fi.dy.masa.litematica.world.SchematicWorldHandler;
+import fi.dy.masa.litematica.world.WorldSchematic;
+import fi.dy.masa.malilib.util.IntBoundingBox;
+import fi.dy.masa.malilib.util.SubChunkPos;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Keeps track of the positions within the schematic placements that still
+ * need some work from the printer, ie. where the schematic world and the client world differ.
+ * The positions are stored as one 4096-bit mask per sub-chunk. Sub-chunks that have not
+ * been indexed yet (or have been invalidated) are scanned lazily when the printer
+ * first asks for positions within them, and after that they are kept up to date
+ * from the client world block changes.
+ */
+public class PrinterWorkIndex
+{
+    private static final int WORDS_PER_SUB_CHUNK = 4096 / 64;
+
+    private final Long2ObjectOpenHashMap<long[]> workPositions = new Long2ObjectOpenHashMap<>();
+    private final MinecraftClient mc = MinecraftClient.getInstance();
+
+    /**
+     * Invalidates all the sub-chunks of the given chunk, so that
+     * they will be re-scanned the next time they are needed.
+     */
+    public void invalidateChunk(int chunkX, int chunkZ)
+    {
+        for (int cy = 0; cy < 16; ++cy)
+        {
+            this.workPositions.remove(BlockPos.asLong(chunkX, cy, chunkZ));
+        }
+    }
+
+    public void clear()
+    {
+        this.workPositions.clear();
+    }
+
+    public int getIndexedSubChunkCount()
+    {
+        return this.workPositions.size();
+    }
+
+    /**
+     * Updates the work state of the given position, when the client world block changes.
+     * Positions in sub-chunks that have not been indexed yet are ignored.
+     */
+    public void onClientBlockChange(BlockPos pos, BlockState stateClient)
+    {
+        int y = pos.getY();
+
+        if (y < 0 || y > 255)
+        {
+            return;
+        }
+
+        int x = pos.getX();
+        int z = pos.getZ();
+        long[] bits = this.workPositions.get(BlockPos.asLong(x >> 4, y >> 4, z >> 4));
+
+        if (bits != null)
+        {
+            WorldSchematic worldSchematic = SchematicWorldHandler.getSchematicWorld();
+
+            if (worldSchematic == null)
+            {
+                return;
+            }
+
+            BlockState stateSchematic = worldSchematic.getBlockState(pos);
+            boolean needsWork = needsWork(stateSchematic, stateClient) && this.isWithinPlacements(pos);
+
+            setBit(bits, getBitIndex(x, y, z), needsWork);
+        }
+    }
+
+    /**
+     * Adds all the positions needing work within the given box into the provided list,
+     * as packed BlockPos longs. Sub-chunks that haven't been indexed yet are scanned first,
+     * if both the schematic world and the client world chunks are loaded.
+     */
+    public void getPositionsWithinBox(IntBoundingBox box, LongList listOut)
+    {
+        WorldSchematic worldSchematic = SchematicWorldHandler.getSchematicWorld();
+        ClientWorld worldClient = this.mc.world;
+
+        if (worldSchematic == null || worldClient == null)
+        {
+            return;
+        }
+
+        final int minY = Math.max(box.minY, 0);
+        final int maxY = Math.min(box.maxY, 255);
+        final int minCX = box.minX >> 4;
+        final int minCY = minY >> 4;
+        final int minCZ = box.minZ >> 4;
+        final int maxCX = box.maxX >> 4;
+        final int maxCY = maxY >> 4;
+        final int maxCZ = box.maxZ >> 4;
+
+        for (int cx = minCX; cx <= maxCX; ++cx)
+        {
+            for (int cz = minCZ; cz <= maxCZ; ++cz)
+            {
+                for (int cy = minCY; cy <= maxCY; ++cy)
+                {
+                    long[] bits = this.getOrIndexSubChunk(cx, cy, cz, worldSchematic, worldClient);
+
+                    if (bits != null)
+                    {
+                        collectPositions(bits, cx, cy, cz, box.minX, minY, box.minZ, box.maxX, maxY, box.maxZ, listOut);
+                    }
+                }
+            }
+        }
+    }
+
+    @Nullable
+    private long[] getOrIndexSubChunk(int cx, int cy, int cz, WorldSchematic worldSchematic, ClientWorld worldClient)
+    {
+        long key = BlockPos.asLong(cx, cy, cz);
+        long[] bits = this.workPositions.get(key);
+
+        if (bits == null &&
+            worldSchematic.getChunkProvider().isChunkLoaded(cx, cz) &&
+            WorldUtils.isClientChunkLoaded(worldClient, cx, cz))
+        {
+            List<PlacementPart> parts = DataManager.getSchematicPlacementManager().getAllPlacementsTouchingSubChunk(new SubChunkPos(cx, cy, cz));
+
+            if (parts.isEmpty())
+            {
+                return null;
+            }
+
+            bits = new long[WORDS_PER_SUB_CHUNK];
+            BlockPos.Mutable posMutable = new BlockPos.Mutable();
+
+            for (PlacementPart part : parts)
+            {
+                IntBoundingBox bb = part.getBox();
+
+                for (int y = bb.minY; y <= bb.maxY; ++y)
+                {
+                    for (int z = bb.minZ; z <= bb.maxZ; ++z)
+                    {
+                        for (int x = bb.minX; x <= bb.maxX; ++x)
+                        {
+                            posMutable.set(x, y, z);
+                            BlockState stateSchematic = worldSchematic.getBlockState(posMutable);
+                            BlockState stateClient = worldClient.getBlockState(posMutable);
+
+                            if (needsWork(stateSchematic, stateClient))
+                            {
+                                setBit(bits, getBitIndex(x, y, z), true);
+                            }
+                        }
+                    }
+                }
+            }
+
+            this.workPositions.put(key, bits);
+        }
+
+        return bits;
+    }
+
+    private boolean isWithinPlacements(BlockPos pos)
+    {
+        List<PlacementPart> parts = DataManager.getSchematicPlacementManager().getAllPlacementsTouchingSubChunk(new SubChunkPos(pos));
+
+        for (int i = 0; i < parts.size(); ++i)
+        {
+            if (parts.get(i).getBox().containsPos(pos))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void collectPositions(long[] bits, int cx, int cy, int cz,
+            int minX, int minY, int minZ, int maxX, int maxY, int maxZ, LongList listOut)
+    {
+        final int baseX = cx << 4;
+        final int baseY = cy << 4;
+        final int baseZ = cz << 4;
+
+        for (int word = 0; word < WORDS_PER_SUB_CHUNK; ++word)
+        {
+            long value = bits[word];
+
+            while (value != 0L)
+            {
+                int bit = Long.numberOfTrailingZeros(value);
+                value &= value - 1L;
+
+                int index = (word << 6) | bit;
+                int x = baseX + (index & 0xF);
+                int z = baseZ + ((index >> 4) & 0xF);
+                int y = baseY + (index >> 8);
+
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ)
+                {
+                    listOut.add(BlockPos.asLong(x, y, z));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if the printer could still do something at a position with these states,
+     * ie. place, click or break a block.
+     */
+    public static boolean needsWork(BlockState stateSchematic, BlockState stateClient)
+    {
+        return stateSchematic != stateClient && (stateSchematic.isAir() == false || stateClient.isAir() == false);
+    }
+
+    private static int getBitIndex(int x, int y, int z)
+    {
+        return ((y & 0xF) << 8) | ((z & 0xF) << 4) | (x & 0xF);
+    }
+
+    private static void setBit(long[] bits, int index, boolean value)
+    {
+        if (value)
+        {
+            bits[index >> 6] |= (1L << (index & 63));
+        }
+        else
+        {
+            bits[index >> 6] &= ~(1L << (index & 63));
+        }
+    }
+}
@@ -8,32 +8,42 @@ import java.util.function.Consumer;
 import net.minecraft.client.render.BufferBuilder;
 import net.minecraft.client.render.RenderLayer;
 
+/**
+ * The buffers are taken from the shared {@link BufferBuilderPool} when a layer
+ * is first used, and returned to the pool when the cache is cleared.
+ */
 public class BufferBuilderCache {
+    /** In ints, same as the RenderLayer expected buffer sizes */
+    private static final int OVERLAY_BUFFER_SIZE = 262144;
     private final Map<RenderLayer, BufferBuilder> blockBufferBuilders = new HashMap<RenderLayer, BufferBuilder>();
-    private BufferBuilder[] overlayBufferBuilders;
-
-    public BufferBuilderCache() {
-        for (RenderLayer layer : RenderLayer.getBlockLayers()) {
-            this.blockBufferBuilders.put(layer, new BufferBuilder(layer.getExpectedBufferSize()));
-        }
-        this.overlayBufferBuilders = new BufferBuilder[ChunkRendererSchematicVbo.OverlayRenderType.values().length];
-        for (int i = 0; i < this.overlayBufferBuilders.length; ++i) {
-            this.overlayBufferBuilders[i] = new BufferBuilder(262144);
-        }
-    }
+    private final BufferBuilder[] overlayBufferBuilders = new BufferBuilder[ChunkRendererSchematicVbo.OverlayRenderType.values().length];
 
     public BufferBuilder getBlockBufferByLayer(RenderLayer layer) {
-        return this.blockBufferBuilders.get((Object)layer);
+        BufferBuilder buffer = this.blockBufferBuilders.get((Object)layer);
+        if (buffer == null) {
+            buffer = BufferBuilderPool.getInstance().acquire(layer.getExpectedBufferSize());
+            this.blockBufferBuilders.put(layer, buffer);
+        }
+        return buffer;
     }
 
     public BufferBuilder getOverlayBuffer(ChunkRendererSchematicVbo.OverlayRenderType type) {
-        return this.overlayBufferBuilders[type.ordinal()];
+        BufferBuilder buffer = this.overlayBufferBuilders[type.ordinal()];
+        if (buffer == null) {
+            buffer = BufferBuilderPool.getInstance().acquire(OVERLAY_BUFFER_SIZE);
+            this.overlayBufferBuilders[type.ordinal()] = buffer;
+        }
+        return buffer;
     }
 
     public void clear() {
-        this.blockBufferBuilders.values().forEach(BufferBuilder::reset);
-        for (BufferBuilder buffer : this.overlayBufferBuilders) {
-            buffer.reset();
+        BufferBuilderPool pool = BufferBuilderPool.getInstance();
+        this.blockBufferBuilders.values().forEach(pool::release);
+        this.blockBufferBuilders.clear();
+        for (int i = 0; i < this.overlayBufferBuilders.length; ++i) {
+            if (this.overlayBufferBuilders[i] == null) continue;
+            pool.release(this.overlayBufferBuilders[i]);
+            this.overlayBufferBuilders[i] = null;
         }
     }
-}
\ No newline at end of file
+}
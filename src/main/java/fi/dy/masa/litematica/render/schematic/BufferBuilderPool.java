@@ -0,0 +1,194 @@
+package fi.dy.masa.litematica.render.schematic;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import fi.dy.masa.litematica.config.Configs;
+import fi.dy.masa.litematica.mixin.IMixinBufferBuilder;
+import net.minecraft.client.render.BufferBuilder;
+
+/**
+ * A shared pool of BufferBuilders for the schematic chunk rendering,
+ * so that the render builder caches only hold the buffers of the layers they actually use.
+ * The free builders are kept in size classes by the power-of-two capacity of their
+ * direct buffer, in bytes. The requested sizes are in ints, same as for the BufferBuilder constructor,
+ * and they are converted to bytes here. The total size of the free builders is capped by a configurable limit,
+ * and builders that have been unused for a while are dropped, to let the direct memory be freed.
+ */
+public class BufferBuilderPool
+{
+    private static final BufferBuilderPool INSTANCE = new BufferBuilderPool();
+    private static final int MIN_SIZE_CLASS = 15; // 32 kB
+    private static final int MAX_SIZE_CLASS = 30;
+    /** How many size classes larger buffers are still re-used for a request */
+    private static final int MAX_SIZE_CLASS_WASTE = 2;
+    private static final long IDLE_TRIM_NANOS = 10000000000L;
+
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<FreeBuilder>[] freeBuilders = new ArrayDeque[MAX_SIZE_CLASS + 1];
+    private final Map<BufferBuilder, Integer> usedBuilderSizes = new IdentityHashMap<>();
+    private long allocatedBytes;
+    private long freeBytes;
+    private long highWaterBytes;
+    private int allocationCount;
+    private int reuseCount;
+
+    public static BufferBuilderPool getInstance()
+    {
+        return INSTANCE;
+    }
+
+    private BufferBuilderPool()
+    {
+        for (int i = 0; i < this.freeBuilders.length; ++i)
+        {
+            this.freeBuilders[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Takes a free builder with at least the given capacity from the pool,
+     * or allocates a new one if there isn't one of a suitable size.
+     * @param minSize the minimum capacity in ints, as passed to the BufferBuilder constructor
+     */
+    public synchronized BufferBuilder acquire(int minSize)
+    {
+        int minBytes = (int) Math.min((long) minSize * 4L, 1L << MAX_SIZE_CLASS);
+        int sizeClass = getSizeClassCeil(minBytes);
+        int maxClass = Math.min(sizeClass + MAX_SIZE_CLASS_WASTE, MAX_SIZE_CLASS);
+
+        for (int i = sizeClass; i <= maxClass; ++i)
+        {
+            FreeBuilder free = this.freeBuilders[i].pollLast();
+
+            if (free != null)
+            {
+                this.freeBytes -= free.size;
+                this.usedBuilderSizes.put(free.builder, free.size);
+                ++this.reuseCount;
+                return free.builder;
+            }
+        }
+
+        // The BufferBuilder constructor takes the size in ints
+        BufferBuilder builder = new BufferBuilder((1 << sizeClass) / 4);
+        int size = getCapacity(builder);
+        this.usedBuilderSizes.put(builder, size);
+        this.allocatedBytes += size;
+        this.highWaterBytes = Math.max(this.highWaterBytes, this.allocatedBytes);
+        ++this.allocationCount;
+
+        return builder;
+    }
+
+    /**
+     * Returns a builder to the pool. The builder is dropped instead,
+     * if the free builders would exceed the pool's memory limit.
+     */
+    public synchronized void release(BufferBuilder builder)
+    {
+        Integer oldSize = this.usedBuilderSizes.remove(builder);
+
+        if (oldSize == null)
+        {
+            return;
+        }
+
+        // The buffer may have grown while it was used
+        int size = getCapacity(builder);
+        this.allocatedBytes += size - oldSize;
+        this.highWaterBytes = Math.max(this.highWaterBytes, this.allocatedBytes);
+
+        long limit = (long) Configs.Generic.RENDER_BUFFER_POOL_LIMIT.getIntegerValue() * 1024L * 1024L;
+
+        if (this.freeBytes + size > limit)
+        {
+            this.allocatedBytes -= size;
+            return;
+        }
+
+        builder.reset();
+        this.freeBuilders[getSizeClassFloor(size)].addLast(new FreeBuilder(builder, size, System.nanoTime()));
+        this.freeBytes += size;
+    }
+
+    /**
+     * Drops the free builders that haven't been used in a while
+     */
+    public synchronized void trim(long currentTime)
+    {
+        if (this.freeBytes == 0)
+        {
+            return;
+        }
+
+        for (ArrayDeque<FreeBuilder> list : this.freeBuilders)
+        {
+            Iterator<FreeBuilder> iter = list.iterator();
+
+            // The oldest ones are at the head
+            while (iter.hasNext())
+            {
+                FreeBuilder free = iter.next();
+
+                if (currentTime - free.releaseTime < IDLE_TRIM_NANOS)
+                {
+                    break;
+                }
+
+                iter.remove();
+                this.freeBytes -= free.size;
+                this.allocatedBytes -= free.size;
+            }
+        }
+    }
+
+    public synchronized void clear()
+    {
+        for (ArrayDeque<FreeBuilder> list : this.freeBuilders)
+        {
+            list.clear();
+        }
+
+        this.allocatedBytes -= this.freeBytes;
+        this.freeBytes = 0;
+    }
+
+    public synchronized String getDebugInfo()
+    {
+        return String.format("BB: %dM/%dM (max %dM), a: %d, r: %d", this.allocatedBytes >> 20, this.freeBytes >> 20,
+                this.highWaterBytes >> 20, this.allocationCount, this.reuseCount);
+    }
+
+    private static int getCapacity(BufferBuilder builder)
+    {
+        return ((IMixinBufferBuilder) builder).litematica_getBuffer().capacity();
+    }
+
+    private static int getSizeClassCeil(int bytes)
+    {
+        int sizeClass = 32 - Integer.numberOfLeadingZeros(Math.max(bytes, 1) - 1);
+        return Math.min(Math.max(sizeClass, MIN_SIZE_CLASS), MAX_SIZE_CLASS);
+    }
+
+    private static int getSizeClassFloor(int bytes)
+    {
+        int sizeClass = 31 - Integer.numberOfLeadingZeros(Math.max(bytes, 1));
+        return Math.min(Math.max(sizeClass, MIN_SIZE_CLASS), MAX_SIZE_CLASS);
+    }
+
+    private static class FreeBuilder
+    {
+        private final BufferBuilder builder;
+        private final int size;
+        private final long releaseTime;
+
+        private FreeBuilder(BufferBuilder builder, int size, long releaseTime)
+        {
+            this.builder = builder;
+            this.size = size;
+            this.releaseTime = releaseTime;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.client.render.BufferBuilder;
 import net.minecraft.client.render.RenderLayer;
@@ -44,6 +45,8 @@ public class ChunkRenderDataSchematic {
     private boolean overlayEmpty = true;
     private boolean empty = true;
     private long timeBuilt;
+    @Nullable
+    private ChunkVertexRanges vertexRanges;
 
     public boolean isEmpty() {
         return this.empty;
@@ -111,6 +114,15 @@ public class ChunkRenderDataSchematic {
         this.blockEntities.add(be);
     }
 
+    @Nullable
+    public ChunkVertexRanges getVertexRanges() {
+        return this.vertexRanges;
+    }
+
+    public void setVertexRanges(@Nullable ChunkVertexRanges ranges) {
+        this.vertexRanges = ranges;
+    }
+
     public long getTimeBuilt() {
         return this.timeBuilt;
     }
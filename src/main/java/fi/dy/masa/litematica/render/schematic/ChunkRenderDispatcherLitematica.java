@@ -1,6 +1,5 @@
 package fi.dy.masa.litematica.render.schematic;
 
-import com.google.common.collect.Lists;
 import com.google.common.collect.Queues;
 import com.google.common.primitives.Doubles;
 import com.google.common.util.concurrent.Futures;
@@ -8,6 +7,8 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableFutureTask;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import fi.dy.masa.litematica.Litematica;
+import fi.dy.masa.litematica.config.Configs;
+import fi.dy.masa.litematica.mixin.IMixinWorldRenderer;
 import fi.dy.masa.litematica.render.schematic.BufferBuilderCache;
 import fi.dy.masa.litematica.render.schematic.ChunkRenderDataSchematic;
 import fi.dy.masa.litematica.render.schematic.ChunkRenderTaskSchematic;
@@ -17,13 +18,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
+import javax.annotation.Nullable;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gl.VertexBuffer;
 import net.minecraft.client.render.BufferBuilder;
@@ -35,35 +37,116 @@ import org.apache.logging.log4j.Logger;
 public class ChunkRenderDispatcherLitematica {
     private static final Logger LOGGER = Litematica.logger;
     private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder().setNameFormat("Litematica Chunk Batcher %d").setDaemon(true).build();
-    private final List<Thread> listWorkerThreads = Lists.newArrayList();
-    private final List<ChunkRenderWorkerLitematica> listThreadedWorkers = new ArrayList<ChunkRenderWorkerLitematica>();
+    /** Tasks closer than this to the camera (squared distance to the sub-chunk center) go to the priority lane */
+    private static final double PRIORITY_LANE_DISTANCE_SQ = 24.0 * 24.0;
+    private static final long IDLE_WAIT_MS = 50L;
+    private static final long POOL_TRIM_INTERVAL_NANOS = 1000000000L;
+    private final List<Thread> listWorkerThreads = new CopyOnWriteArrayList<Thread>();
+    private final List<ChunkRenderWorkerLitematica> listThreadedWorkers = new CopyOnWriteArrayList<ChunkRenderWorkerLitematica>();
+    /** The near-camera tasks, and all the tasks when running single-threaded */
     private final PriorityBlockingQueue<ChunkRenderTaskSchematic> queueChunkUpdates = Queues.newPriorityBlockingQueue();
-    private final BlockingQueue<BufferBuilderCache> queueFreeRenderBuilders;
+    private final BlockingQueue<BufferBuilderCache> queueFreeRenderBuilders = Queues.newLinkedBlockingQueue();
     private final Queue<PendingUpload> queueChunkUploads = Queues.newPriorityQueue();
     private final ChunkRenderWorkerLitematica renderWorker;
-    private final int countRenderBuilders;
+    private final Object taskSignal = new Object();
+    private final int threadLimitMemory;
+    private int countRenderBuilders;
+    private int nextWorkerIndex;
+    private volatile long taskSignalCount;
+    private volatile boolean yieldToVanilla;
+    private long lastPoolTrimTime;
     private Vec3d cameraPos;
 
     public ChunkRenderDispatcherLitematica() {
-        int i;
-        int threadLimitMemory = Math.max(1, (int)((double)Runtime.getRuntime().maxMemory() * 0.3) / 10485760);
-        int threadLimitCPU = Math.max(1, MathHelper.clamp((int)Runtime.getRuntime().availableProcessors(), (int)1, (int)(threadLimitMemory / 5)));
-        this.countRenderBuilders = MathHelper.clamp((int)(threadLimitCPU * 10), (int)1, (int)threadLimitMemory);
+        this.threadLimitMemory = Math.max(1, (int)((double)Runtime.getRuntime().maxMemory() * 0.3) / 10485760);
         this.cameraPos = Vec3d.ZERO;
-        if (threadLimitCPU > 1) {
-            for (i = 0; i < threadLimitCPU; ++i) {
-                ChunkRenderWorkerLitematica worker = new ChunkRenderWorkerLitematica(this);
-                Thread thread = THREAD_FACTORY.newThread(worker);
-                thread.start();
-                this.listThreadedWorkers.add(worker);
-                this.listWorkerThreads.add(thread);
+        this.updateWorkerCount();
+        this.renderWorker = new ChunkRenderWorkerLitematica(this, new BufferBuilderCache());
+    }
+
+    private int getTargetWorkerCount() {
+        int count = Configs.Generic.RENDER_THREAD_COUNT.getIntegerValue();
+        if (count <= 0) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            // Render on the main thread if there is only one core
+            if (cores <= 1) {
+                return 0;
+            }
+            // Leave half of the cores for the client thread and the vanilla chunk builder
+            return Math.max(1, MathHelper.clamp(cores / 2, 1, this.threadLimitMemory / 5));
+        }
+        return count;
+    }
+
+    /**
+     * Starts or stops worker threads to match the configured thread count.
+     * The tasks queued for a stopped worker are handed to the remaining workers.
+     */
+    private void updateWorkerCount() {
+        int target = this.getTargetWorkerCount();
+        int current = this.listThreadedWorkers.size();
+        if (target == current) {
+            this.updateRenderBuilderCount(target);
+            return;
+        }
+        while (this.listThreadedWorkers.size() < target) {
+            ChunkRenderWorkerLitematica worker = new ChunkRenderWorkerLitematica(this);
+            Thread thread = THREAD_FACTORY.newThread(worker);
+            this.listThreadedWorkers.add(worker);
+            this.listWorkerThreads.add(thread);
+            thread.start();
+        }
+        ArrayList<ChunkRenderTaskSchematic> orphanedTasks = new ArrayList<ChunkRenderTaskSchematic>();
+        while (this.listThreadedWorkers.size() > target) {
+            int index = this.listThreadedWorkers.size() - 1;
+            ChunkRenderWorkerLitematica worker = this.listThreadedWorkers.remove(index);
+            Thread thread = this.listWorkerThreads.remove(index);
+            worker.notifyToStop();
+            thread.interrupt();
+            try {
+                thread.join();
+            }
+            catch (InterruptedException interruptedexception) {
+                LOGGER.warn("Interrupted whilst waiting for worker to die", (Throwable)interruptedexception);
+            }
+            // The worker has stopped, so its queue can be drained without racing with it
+            ChunkRenderTaskSchematic task;
+            while ((task = worker.getTaskQueue().poll()) != null) {
+                orphanedTasks.add(task);
             }
         }
-        this.queueFreeRenderBuilders = Queues.newArrayBlockingQueue((int)this.countRenderBuilders);
-        for (i = 0; i < this.countRenderBuilders; ++i) {
+        for (ChunkRenderTaskSchematic task : orphanedTasks) {
+            this.queueTask(task);
+        }
+        this.updateRenderBuilderCount(target);
+        synchronized (this.taskSignal) {
+            this.taskSignal.notifyAll();
+        }
+        LOGGER.debug("Changed the schematic render worker count from {} to {}", current, target);
+    }
+
+    /**
+     * Adds or removes buffer caches to match the worker count. The caches that are in use
+     * can't be removed right away, so those get removed on later calls once they are free again.
+     */
+    private void updateRenderBuilderCount(int workerCount) {
+        int targetBuilders = MathHelper.clamp(workerCount * 10, 1, this.threadLimitMemory);
+        while (this.countRenderBuilders < targetBuilders) {
             this.queueFreeRenderBuilders.add(new BufferBuilderCache());
+            ++this.countRenderBuilders;
         }
-        this.renderWorker = new ChunkRenderWorkerLitematica(this, new BufferBuilderCache());
+        BufferBuilderCache cache;
+        while (this.countRenderBuilders > targetBuilders && (cache = this.queueFreeRenderBuilders.poll()) != null) {
+            cache.clear();
+            --this.countRenderBuilders;
+        }
+    }
+
+    private void updateYieldToVanilla() {
+        int threshold = Configs.Generic.RENDER_THREAD_YIELD_QUEUE.getIntegerValue();
+        MinecraftClient mc = MinecraftClient.getInstance();
+        this.yieldToVanilla = threshold > 0 && mc.worldRenderer != null &&
+                ((IMixinWorldRenderer) mc.worldRenderer).litematica_getChunksToRebuild().size() > threshold;
     }
 
     public void setCameraPosition(Vec3d cameraPos) {
@@ -75,7 +158,72 @@ public class ChunkRenderDispatcherLitematica {
     }
 
     public String getDebugInfo() {
-        return this.listWorkerThreads.isEmpty() ? String.format("pC: %03d, single-threaded", this.queueChunkUpdates.size()) : String.format("pC: %03d, pU: %1d, aB: %1d", this.queueChunkUpdates.size(), this.queueChunkUploads.size(), this.queueFreeRenderBuilders.size());
+        String poolInfo = BufferBuilderPool.getInstance().getDebugInfo();
+        if (this.listWorkerThreads.isEmpty()) {
+            return String.format("pC: %03d, single-threaded, %s", this.queueChunkUpdates.size(), poolInfo);
+        }
+        int queued = this.queueChunkUpdates.size();
+        for (ChunkRenderWorkerLitematica worker : this.listThreadedWorkers) {
+            queued += worker.getTaskQueue().size();
+        }
+        return String.format("pC: %03d (n: %d), pU: %1d, aB: %1d, T: %d%s, %s", queued, this.queueChunkUpdates.size(), this.queueChunkUploads.size(), this.queueFreeRenderBuilders.size(), this.listThreadedWorkers.size(), this.yieldToVanilla ? " (yield)" : "", poolInfo);
+    }
+
+    /**
+     * Queues the task to the priority lane if it's close to the camera or there are no worker threads,
+     * and otherwise to the next worker's own queue in a round-robin fashion.
+     */
+    private boolean queueTask(ChunkRenderTaskSchematic task) {
+        boolean success;
+        if (task.getDistanceSq() <= PRIORITY_LANE_DISTANCE_SQ || this.listThreadedWorkers.isEmpty()) {
+            success = this.queueChunkUpdates.offer(task);
+        } else {
+            List<ChunkRenderWorkerLitematica> workers = this.listThreadedWorkers;
+            this.nextWorkerIndex = (this.nextWorkerIndex + 1) % workers.size();
+            success = workers.get(this.nextWorkerIndex).getTaskQueue().offer(task);
+        }
+        synchronized (this.taskSignal) {
+            ++this.taskSignalCount;
+            this.taskSignal.notify();
+        }
+        return success;
+    }
+
+    private void removeTask(ChunkRenderTaskSchematic task) {
+        if (this.queueChunkUpdates.remove(task)) {
+            return;
+        }
+        for (ChunkRenderWorkerLitematica worker : this.listThreadedWorkers) {
+            if (worker.getTaskQueue().remove(task)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes the next task for the given worker: first from the priority lane, then from the
+     * worker's own queue, and lastly by stealing the nearest task from the other workers' queues.
+     * All the queues are ordered by the distance to the camera.
+     */
+    @Nullable
+    private ChunkRenderTaskSchematic pollTask(ChunkRenderWorkerLitematica worker) {
+        ChunkRenderTaskSchematic task = this.queueChunkUpdates.poll();
+        if (task != null) {
+            return task;
+        }
+        // Only one worker continues with the far away chunks while the vanilla chunk builder is busy
+        if (this.yieldToVanilla && this.listThreadedWorkers.indexOf(worker) > 0) {
+            return null;
+        }
+        task = worker.getTaskQueue().poll();
+        if (task != null) {
+            return task;
+        }
+        for (ChunkRenderWorkerLitematica other : this.listThreadedWorkers) {
+            if (other == worker || (task = other.getTaskQueue().poll()) == null) continue;
+            return task;
+        }
+        return null;
     }
 
     /*
@@ -84,6 +232,13 @@ public class ChunkRenderDispatcherLitematica {
     public boolean runChunkUploads(long finishTimeNano) {
         boolean processedTask;
         boolean ranTasks = false;
+        this.updateWorkerCount();
+        this.updateYieldToVanilla();
+        long currentTime = System.nanoTime();
+        if (currentTime - this.lastPoolTrimTime >= POOL_TRIM_INTERVAL_NANOS) {
+            BufferBuilderPool.getInstance().trim(currentTime);
+            this.lastPoolTrimTime = currentTime;
+        }
         do {
             Object generator;
             processedTask = false;
@@ -120,10 +275,10 @@ public class ChunkRenderDispatcherLitematica {
 
                 @Override
                 public void run() {
-                    ChunkRenderDispatcherLitematica.this.queueChunkUpdates.remove(generator);
+                    ChunkRenderDispatcherLitematica.this.removeTask(generator);
                 }
             });
-            boolean flag = this.queueChunkUpdates.offer(generator);
+            boolean flag = this.queueTask(generator);
             if (!flag) {
                 generator.finish();
             }
@@ -171,6 +326,8 @@ public class ChunkRenderDispatcherLitematica {
     }
 
     public void freeRenderBuilder(BufferBuilderCache builderCache) {
+        // Don't keep the buffers while the cache is sitting unused in the queue
+        builderCache.clear();
         this.queueFreeRenderBuilders.add(builderCache);
     }
 
@@ -178,8 +335,26 @@ public class ChunkRenderDispatcherLitematica {
         return this.queueFreeRenderBuilders.take();
     }
 
-    public ChunkRenderTaskSchematic getNextChunkUpdate() throws InterruptedException {
-        return this.queueChunkUpdates.take();
+    /**
+     * Blocks until there is a task available for the given worker.
+     * @return the next task, or null if the worker has been stopped
+     */
+    @Nullable
+    public ChunkRenderTaskSchematic getNextChunkUpdate(ChunkRenderWorkerLitematica worker) throws InterruptedException {
+        while (worker.shouldRun()) {
+            long signalCount = this.taskSignalCount;
+            ChunkRenderTaskSchematic task = this.pollTask(worker);
+            if (task != null) {
+                return task;
+            }
+            synchronized (this.taskSignal) {
+                // Don't wait if new tasks were queued after checking the queues
+                if (this.taskSignalCount == signalCount) {
+                    this.taskSignal.wait(IDLE_WAIT_MS);
+                }
+            }
+        }
+        return null;
     }
 
     /*
@@ -199,10 +374,10 @@ public class ChunkRenderDispatcherLitematica {
 
                 @Override
                 public void run() {
-                    ChunkRenderDispatcherLitematica.this.queueChunkUpdates.remove(generator);
+                    ChunkRenderDispatcherLitematica.this.removeTask(generator);
                 }
             });
-            flag = this.queueChunkUpdates.offer(generator);
+            flag = this.queueTask(generator);
         }
         finally {
             renderChunk.getLockCompileTask().unlock();
@@ -259,14 +434,22 @@ public class ChunkRenderDispatcherLitematica {
     }
 
     public void clearChunkUpdates() {
-        while (!this.queueChunkUpdates.isEmpty()) {
-            ChunkRenderTaskSchematic generator = this.queueChunkUpdates.poll();
-            if (generator == null) continue;
+        ChunkRenderTaskSchematic generator;
+        while ((generator = this.queueChunkUpdates.poll()) != null) {
             generator.finish();
         }
+        for (ChunkRenderWorkerLitematica worker : this.listThreadedWorkers) {
+            while ((generator = worker.getTaskQueue().poll()) != null) {
+                generator.finish();
+            }
+        }
     }
 
     public boolean hasChunkUpdates() {
+        for (ChunkRenderWorkerLitematica worker : this.listThreadedWorkers) {
+            if (worker.getTaskQueue().isEmpty()) continue;
+            return false;
+        }
         return this.queueChunkUpdates.isEmpty() && this.queueChunkUploads.isEmpty();
     }
 
@@ -284,7 +467,9 @@ public class ChunkRenderDispatcherLitematica {
                 LOGGER.warn("Interrupted whilst waiting for worker to die", (Throwable)interruptedexception);
             }
         }
+        this.queueFreeRenderBuilders.forEach(BufferBuilderCache::clear);
         this.queueFreeRenderBuilders.clear();
+        BufferBuilderPool.getInstance().clear();
     }
 
     public boolean hasNoFreeRenderBuilders() {
@@ -13,6 +13,7 @@ import fi.dy.masa.litematica.render.schematic.ChunkRendererSchematicVbo;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.Nullable;
 import net.minecraft.client.MinecraftClient;
@@ -27,7 +28,8 @@ public class ChunkRenderWorkerLitematica implements Runnable
     private static final Logger LOGGER = Litematica.logger;
     private final ChunkRenderDispatcherLitematica chunkRenderDispatcher;
     private final BufferBuilderCache bufferCache;
-    private boolean shouldRun = true;
+    private final PriorityBlockingQueue<ChunkRenderTaskSchematic> taskQueue = new PriorityBlockingQueue<>();
+    private volatile boolean shouldRun = true;
 
     public ChunkRenderWorkerLitematica(ChunkRenderDispatcherLitematica chunkRenderDispatcherIn)
     {
@@ -47,7 +49,12 @@ public class ChunkRenderWorkerLitematica implements Runnable
         {
             try
             {
-                this.processTask(this.chunkRenderDispatcher.getNextChunkUpdate());
+                ChunkRenderTaskSchematic task = this.chunkRenderDispatcher.getNextChunkUpdate(this);
+
+                if (task != null)
+                {
+                    this.processTask(task);
+                }
             }
             catch (InterruptedException e)
             {
@@ -164,7 +171,9 @@ public class ChunkRenderWorkerLitematica implements Runnable
                     buffer = buffers.getBlockBufferByLayer(layer);
                     futuresList.add(this.chunkRenderDispatcher.uploadChunkBlocks(RenderLayer.getTranslucent(), buffer, renderChunk, chunkRenderData, task.getDistanceSq()));
                 }
-                if (!chunkRenderData.isOverlayTypeEmpty(ChunkRendererSchematicVbo.OverlayRenderType.QUAD)) {
+                // The overlay quads don't get sorted in the incremental update mode
+                if (!chunkRenderData.isOverlayTypeEmpty(ChunkRendererSchematicVbo.OverlayRenderType.QUAD) &&
+                    chunkRenderData.getOverlayBufferState(ChunkRendererSchematicVbo.OverlayRenderType.QUAD) != null) {
                     buffer = buffers.getOverlayBuffer(ChunkRendererSchematicVbo.OverlayRenderType.QUAD);
                     futuresList.add(this.chunkRenderDispatcher.uploadChunkOverlay(ChunkRendererSchematicVbo.OverlayRenderType.QUAD, buffer, renderChunk, chunkRenderData, task.getDistanceSq()));
                 }
@@ -238,11 +247,29 @@ public class ChunkRenderWorkerLitematica implements Runnable
     private void freeRenderBuilder(ChunkRenderTaskSchematic generator)
     {
         BufferBuilderCache builderCache = generator.getBufferCache();
-        builderCache.clear();
+
         if (this.bufferCache == null)
         {
             this.chunkRenderDispatcher.freeRenderBuilder(builderCache);
         }
+        else
+        {
+            builderCache.clear();
+        }
+    }
+
+    /**
+     * Returns this worker's own task queue, ordered by the distance to the camera.
+     * The other workers also steal the nearest tasks from it when they run out of their own tasks.
+     */
+    public PriorityBlockingQueue<ChunkRenderTaskSchematic> getTaskQueue()
+    {
+        return this.taskQueue;
+    }
+
+    public boolean shouldRun()
+    {
+        return this.shouldRun;
     }
 
     public void notifyToStop()
@@ -1,8 +1,10 @@
 package fi.dy.masa.litematica.render.schematic;
 
 import com.google.common.collect.Sets;
+import com.mojang.datafixers.util.Pair;
 import fi.dy.masa.litematica.config.Configs;
 import fi.dy.masa.litematica.data.DataManager;
+import fi.dy.masa.litematica.mixin.IMixinBufferBuilder;
 import fi.dy.masa.litematica.render.RenderUtils;
 import fi.dy.masa.litematica.render.schematic.BufferBuilderCache;
 import fi.dy.masa.litematica.render.schematic.ChunkCacheSchematic;
@@ -19,6 +21,7 @@ import fi.dy.masa.malilib.util.EntityUtils;
 import fi.dy.masa.malilib.util.IntBoundingBox;
 import fi.dy.masa.malilib.util.LayerRange;
 import fi.dy.masa.malilib.util.SubChunkPos;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
@@ -45,6 +48,7 @@ import net.minecraft.client.render.VertexFormats;
 import net.minecraft.client.render.block.entity.BlockEntityRenderDispatcher;
 import net.minecraft.client.render.block.entity.BlockEntityRenderer;
 import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.client.util.GlAllocationUtils;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.entity.Entity;
@@ -58,9 +62,13 @@ import net.minecraft.util.shape.VoxelShape;
 import net.minecraft.world.BlockRenderView;
 import net.minecraft.world.BlockView;
 import net.minecraft.world.chunk.WorldChunk;
+import org.lwjgl.opengl.GL15;
 
 public class ChunkRendererSchematicVbo {
     public static int schematicRenderChunksUpdated;
+    /** The number of overlay vertices reserved per position in the incremental mode, which fits all the sides or edges of a full block */
+    private static final int OVERLAY_VERTEX_RESERVE = 24;
+    private static ByteBuffer zeroBuffer = GlAllocationUtils.allocateByteBuffer(4096);
     protected volatile WorldSchematic world;
     protected final WorldRendererSchematic worldRenderer;
     protected final ReentrantLock chunkRenderLock;
@@ -72,6 +80,7 @@ public class ChunkRendererSchematicVbo {
     protected final VertexBuffer[] vertexBufferOverlay;
     protected final List<IntBoundingBox> boxes = new ArrayList<IntBoundingBox>();
     protected final EnumSet<OverlayRenderType> existingOverlays = EnumSet.noneOf(OverlayRenderType.class);
+    protected final int[] overlayStartVertices = new int[OverlayRenderType.values().length];
     private Box boundingBox;
     protected Color4f overlayColor;
     protected boolean hasOverlay = false;
@@ -199,6 +208,9 @@ public class ChunkRendererSchematicVbo {
      */
     public void rebuildChunk(ChunkRenderTaskSchematic task) {
         ChunkRenderDataSchematic data = new ChunkRenderDataSchematic();
+        if (Configs.Visuals.RENDER_INCREMENTAL_UPDATES.getBooleanValue()) {
+            data.setVertexRanges(new ChunkVertexRanges());
+        }
         task.getLock().lock();
         try {
             if (task.getStatus() != ChunkRenderTaskSchematic.Status.COMPILING) {
@@ -275,6 +287,7 @@ public class ChunkRendererSchematicVbo {
         boolean clientHasAir = stateClient.isAir();
         boolean schematicHasAir = stateSchematic.isAir();
         boolean missing = false;
+        ChunkVertexRanges ranges = data.getVertexRanges();
         if (clientHasAir && schematicHasAir) {
             return;
         }
@@ -284,6 +297,9 @@ public class ChunkRendererSchematicVbo {
             BufferBuilder bufferSchematic;
             if (blockSchematic.hasBlockEntity()) {
                 this.addBlockEntity(pos, data, tileEntities);
+                if (ranges != null) {
+                    ranges.setUnpatchable(pos.asLong());
+                }
             }
             boolean translucent = Configs.Visuals.RENDER_BLOCKS_AS_TRANSLUCENT.getBooleanValue();
             FluidState fluidState = stateSchematic.getFluidState();
@@ -297,6 +313,9 @@ public class ChunkRendererSchematicVbo {
                 if (this.worldRenderer.renderFluid(this.schematicWorldView, fluidState, pos, bufferSchematic)) {
                     usedLayers.add(layer);
                 }
+                if (ranges != null) {
+                    ranges.setUnpatchable(pos.asLong());
+                }
             }
             if (stateSchematic.getRenderType() != BlockRenderType.INVISIBLE) {
                 layer = translucent ? RenderLayer.getTranslucent() : RenderLayers.getBlockLayer((BlockState)stateSchematic);
@@ -305,9 +324,19 @@ public class ChunkRendererSchematicVbo {
                     data.setBlockLayerStarted(layer);
                     this.preRenderBlocks(bufferSchematic);
                 }
+                int startVertex = ((IMixinBufferBuilder) bufferSchematic).litematica_getVertexCount();
                 if (this.worldRenderer.renderBlock(this.schematicWorldView, stateSchematic, pos, matrices, bufferSchematic)) {
                     usedLayers.add(layer);
                 }
+                if (ranges != null) {
+                    // The translucent layer gets depth sorted, which moves the vertices around
+                    if (layer == RenderLayer.getTranslucent()) {
+                        ranges.setUnpatchable(pos.asLong());
+                    } else {
+                        int endVertex = ((IMixinBufferBuilder) bufferSchematic).litematica_getVertexCount();
+                        ranges.setBlockRange(pos.asLong(), RenderLayer.getBlockLayers().indexOf(layer), startVertex, endVertex - startVertex);
+                    }
+                }
                 if (clientHasAir) {
                     missing = true;
                 }
@@ -317,11 +346,39 @@ public class ChunkRendererSchematicVbo {
             OverlayType type = this.getOverlayType(stateSchematic, stateClient);
             this.overlayColor = this.getOverlayColor(type);
             if (this.overlayColor != null) {
-                this.renderOverlay(type, pos, stateSchematic, missing, data, buffers);
+                if (ranges != null) {
+                    this.renderOverlayWithRanges(type, pos, stateSchematic, missing, data, buffers, ranges);
+                } else {
+                    this.renderOverlay(type, pos, stateSchematic, missing, data, buffers);
+                }
             }
         }
     }
 
+    /**
+     * Renders the overlay for one position, recording its vertex ranges, and padding
+     * each range with degenerate vertices up to the reserved capacity, so that
+     * the overlay can later grow in place when the neighboring blocks change.
+     */
+    protected void renderOverlayWithRanges(OverlayType type, BlockPos pos, BlockState stateSchematic, boolean missing, ChunkRenderDataSchematic data, BufferBuilderCache buffers, ChunkVertexRanges ranges) {
+        OverlayRenderType[] renderTypes = OverlayRenderType.values();
+        for (OverlayRenderType renderType : renderTypes) {
+            this.overlayStartVertices[renderType.ordinal()] = data.isOverlayTypeStarted(renderType) ? ((IMixinBufferBuilder) buffers.getOverlayBuffer(renderType)).litematica_getVertexCount() : 0;
+        }
+        this.renderOverlay(type, pos, stateSchematic, missing, data, buffers);
+        for (OverlayRenderType renderType : renderTypes) {
+            if (!data.isOverlayTypeStarted(renderType)) continue;
+            BufferBuilder buffer = buffers.getOverlayBuffer(renderType);
+            int startVertex = this.overlayStartVertices[renderType.ordinal()];
+            int count = ((IMixinBufferBuilder) buffer).litematica_getVertexCount() - startVertex;
+            int capacity = Math.max(count, OVERLAY_VERTEX_RESERVE);
+            for (int i = count; i < capacity; ++i) {
+                buffer.vertex(0.0, 0.0, 0.0).color(0, 0, 0, 0).next();
+            }
+            ranges.setOverlayRange(renderType, pos.asLong(), startVertex, capacity);
+        }
+    }
+
     protected void renderOverlay(OverlayType type, BlockPos pos, BlockState stateSchematic, boolean missing, ChunkRenderDataSchematic data, BufferBuilderCache buffers) {
         BakedModel bakedModel;
         BlockPos.Mutable relPos = this.getChunkRelativePosition(pos);
@@ -519,13 +576,173 @@ public class ChunkRendererSchematicVbo {
     }
 
     private void postRenderOverlay(OverlayRenderType type, float x, float y, float z, BufferBuilder buffer, ChunkRenderDataSchematic chunkRenderData) {
-        if (type == OverlayRenderType.QUAD && !chunkRenderData.isOverlayTypeEmpty(type)) {
+        // The overlay quads can't be depth sorted if they need to stay at their recorded vertex ranges
+        if (type == OverlayRenderType.QUAD && !chunkRenderData.isOverlayTypeEmpty(type) && chunkRenderData.getVertexRanges() == null) {
             buffer.sortQuads(x, y, z);
             chunkRenderData.setOverlayBufferState(type, buffer.popState());
         }
         buffer.end();
     }
 
+    /**
+     * Tries to patch a changed client world block into the already uploaded vertex buffers,
+     * by removing the schematic block's geometry if it no longer needs to be rendered, and by
+     * re-generating the overlay of the position and its neighbors within this sub-chunk in place.
+     * This must only be called on the render thread.
+     * @return false if the change can't be patched, and the sub-chunk needs to be re-built instead
+     */
+    public boolean patchBlockChange(BlockPos posChanged, BufferBuilderCache buffers) {
+        this.chunkRenderLock.lock();
+        try {
+            if (this.needsUpdate) {
+                return true;
+            }
+            // A pending re-build will see the change, but one that is already running may not
+            if (this.compileTask != null && this.compileTask.getType() == ChunkRenderTaskSchematic.Type.REBUILD_CHUNK && this.compileTask.getStatus() != ChunkRenderTaskSchematic.Status.DONE) {
+                return this.compileTask.getStatus() == ChunkRenderTaskSchematic.Status.PENDING;
+            }
+        }
+        finally {
+            this.chunkRenderLock.unlock();
+        }
+        ChunkVertexRanges ranges = this.chunkRenderData.getVertexRanges();
+        if (ranges == null || this.schematicWorldView == null || this.clientWorldView == null) {
+            return false;
+        }
+        if (this.isPositionInSubChunk(posChanged) && !this.patchBlockGeometry(posChanged, ranges)) {
+            return false;
+        }
+        if (Configs.Visuals.ENABLE_SCHEMATIC_OVERLAY.getBooleanValue()) {
+            BlockPos.Mutable posMutable = new BlockPos.Mutable();
+            // The reduced edges of the outlines depend on all the 26 neighbors
+            for (int y = -1; y <= 1; ++y) {
+                for (int z = -1; z <= 1; ++z) {
+                    for (int x = -1; x <= 1; ++x) {
+                        posMutable.set(posChanged.getX() + x, posChanged.getY() + y, posChanged.getZ() + z);
+                        if (!this.isPositionInSubChunk(posMutable)) continue;
+                        if (!this.patchOverlay(posMutable, ranges, buffers)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean patchBlockGeometry(BlockPos pos, ChunkVertexRanges ranges) {
+        long key = pos.asLong();
+        BlockState stateSchematic = this.schematicWorldView.getBlockState(pos);
+        BlockState stateClient = this.clientWorldView.getBlockState(pos);
+        boolean needsGeometry = this.isPositionRendered(pos) && this.shouldRenderSchematicBlock(stateSchematic, stateClient);
+        if (needsGeometry == ranges.hasBlockGeometry(key)) {
+            return true;
+        }
+        // Added geometry doesn't fit anywhere, and the sorted or block entity positions can't be removed in place
+        long range = ranges.getBlockRange(key);
+        if (needsGeometry || range == -1L || ranges.isUnpatchable(key)) {
+            return false;
+        }
+        RenderLayer layer = RenderLayer.getBlockLayers().get(ChunkVertexRanges.getLayerIndex(range));
+        uploadVertexRange(this.getBlocksVertexBufferByLayer(layer), VertexFormats.POSITION_COLOR_TEXTURE_LIGHT_NORMAL, ChunkVertexRanges.getStartVertex(range), null, 0, ChunkVertexRanges.getVertexCount(range));
+        ranges.markBlockGeometryRemoved(key);
+        return true;
+    }
+
+    private boolean patchOverlay(BlockPos pos, ChunkVertexRanges ranges, BufferBuilderCache buffers) {
+        OverlayRenderType[] renderTypes = OverlayRenderType.values();
+        ByteBuffer[] vertexData = new ByteBuffer[renderTypes.length];
+        int[] vertexCounts = new int[renderTypes.length];
+        BlockState stateSchematic = this.schematicWorldView.getBlockState(pos);
+        BlockState stateClient = this.clientWorldView.getBlockState(pos);
+        OverlayType type = this.isPositionRendered(pos) ? this.getOverlayType(stateSchematic, stateClient) : OverlayType.NONE;
+        this.overlayColor = this.getOverlayColor(type);
+        if (this.overlayColor != null) {
+            ChunkRenderDataSchematic dataTmp = new ChunkRenderDataSchematic();
+            boolean missing = stateClient.isAir() && stateSchematic.getRenderType() != BlockRenderType.INVISIBLE;
+            this.renderOverlay(type, pos, stateSchematic, missing, dataTmp, buffers);
+            for (OverlayRenderType renderType : renderTypes) {
+                if (!dataTmp.isOverlayTypeStarted(renderType)) continue;
+                BufferBuilder buffer = buffers.getOverlayBuffer(renderType);
+                buffer.end();
+                Pair<BufferBuilder.DrawArrayParameters, ByteBuffer> pair = buffer.popData();
+                vertexCounts[renderType.ordinal()] = pair.getFirst().getCount();
+                vertexData[renderType.ordinal()] = pair.getSecond();
+            }
+        }
+        long key = pos.asLong();
+        for (OverlayRenderType renderType : renderTypes) {
+            int count = vertexCounts[renderType.ordinal()];
+            long range = ranges.getOverlayRange(renderType, key);
+            if (count > 0 && (range == -1L || count > ChunkVertexRanges.getVertexCount(range))) {
+                return false;
+            }
+        }
+        for (OverlayRenderType renderType : renderTypes) {
+            long range = ranges.getOverlayRange(renderType, key);
+            if (range == -1L) continue;
+            uploadVertexRange(this.getOverlayVertexBuffer(renderType), VertexFormats.POSITION_COLOR, ChunkVertexRanges.getStartVertex(range), vertexData[renderType.ordinal()], vertexCounts[renderType.ordinal()], ChunkVertexRanges.getVertexCount(range));
+        }
+        return true;
+    }
+
+    private boolean shouldRenderSchematicBlock(BlockState stateSchematic, BlockState stateClient) {
+        if (stateSchematic.isAir()) {
+            return false;
+        }
+        if (stateClient.isAir() || stateSchematic != stateClient && Configs.Visuals.RENDER_COLLIDING_SCHEMATIC_BLOCKS.getBooleanValue()) {
+            return !stateSchematic.getFluidState().isEmpty() || stateSchematic.getRenderType() != BlockRenderType.INVISIBLE;
+        }
+        return false;
+    }
+
+    private boolean isPositionInSubChunk(BlockPos pos) {
+        return (pos.getX() >> 4) == (this.position.getX() >> 4) && (pos.getY() >> 4) == (this.position.getY() >> 4) && (pos.getZ() >> 4) == (this.position.getZ() >> 4);
+    }
+
+    private boolean isPositionRendered(BlockPos pos) {
+        if (!DataManager.getRenderLayerRange().isPositionWithinRange(pos)) {
+            return false;
+        }
+        List<IntBoundingBox> list = this.boxes;
+        synchronized (list) {
+            for (IntBoundingBox box : this.boxes) {
+                if (!box.containsPos(pos)) continue;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Uploads the given vertices into the vertex buffer at the given vertex index,
+     * and fills the rest of the range up to the capacity with degenerate zero vertices.
+     */
+    private static void uploadVertexRange(VertexBuffer vertexBuffer, VertexFormat format, int startVertex, @Nullable ByteBuffer data, int vertexCount, int capacity) {
+        int vertexSize = format.getVertexSize();
+        long offset = (long)startVertex * vertexSize;
+        vertexBuffer.bind();
+        if (data != null && vertexCount > 0) {
+            GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, offset, data);
+            offset += (long)vertexCount * vertexSize;
+        }
+        int paddingBytes = (capacity - vertexCount) * vertexSize;
+        if (paddingBytes > 0) {
+            GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, offset, getZeroBuffer(paddingBytes));
+        }
+        VertexBuffer.unbind();
+    }
+
+    private static ByteBuffer getZeroBuffer(int size) {
+        if (zeroBuffer.capacity() < size) {
+            zeroBuffer = GlAllocationUtils.allocateByteBuffer(Math.max(size, zeroBuffer.capacity() * 2));
+        }
+        ByteBuffer buffer = zeroBuffer.duplicate();
+        buffer.position(0);
+        buffer.limit(size);
+        return buffer;
+    }
+
     public ChunkRenderTaskSchematic makeCompileTaskChunkSchematic(Supplier<Vec3d> cameraPosSupplier) {
         this.chunkRenderLock.lock();
         ChunkRenderTaskSchematic generator = null;
@@ -0,0 +1,108 @@
+package fi.dy.masa.litematica.render.schematic;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+/**
+ * Holds the vertex ranges of each block position within the vertex buffers
+ * of one sub-chunk, so that single block changes can be patched into the
+ * already uploaded buffers, instead of re-building the entire sub-chunk.
+ * The ranges are packed into a long, with the start vertex index in the upper 32 bits,
+ * and for the block layers the layer index in the next 8 bits, and the vertex count
+ * (or for the overlays the reserved vertex capacity) in the lowest 24 bits.
+ */
+public class ChunkVertexRanges
+{
+    private final Long2LongOpenHashMap[] overlayRanges;
+    private final Long2LongOpenHashMap blockRanges = new Long2LongOpenHashMap();
+    private final LongOpenHashSet unpatchablePositions = new LongOpenHashSet();
+    private final LongOpenHashSet removedBlockPositions = new LongOpenHashSet();
+
+    public ChunkVertexRanges()
+    {
+        this.overlayRanges = new Long2LongOpenHashMap[ChunkRendererSchematicVbo.OverlayRenderType.values().length];
+
+        for (int i = 0; i < this.overlayRanges.length; ++i)
+        {
+            this.overlayRanges[i] = new Long2LongOpenHashMap();
+            this.overlayRanges[i].defaultReturnValue(-1L);
+        }
+
+        this.blockRanges.defaultReturnValue(-1L);
+    }
+
+    public void setBlockRange(long pos, int layerIndex, int startVertex, int vertexCount)
+    {
+        this.blockRanges.put(pos, pack(startVertex, layerIndex, vertexCount));
+    }
+
+    /**
+     * Marks a position whose block geometry can't be patched in place,
+     * for example because it was rendered into a depth sorted buffer, or it has a block entity.
+     */
+    public void setUnpatchable(long pos)
+    {
+        this.unpatchablePositions.add(pos);
+    }
+
+    public void setOverlayRange(ChunkRendererSchematicVbo.OverlayRenderType type, long pos, int startVertex, int capacity)
+    {
+        this.overlayRanges[type.ordinal()].put(pos, pack(startVertex, 0, capacity));
+    }
+
+    /**
+     * @return the packed block range, or -1 if the position has no block geometry
+     */
+    public long getBlockRange(long pos)
+    {
+        return this.blockRanges.get(pos);
+    }
+
+    /**
+     * @return the packed overlay range, or -1 if the position has no overlay geometry of the given type
+     */
+    public long getOverlayRange(ChunkRendererSchematicVbo.OverlayRenderType type, long pos)
+    {
+        return this.overlayRanges[type.ordinal()].get(pos);
+    }
+
+    public boolean isUnpatchable(long pos)
+    {
+        return this.unpatchablePositions.contains(pos);
+    }
+
+    /**
+     * @return true if the block geometry for this position is currently in the buffers,
+     * meaning that it was rendered and it hasn't been removed since
+     */
+    public boolean hasBlockGeometry(long pos)
+    {
+        return this.unpatchablePositions.contains(pos) ||
+               (this.blockRanges.containsKey(pos) && this.removedBlockPositions.contains(pos) == false);
+    }
+
+    public void markBlockGeometryRemoved(long pos)
+    {
+        this.removedBlockPositions.add(pos);
+    }
+
+    public static int getStartVertex(long range)
+    {
+        return (int) (range >>> 32);
+    }
+
+    public static int getLayerIndex(long range)
+    {
+        return (int) ((range >>> 24) & 0xFF);
+    }
+
+    public static int getVertexCount(long range)
+    {
+        return (int) (range & 0xFFFFFF);
+    }
+
+    private static long pack(int startVertex, int layerIndex, int vertexCount)
+    {
+        return ((long) startVertex << 32) | ((long) (layerIndex & 0xFF) << 24) | (vertexCount & 0xFFFFFF);
+    }
+}
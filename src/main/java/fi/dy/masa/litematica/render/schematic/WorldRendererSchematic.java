@@ -9,11 +9,15 @@ import fi.dy.masa.litematica.render.schematic.ChunkRenderDispatcherSchematic;
 import fi.dy.masa.litematica.render.schematic.ChunkRendererSchematicVbo;
 import fi.dy.masa.litematica.render.schematic.IChunkRendererFactory;
 import fi.dy.masa.litematica.render.schematic.RenderChunkFactoryVbo;
+import fi.dy.masa.litematica.schematic.placement.SchematicPlacementManager;
 import fi.dy.masa.litematica.world.ChunkProviderSchematic;
 import fi.dy.masa.litematica.world.ChunkSchematic;
 import fi.dy.masa.litematica.world.WorldSchematic;
 import fi.dy.masa.malilib.util.LayerRange;
 import fi.dy.masa.malilib.util.SubChunkPos;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -58,6 +62,7 @@ import net.minecraft.util.crash.CrashReportSection;
 import net.minecraft.util.hit.HitResult;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Box;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.util.math.Vec3i;
@@ -74,9 +79,16 @@ public class WorldRendererSchematic
     private final BlockModelRendererSchematic blockModelRenderer;
     private final Set<BlockEntity> blockEntities = new HashSet<>();
     private final List<ChunkRendererSchematicVbo> renderInfos = new ArrayList<>(1024);
+    private final List<SubChunkPos> sortedSubChunksInRange = new ArrayList<>(1024);
+    private SubChunkPos lastSortSubChunk;
+    private int lastSortRenderDistance = -1;
+    private int lastSortTouchedVersion = -1;
     private final BufferBuilderStorage bufferBuilders;
     private final VertexFormat vertexFormat = VertexFormats.POSITION_COLOR_TEXTURE_LIGHT_NORMAL;
     private Set<ChunkRendererSchematicVbo> chunksToUpdate = new LinkedHashSet<>();
+    private final LongLinkedOpenHashSet pendingBlockChanges = new LongLinkedOpenHashSet();
+    private final Set<ChunkRendererSchematicVbo> patchedRenderers = new HashSet<>();
+    @Nullable private BufferBuilderCache patchBuffers;
     private WorldSchematic world;
     private ChunkRenderDispatcherSchematic chunkRendererDispatcher;
     private double lastCameraChunkUpdateX = Double.MIN_VALUE;
@@ -172,6 +184,12 @@ public class WorldRendererSchematic
                 this.chunkRendererDispatcher = null;
             }
 
+            if (this.patchBuffers != null)
+            {
+                this.patchBuffers.clear();
+                this.patchBuffers = null;
+            }
+
             if (this.renderDispatcher != null)
             {
                 this.renderDispatcher.stopWorkerThreads();
@@ -225,6 +243,76 @@ public class WorldRendererSchematic
         this.renderDispatcher.stopChunkUpdates();
     }
 
+    /**
+     * Returns the touched sub-chunks within the render distance, sorted by the distance to the view sub-chunk.
+     * The list is only re-built and re-sorted when the view sub-chunk, the render distance
+     * or the touched sub-chunks change.
+     */
+    private List<SubChunkPos> getSortedSubChunksInRange(SubChunkPos viewSubChunk, int renderDistance)
+    {
+        SchematicPlacementManager manager = DataManager.getSchematicPlacementManager();
+        int version = manager.getTouchedSubChunksVersion();
+
+        if (viewSubChunk.equals(this.lastSortSubChunk) &&
+            renderDistance == this.lastSortRenderDistance &&
+            version == this.lastSortTouchedVersion)
+        {
+            return this.sortedSubChunksInRange;
+        }
+
+        List<SubChunkPos> positions = this.sortedSubChunksInRange;
+        positions.clear();
+
+        final int centerChunkX = viewSubChunk.getX();
+        final int centerChunkZ = viewSubChunk.getZ();
+        final int diameter = renderDistance * 2 + 1;
+        Long2IntMap masks = manager.getTouchedSubChunkMasks();
+
+        // Visit either the columns within the render distance, or all the touched columns, whichever is fewer
+        if (masks.size() < diameter * diameter)
+        {
+            for (Long2IntMap.Entry entry : masks.long2IntEntrySet())
+            {
+                long key = entry.getLongKey();
+                int cx = ChunkPos.getPackedX(key);
+                int cz = ChunkPos.getPackedZ(key);
+
+                if (Math.abs(cx - centerChunkX) <= renderDistance && Math.abs(cz - centerChunkZ) <= renderDistance)
+                {
+                    addSubChunksFromMask(cx, cz, entry.getIntValue(), positions);
+                }
+            }
+        }
+        else
+        {
+            for (int cz = centerChunkZ - renderDistance; cz <= centerChunkZ + renderDistance; ++cz)
+            {
+                for (int cx = centerChunkX - renderDistance; cx <= centerChunkX + renderDistance; ++cx)
+                {
+                    addSubChunksFromMask(cx, cz, manager.getTouchedSubChunkMask(cx, cz), positions);
+                }
+            }
+        }
+
+        Collections.sort(positions, new SubChunkPos.DistanceComparator(viewSubChunk));
+
+        this.lastSortSubChunk = viewSubChunk;
+        this.lastSortRenderDistance = renderDistance;
+        this.lastSortTouchedVersion = version;
+
+        return positions;
+    }
+
+    private static void addSubChunksFromMask(int cx, int cz, int mask, List<SubChunkPos> positions)
+    {
+        while (mask != 0)
+        {
+            int cy = Integer.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            positions.add(new SubChunkPos(cx, cy, cz));
+        }
+    }
+
     public void setupTerrain(Camera camera, Frustum frustum, int frameCount, boolean playerSpectator) {
       
         this.world.getProfiler().push("setup_terrain");
@@ -306,10 +394,7 @@ public class WorldRendererSchematic
 
             Entity.setRenderDistanceMultiplier(MathHelper.clamp((double) renderDistance / 8.0D, 1.0D, 2.5D));
 
-            Set<SubChunkPos> set = DataManager.getSchematicPlacementManager().getAllTouchedSubChunks();
-            List<SubChunkPos> positions = new ArrayList<>(set.size());
-            positions.addAll(set);
-            Collections.sort(positions, new SubChunkPos.DistanceComparator(viewSubChunk));
+            List<SubChunkPos> positions = this.getSortedSubChunksInRange(viewSubChunk, renderDistance);
 
             //Queue<SubChunkPos> queuePositions = new PriorityQueue<>(new SubChunkPos.DistanceComparator(viewSubChunk));
             //queuePositions.addAll(set);
@@ -376,9 +461,71 @@ public class WorldRendererSchematic
         this.world.getProfiler().pop();
     }
 
+    /**
+     * Queues a client world block change to be patched into the already built
+     * sub-chunk render data on the next frame, instead of re-building the sub-chunk.
+     */
+    public void scheduleBlockChange(BlockPos pos)
+    {
+        this.pendingBlockChanges.add(pos.asLong());
+    }
+
+    private void applyPendingBlockChanges()
+    {
+        if (this.pendingBlockChanges.isEmpty() || this.chunkRendererDispatcher == null)
+        {
+            this.pendingBlockChanges.clear();
+            return;
+        }
+
+        if (this.patchBuffers == null)
+        {
+            this.patchBuffers = new BufferBuilderCache();
+        }
+
+        BlockPos.Mutable posMutable = new BlockPos.Mutable();
+        LongIterator iter = this.pendingBlockChanges.iterator();
+
+        while (iter.hasNext())
+        {
+            long posLong = iter.nextLong();
+            BlockPos pos = BlockPos.fromLong(posLong);
+            this.patchedRenderers.clear();
+
+            // The overlay of the neighbors may be in the adjacent sub-chunks
+            for (int y = -1; y <= 1; ++y)
+            {
+                for (int z = -1; z <= 1; ++z)
+                {
+                    for (int x = -1; x <= 1; ++x)
+                    {
+                        posMutable.set(pos.getX() + x, pos.getY() + y, pos.getZ() + z);
+                        ChunkRendererSchematicVbo renderer = this.chunkRendererDispatcher.getChunkRenderer(posMutable);
+
+                        if (renderer == null || this.patchedRenderers.add(renderer) == false ||
+                            (renderer.getOrigin().getX() >> 4) != (posMutable.getX() >> 4) ||
+                            (renderer.getOrigin().getY() >> 4) != (posMutable.getY() >> 4) ||
+                            (renderer.getOrigin().getZ() >> 4) != (posMutable.getZ() >> 4))
+                        {
+                            continue;
+                        }
+
+                        if (renderer.patchBlockChange(pos, this.patchBuffers) == false)
+                        {
+                            renderer.setNeedsUpdate(false);
+                        }
+                    }
+                }
+            }
+        }
+
+        this.pendingBlockChanges.clear();
+    }
+
     public void updateChunks(long finishTimeNano)
     {
         this.displayListEntitiesDirty |= this.renderDispatcher.runChunkUploads(finishTimeNano);
+        this.applyPendingBlockChanges();
 
         if (this.chunksToUpdate.isEmpty() == false)
         {
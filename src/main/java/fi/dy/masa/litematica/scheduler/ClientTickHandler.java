@@ -2,6 +2,7 @@ package fi.dy.masa.litematica.scheduler;
 
 import fi.dy.masa.litematica.data.DataManager;
 import fi.dy.masa.litematica.event.InputHandler;
+import fi.dy.masa.litematica.materials.MaterialListBase;
 import fi.dy.masa.litematica.util.WorldUtils;
 import fi.dy.masa.malilib.interfaces.IClientTickHandler;
 import net.minecraft.client.MinecraftClient;
@@ -17,6 +18,14 @@ public class ClientTickHandler implements IClientTickHandler
             WorldUtils.easyPlaceOnUseTick(mc);
 
             DataManager.getSchematicPlacementManager().processQueuedChunks();
+
+            MaterialListBase materialList = DataManager.getMaterialList();
+
+            if (materialList != null)
+            {
+                materialList.updateLiveCounts();
+            }
+
             TaskScheduler.getInstanceClient().runTasks();
         }
     }
@@ -36,7 +36,8 @@ public abstract class TaskCountBlocksBase extends TaskProcessChunkBase
         }
         else
         {
-            this.layerRange = DataManager.getRenderLayerRange();
+            // Copy the range, so that the counts stay consistent if the range is changed while counting
+            this.layerRange = LayerRange.createFromJson(DataManager.getRenderLayerRange().toJson(), SchematicWorldRefresher.INSTANCE);
         }
     }
 
@@ -48,36 +49,27 @@ public abstract class TaskCountBlocksBase extends TaskProcessChunkBase
     }
 
     @Override
-    protected boolean processChunk(ChunkPos pos)
-    {
-        this.countBlocksInChunk(pos);
-        return true;
-    }
-
-    protected void countBlocksInChunk(ChunkPos pos)
+    protected void processBox(ChunkPos pos, IntBoundingBox bb)
     {
         LayerRange range = this.layerRange;
         Direction.Axis axis = range.getAxis();
         BlockPos.Mutable posMutable = new BlockPos.Mutable();
 
-        for (IntBoundingBox bb : this.getBoxesInChunk(pos))
-        {
-            final int startX = axis == Direction.Axis.X ? Math.max(bb.minX, range.getLayerMin()) : bb.minX;
-            final int startY = axis == Direction.Axis.Y ? Math.max(bb.minY, range.getLayerMin()) : bb.minY;
-            final int startZ = axis == Direction.Axis.Z ? Math.max(bb.minZ, range.getLayerMin()) : bb.minZ;
-            final int endX = axis == Direction.Axis.X ? Math.min(bb.maxX, range.getLayerMax()) : bb.maxX;
-            final int endY = axis == Direction.Axis.Y ? Math.min(bb.maxY, range.getLayerMax()) : bb.maxY;
-            final int endZ = axis == Direction.Axis.Z ? Math.min(bb.maxZ, range.getLayerMax()) : bb.maxZ;
+        final int startX = axis == Direction.Axis.X ? Math.max(bb.minX, range.getLayerMin()) : bb.minX;
+        final int startY = axis == Direction.Axis.Y ? Math.max(bb.minY, range.getLayerMin()) : bb.minY;
+        final int startZ = axis == Direction.Axis.Z ? Math.max(bb.minZ, range.getLayerMin()) : bb.minZ;
+        final int endX = axis == Direction.Axis.X ? Math.min(bb.maxX, range.getLayerMax()) : bb.maxX;
+        final int endY = axis == Direction.Axis.Y ? Math.min(bb.maxY, range.getLayerMax()) : bb.maxY;
+        final int endZ = axis == Direction.Axis.Z ? Math.min(bb.maxZ, range.getLayerMax()) : bb.maxZ;
 
-            for (int y = startY; y <= endY; ++y)
+        for (int y = startY; y <= endY; ++y)
+        {
+            for (int z = startZ; z <= endZ; ++z)
             {
-                for (int z = startZ; z <= endZ; ++z)
+                for (int x = startX; x <= endX; ++x)
                 {
-                    for (int x = startX; x <= endX; ++x)
-                    {
-                        posMutable.set(x, y, z);
-                        this.countAtPosition(posMutable);
-                    }
+                    posMutable.set(x, y, z);
+                    this.countAtPosition(posMutable);
                 }
             }
         }
@@ -90,13 +82,18 @@ public abstract class TaskCountBlocksBase extends TaskProcessChunkBase
     {
         if (this.finished && this.mc.player != null)
         {
-            List<MaterialListEntry> list = MaterialListUtils.getMaterialList(
-                    this.countsTotal, this.countsMissing, this.countsMismatch, this.mc.player);
-            this.materialList.setMaterialListEntries(list);
+            this.onCountingFinished();
         }
 
         InfoHud.getInstance().removeInfoHudRenderer(this, false);
 
         this.notifyListener();
     }
+
+    protected void onCountingFinished()
+    {
+        List<MaterialListEntry> list = MaterialListUtils.getMaterialList(
+                this.countsTotal, this.countsMissing, this.countsMismatch, this.mc.player);
+        this.materialList.setMaterialListEntries(list);
+    }
 }
@@ -1,26 +1,37 @@
 package fi.dy.masa.litematica.scheduler.tasks;
 
 import java.util.Collection;
-import fi.dy.masa.litematica.materials.IMaterialList;
+import fi.dy.masa.litematica.materials.BlockStateCounts;
+import fi.dy.masa.litematica.materials.MaterialListPlacement;
 import fi.dy.masa.litematica.schematic.placement.SchematicPlacement;
 import fi.dy.masa.litematica.schematic.placement.SubRegionPlacement.RequiredEnabled;
 import fi.dy.masa.litematica.selection.Box;
 import fi.dy.masa.litematica.world.SchematicWorldHandler;
 import fi.dy.masa.litematica.world.WorldSchematic;
-import net.minecraft.block.BlockState;
+import fi.dy.masa.malilib.util.IntBoundingBox;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 
 public class TaskCountBlocksPlacement extends TaskCountBlocksBase
 {
     protected final SchematicPlacement schematicPlacement;
+    protected final MaterialListPlacement materialListPlacement;
     protected final WorldSchematic worldSchematic;
+    protected final LongOpenHashSet countedChunks = new LongOpenHashSet();
+    /** The counts of the chunks that have been partially counted */
+    protected final Long2ObjectOpenHashMap<BlockStateCounts> partialChunkCounts = new Long2ObjectOpenHashMap<>();
+    protected BlockStateCounts chunkCounts = new BlockStateCounts();
 
-    public TaskCountBlocksPlacement(SchematicPlacement schematicPlacement, IMaterialList materialList)
+    public TaskCountBlocksPlacement(SchematicPlacement schematicPlacement, MaterialListPlacement materialList)
     {
         super(materialList, "litematica.gui.label.task_name.material_list");
 
         this.worldSchematic = SchematicWorldHandler.getSchematicWorld();
         this.schematicPlacement = schematicPlacement;
+        this.materialListPlacement = materialList;
+        this.materialListPlacement.setCountedLayerRange(this.layerRange);
         Collection<Box> boxes = schematicPlacement.getSubRegionBoxes(RequiredEnabled.PLACEMENT_ENABLED).values();
         this.addBoxesPerChunks(boxes);
 
@@ -33,25 +44,32 @@ public class TaskCountBlocksPlacement extends TaskCountBlocksBase
         return super.canExecute() && this.worldSchematic != null;
     }
 
+    @Override
+    protected void processBox(ChunkPos pos, IntBoundingBox bb)
+    {
+        // Another chunk may have been processed in between the boxes of this chunk
+        this.chunkCounts = this.partialChunkCounts.computeIfAbsent(pos.toLong(), (k) -> new BlockStateCounts());
+        super.processBox(pos, bb);
+    }
+
+    @Override
+    protected void onChunkProcessed(ChunkPos pos)
+    {
+        // The counts are kept per chunk, so that the material list can keep them up to date afterwards
+        BlockStateCounts counts = this.partialChunkCounts.remove(pos.toLong());
+        this.materialListPlacement.setChunkCounts(pos.toLong(), counts != null ? counts : new BlockStateCounts());
+        this.countedChunks.add(pos.toLong());
+    }
+
+    @Override
     protected void countAtPosition(BlockPos pos)
     {
-        BlockState stateSchematic = this.worldSchematic.getBlockState(pos);
-
-        if (stateSchematic.isAir() == false)
-        {
-            BlockState stateClient = this.worldClient.getBlockState(pos);
-
-            this.countsTotal.addTo(stateSchematic, 1);
-
-            if (stateClient.isAir())
-            {
-                this.countsMissing.addTo(stateSchematic, 1);
-            }
-            else if (stateClient != stateSchematic)
-            {
-                this.countsMissing.addTo(stateSchematic, 1);
-                this.countsMismatch.addTo(stateSchematic, 1);
-            }
-        }
+        this.chunkCounts.countPosition(this.worldSchematic.getBlockState(pos), this.worldClient.getBlockState(pos), 1);
+    }
+
+    @Override
+    protected void onCountingFinished()
+    {
+        this.materialListPlacement.onCountingFinished(this.countedChunks);
     }
 }
@@ -25,6 +25,7 @@ public class TaskFillArea extends TaskProcessChunkBase
     protected final String blockString;
     protected final boolean removeEntities;
     protected int chunkCount;
+    protected boolean sentFeedbackGamerule;
 
     public TaskFillArea(List<Box> boxes, BlockState fillState, @Nullable BlockState replaceState, boolean removeEntities)
     {
@@ -65,28 +66,28 @@ public class TaskFillArea extends TaskProcessChunkBase
     }
 
     @Override
-    protected boolean processChunk(ChunkPos pos)
+    protected void processBox(ChunkPos pos, IntBoundingBox box)
     {
-        if (this.chunkCount == 0)
+        if (this.sentFeedbackGamerule == false)
         {
             this.mc.player.sendChatMessage("/gamerule sendCommandFeedback false");
+            this.sentFeedbackGamerule = true;
         }
 
-        for (IntBoundingBox box : this.getBoxesInChunk(pos))
+        if (this.isClientWorld)
         {
-            if (this.isClientWorld)
-            {
-                this.fillBoxCommands(box, this.removeEntities);
-            }
-            else
-            {
-                this.fillBoxDirect(box, this.removeEntities);
-            }
+            this.fillBoxCommands(box, this.removeEntities);
         }
+        else
+        {
+            this.fillBoxDirect(box, this.removeEntities);
+        }
+    }
 
+    @Override
+    protected void onChunkProcessed(ChunkPos pos)
+    {
         this.chunkCount++;
-
-        return true;
     }
 
     protected void fillBoxDirect(IntBoundingBox box, boolean removeEntities)
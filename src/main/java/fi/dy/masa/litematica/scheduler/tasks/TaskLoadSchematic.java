@@ -0,0 +1,124 @@
+package fi.dy.masa.litematica.scheduler.tasks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fi.dy.masa.litematica.Litematica;
+import fi.dy.masa.litematica.render.infohud.InfoHud;
+import fi.dy.masa.litematica.schematic.LitematicaSchematic;
+import fi.dy.masa.litematica.schematic.SchematicStreamReader;
+import fi.dy.masa.malilib.gui.GuiBase;
+import fi.dy.masa.malilib.util.StringUtils;
+
+/**
+ * Reads a schematic file on a background thread, so that loading
+ * large schematics doesn't freeze the game. The read progress is shown on the info HUD,
+ * and the loaded schematic is then handed to the callback on the client thread.
+ */
+public class TaskLoadSchematic extends TaskBase
+{
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Litematica Schematic Loader %d").setDaemon(true).build());
+
+    private final SchematicStreamReader reader;
+    private final Consumer<LitematicaSchematic> loadedCallback;
+    @Nullable private Future<LitematicaSchematic> future;
+
+    public TaskLoadSchematic(File file, Consumer<LitematicaSchematic> loadedCallback)
+    {
+        this.reader = new SchematicStreamReader(file);
+        this.loadedCallback = loadedCallback;
+        this.name = StringUtils.translate("litematica.gui.label.task_name.load_schematic");
+    }
+
+    @Override
+    public void init()
+    {
+        this.future = EXECUTOR.submit(this.reader::read);
+        this.updateInfoHudLines();
+
+        InfoHud.getInstance().addInfoHudRenderer(this, true);
+    }
+
+    @Override
+    public boolean canExecute()
+    {
+        // The file can be read also while not in a world
+        return true;
+    }
+
+    @Override
+    public boolean shouldRemove()
+    {
+        return false;
+    }
+
+    @Override
+    public boolean execute()
+    {
+        if (this.future == null)
+        {
+            return true;
+        }
+
+        if (this.future.isDone() == false)
+        {
+            this.updateInfoHudLines();
+            return false;
+        }
+
+        LitematicaSchematic schematic = null;
+
+        try
+        {
+            schematic = this.future.get();
+        }
+        catch (Exception e)
+        {
+            Litematica.logger.warn("Failed to load the schematic '{}'", this.reader.getFile().getAbsolutePath(), e);
+        }
+
+        if (schematic != null)
+        {
+            this.finished = true;
+            this.loadedCallback.accept(schematic);
+        }
+        else
+        {
+            this.reader.showErrorMessage();
+        }
+
+        return true;
+    }
+
+    protected void updateInfoHudLines()
+    {
+        List<String> hudLines = new ArrayList<>();
+
+        String pre = GuiBase.TXT_WHITE + GuiBase.TXT_BOLD;
+        hudLines.add(String.format("%s%s%s", pre, this.name, GuiBase.TXT_RST));
+        hudLines.add(StringUtils.translate("litematica.gui.label.load_schematic.progress",
+                this.reader.getFile().getName(), String.format("%.1f", this.reader.getProgress() * 100.0)));
+
+        this.infoHudLines = hudLines;
+    }
+
+    @Override
+    public void stop()
+    {
+        if (this.future != null && this.future.isDone() == false)
+        {
+            this.future.cancel(true);
+        }
+
+        InfoHud.getInstance().removeInfoHudRenderer(this, false);
+
+        super.stop();
+    }
+}
@@ -0,0 +1,193 @@
+package fi.dy.masa.litematica.scheduler.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import fi.dy.masa.litematica.config.Configs;
+import fi.dy.masa.litematica.data.DataManager;
+import fi.dy.masa.litematica.printer.PrinterThrottle;
+import fi.dy.masa.litematica.render.infohud.InfoHud;
+import fi.dy.masa.litematica.scheduler.ITask;
+import fi.dy.masa.litematica.scheduler.TaskScheduler;
+import fi.dy.masa.litematica.util.Printer;
+import fi.dy.masa.litematica.util.Printer.PrinterPass;
+import fi.dy.masa.litematica.world.SchematicWorldHandler;
+import fi.dy.masa.malilib.gui.GuiBase;
+import fi.dy.masa.malilib.util.StringUtils;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * Runs the printer continuously around the player, spreading the work over
+ * multiple game ticks using a per-tick time budget.
+ * The ordered candidate positions are kept between ticks, and the next tick
+ * continues from where the previous one ran out of time, until the player
+ * moves or all the candidates have been handled, at which point they get re-collected.
+ */
+public class TaskPrinter extends TaskBase
+{
+    private final LongArrayList positions = new LongArrayList();
+    private BlockPos lastPlayerPos = BlockPos.ORIGIN;
+    @Nullable private ItemStack batchItem;
+    private int nextIndex;
+    private int placedThisSweep;
+    private boolean sweepInterrupted;
+    private long interactionCount;
+    private long lastTickDuration;
+
+    public TaskPrinter()
+    {
+        this.name = StringUtils.translate("litematica.gui.label.task_name.printer");
+    }
+
+    /**
+     * Starts the printer task if it's not already running, otherwise stops it.
+     * @return true if the task is now running
+     */
+    public static boolean toggle()
+    {
+        TaskScheduler scheduler = TaskScheduler.getInstanceClient();
+
+        for (ITask task : scheduler.getAllTasks())
+        {
+            if (task instanceof TaskPrinter)
+            {
+                scheduler.removeTask(task);
+                return false;
+            }
+        }
+
+        scheduler.scheduleTask(new TaskPrinter(), 1);
+
+        return true;
+    }
+
+    @Override
+    public void init()
+    {
+        InfoHud.getInstance().addInfoHudRenderer(this, true);
+    }
+
+    @Override
+    public boolean canExecute()
+    {
+        return super.canExecute() &&
+               this.mc.player != null &&
+               this.mc.interactionManager != null &&
+               Configs.Generic.EASY_PLACE_MODE.getBooleanValue() &&
+               SchematicWorldHandler.getSchematicWorld() != null;
+    }
+
+    @Override
+    public boolean shouldRemove()
+    {
+        // Only pause while the Easy Place mode is disabled, but go away with the world
+        return this.mc.world == null;
+    }
+
+    @Override
+    public boolean execute()
+    {
+        World world = SchematicWorldHandler.getSchematicWorld();
+        BlockPos playerPos = new BlockPos(this.mc.player.getPos());
+
+        if (this.nextIndex >= this.positions.size() || playerPos.equals(this.lastPlayerPos) == false)
+        {
+            // A complete sweep didn't place anything with the batched item
+            if (this.nextIndex >= this.positions.size() && this.positions.isEmpty() == false &&
+                this.batchItem != null && this.placedThisSweep == 0 && this.sweepInterrupted == false)
+            {
+                Printer.onBatchItemStalled();
+            }
+
+            this.collectPositions(world, playerPos);
+        }
+
+        final long budget = (long) Configs.Generic.EASY_PLACE_PRINTER_TICK_BUDGET.getIntegerValue() * 1000000L;
+        final long tickStart = DataManager.getClientTickStartTime();
+        final long start = System.nanoTime();
+        PrinterPass pass = new PrinterPass(this.mc, world, Configs.Generic.EASY_PLACE_MODE_MAX_BLOCKS.getIntegerValue());
+        pass.setBatchItem(this.batchItem);
+
+        while (this.nextIndex < this.positions.size() && pass.isFinished() == false)
+        {
+            Printer.printPosition(this.mc, pass, this.positions.getLong(this.nextIndex++));
+
+            // Always handle at least one position per tick, so that the printer
+            // makes progress even if the rest of the tick used up the budget
+            if ((System.nanoTime() - tickStart) >= budget)
+            {
+                break;
+            }
+        }
+
+        if (pass.getInteractionCount() == 0)
+        {
+            Printer.onIdleTick(this.mc);
+        }
+
+        this.interactionCount += pass.getInteractionCount();
+        this.placedThisSweep += pass.getPlacedCount();
+        // Throttled or failed passes skip positions, so the sweep doesn't tell if the item can be placed
+        this.sweepInterrupted |= pass.isFinished();
+        this.lastTickDuration = System.nanoTime() - start;
+        this.updateInfoHudLines();
+
+        return false;
+    }
+
+    private void collectPositions(World world, BlockPos playerPos)
+    {
+        int rangeX = Configs.Generic.EASY_PLACE_MODE_RANGE_X.getIntegerValue();
+        int rangeY = Configs.Generic.EASY_PLACE_MODE_RANGE_Y.getIntegerValue();
+        int rangeZ = Configs.Generic.EASY_PLACE_MODE_RANGE_Z.getIntegerValue();
+        int x = playerPos.getX();
+        int y = playerPos.getY();
+        int z = playerPos.getZ();
+
+        // The returned list is shared with the synchronous printer, so copy it
+        this.positions.clear();
+        this.positions.addAll(Printer.getOrderedCandidates(this.mc, world, x - rangeX, y - rangeY, z - rangeZ, x + rangeX, y + rangeY, z + rangeZ));
+        this.nextIndex = 0;
+        this.placedThisSweep = 0;
+        this.sweepInterrupted = false;
+        this.lastPlayerPos = playerPos;
+        // One item is printed per sweep through the positions, the next sweep then selects the next item
+        this.batchItem = Printer.selectBatchItem(this.mc, world, this.positions);
+    }
+
+    protected void updateInfoHudLines()
+    {
+        List<String> hudLines = new ArrayList<>();
+
+        String pre = GuiBase.TXT_WHITE + GuiBase.TXT_BOLD;
+        hudLines.add(String.format("%s%s%s", pre, this.name, GuiBase.TXT_RST));
+        hudLines.add(StringUtils.translate("litematica.gui.label.printer.progress",
+                this.nextIndex, this.positions.size(), this.interactionCount, this.lastTickDuration / 1000L));
+
+        if (this.batchItem != null)
+        {
+            hudLines.add(StringUtils.translate("litematica.gui.label.printer.batch_item", this.batchItem.getName().getString()));
+        }
+
+        if (Configs.Generic.EASY_PLACE_THROTTLE.getBooleanValue())
+        {
+            PrinterThrottle throttle = PrinterThrottle.getInstance();
+            hudLines.add(StringUtils.translate("litematica.gui.label.printer.throttle",
+                    String.format("%.1f", throttle.getCurrentRate()), throttle.getPendingCount(),
+                    throttle.getConfirmedCount(), throttle.getRevertedCount()));
+        }
+
+        this.infoHudLines = hudLines;
+    }
+
+    @Override
+    public void stop()
+    {
+        InfoHud.getInstance().removeInfoHudRenderer(this, false);
+
+        super.stop();
+    }
+}
@@ -2,27 +2,43 @@ package fi.dy.masa.litematica.scheduler.tasks;
 
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import javax.annotation.Nullable;
 import com.google.common.collect.ArrayListMultimap;
+import fi.dy.masa.litematica.config.Configs;
 import fi.dy.masa.litematica.render.infohud.InfoHud;
 import fi.dy.masa.litematica.selection.Box;
 import fi.dy.masa.litematica.util.PositionUtils;
 import fi.dy.masa.malilib.util.IntBoundingBox;
 import fi.dy.masa.malilib.util.StringUtils;
 import fi.dy.masa.malilib.util.WorldUtils;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
 
+/**
+ * Processes the boxes within the required chunks, one box at a time, within a time budget per tick.
+ * A chunk's boxes can get split over several ticks, in which case the processing
+ * continues from the next unprocessed box of that chunk on the next tick.
+ * If a partially processed chunk can't be processed anymore (for example because it got unloaded),
+ * its progress is kept and the other chunks are processed in the meantime.
+ */
 public abstract class TaskProcessChunkBase extends TaskBase
 {
     protected final ArrayListMultimap<ChunkPos, IntBoundingBox> boxesInChunks = ArrayListMultimap.create();
     protected final Set<ChunkPos> requiredChunks = new HashSet<>();
+    /** The next box index of the partially processed chunks that had to be left unfinished */
+    protected final Object2IntOpenHashMap<ChunkPos> unfinishedChunks = new Object2IntOpenHashMap<>();
     protected final ClientWorld worldClient;
     protected final World world;
     protected final boolean isClientWorld;
+    @Nullable protected ChunkPos currentChunk;
+    protected int currentBoxIndex;
+    protected long processStartTime = -1;
+    protected int processedChunks;
+    protected long processedBlocks;
 
     protected TaskProcessChunkBase(String nameOnHud)
     {
@@ -39,24 +55,67 @@ public abstract class TaskProcessChunkBase extends TaskBase
     {
         if (this.worldClient != null)
         {
-            Iterator<ChunkPos> iter = this.requiredChunks.iterator();
-            int processed = 0;
+            final long startTime = System.nanoTime();
+            final long budget = (long) Configs.Generic.CHUNK_TASK_TICK_BUDGET.getIntegerValue() * 1000000L;
+            boolean processedSome = false;
 
-            while (iter.hasNext())
+            if (this.processStartTime < 0)
             {
-                ChunkPos pos = iter.next();
+                this.processStartTime = startTime;
+            }
+
+            // The partially processed chunk may have been unloaded since the previous tick,
+            // in that case continue it later and process the other chunks in the meantime
+            if (this.currentChunk != null && this.canProcessChunk(this.currentChunk) == false)
+            {
+                this.unfinishedChunks.put(this.currentChunk, this.currentBoxIndex);
+                this.currentChunk = null;
+            }
+
+            while (this.requiredChunks.isEmpty() == false)
+            {
+                if (this.currentChunk == null)
+                {
+                    this.currentChunk = this.getNextProcessableChunk();
+
+                    if (this.currentChunk == null)
+                    {
+                        break;
+                    }
+
+                    this.currentBoxIndex = this.unfinishedChunks.removeInt(this.currentChunk);
+                }
 
-                if (this.canProcessChunk(pos))
+                // Continue on the next tick, instead of waiting for the next task interval
+                if (System.nanoTime() - startTime >= budget)
                 {
-                    this.processChunk(pos);
-                    iter.remove();
-                    processed++;
+                    this.getTimer().setNextDelay(1);
+                    break;
+                }
+
+                ChunkPos pos = this.currentChunk;
+                List<IntBoundingBox> boxes = this.getBoxesInChunk(pos);
+
+                if (this.currentBoxIndex < boxes.size())
+                {
+                    IntBoundingBox box = boxes.get(this.currentBoxIndex++);
+                    this.processBox(pos, box);
+                    this.processedBlocks += (long) (box.maxX - box.minX + 1) * (long) (box.maxY - box.minY + 1) * (long) (box.maxZ - box.minZ + 1);
+                }
+
+                if (this.currentBoxIndex >= boxes.size())
+                {
+                    this.onChunkProcessed(pos);
+                    this.requiredChunks.remove(pos);
+                    this.currentChunk = null;
+                    this.processedChunks++;
+                    processedSome = true;
                 }
             }
 
-            if (processed > 0)
+            if (processedSome)
             {
-                this.updateInfoHudLinesMissingChunks(this.requiredChunks);
+                this.updateInfoHudLines();
             }
         }
 
@@ -65,6 +124,29 @@ public abstract class TaskProcessChunkBase extends TaskBase
         return this.finished;
     }
 
+    @Nullable
+    protected ChunkPos getNextProcessableChunk()
+    {
+        // Finish the partially processed chunks first
+        for (ChunkPos pos : this.unfinishedChunks.keySet())
+        {
+            if (this.canProcessChunk(pos))
+            {
+                return pos;
+            }
+        }
+
+        for (ChunkPos pos : this.requiredChunks)
+        {
+            if (this.canProcessChunk(pos))
+            {
+                return pos;
+            }
+        }
+
+        return null;
+    }
+
     @Override
     public void stop()
     {
@@ -94,12 +176,39 @@ public abstract class TaskProcessChunkBase extends TaskBase
 
     protected abstract boolean canProcessChunk(ChunkPos pos);
 
-    protected abstract boolean processChunk(ChunkPos pos);
+    /**
+     * Processes one of the boxes returned by {@link #getBoxesInChunk(ChunkPos)} for the given chunk.
+     * The boxes of one chunk are always processed in order, but possibly over several ticks,
+     * and the boxes of other chunks may get processed in between.
+     */
+    protected abstract void processBox(ChunkPos pos, IntBoundingBox box);
+
+    /**
+     * Called after all the boxes of the chunk have been processed
+     */
+    protected void onChunkProcessed(ChunkPos pos)
+    {
+    }
+
+    protected void updateInfoHudLines()
+    {
+        this.updateInfoHudLinesMissingChunks(this.requiredChunks);
+
+        double seconds = (double) (System.nanoTime() - this.processStartTime) / 1.0E9;
+
+        if (this.processedChunks > 0 && seconds > 0 && this.infoHudLines.isEmpty() == false)
+        {
+            String chunksPerSecond = String.format("%.1f", (double) this.processedChunks / seconds);
+            String blocksPerSecond = String.format("%.0f", (double) this.processedBlocks / seconds);
+            this.infoHudLines.add(1, StringUtils.translate("litematica.gui.label.task_throughput", chunksPerSecond, blocksPerSecond));
+        }
+    }
 
     protected void addBoxesPerChunks(Collection<Box> allBoxes)
     {
         this.boxesInChunks.clear();
         this.requiredChunks.clear();
+        this.unfinishedChunks.clear();
 
         this.requiredChunks.addAll(PositionUtils.getTouchedChunksForBoxes(allBoxes));
 
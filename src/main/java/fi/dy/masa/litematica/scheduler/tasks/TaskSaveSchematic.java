@@ -3,12 +3,22 @@ package fi.dy.masa.litematica.scheduler.tasks;
 import java.io.File;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.annotation.Nullable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fi.dy.masa.litematica.Litematica;
 import fi.dy.masa.litematica.data.SchematicHolder;
 import fi.dy.masa.litematica.render.infohud.InfoHud;
+import fi.dy.masa.litematica.render.infohud.RenderPhase;
 import fi.dy.masa.litematica.schematic.LitematicaSchematic;
 import fi.dy.masa.litematica.selection.AreaSelection;
 import fi.dy.masa.litematica.selection.Box;
@@ -16,19 +26,27 @@ import fi.dy.masa.litematica.util.PositionUtils;
 import fi.dy.masa.malilib.gui.Message.MessageType;
 import fi.dy.masa.malilib.util.InfoUtils;
 import fi.dy.masa.malilib.util.IntBoundingBox;
+import fi.dy.masa.malilib.util.StringUtils;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 
 public class TaskSaveSchematic extends TaskProcessChunkBase
 {
+    /** A single thread, so that the writes to the same file can't overlap */
+    private static final ExecutorService WRITE_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("Litematica Schematic Writer %d").setDaemon(true).build());
+
     private final LitematicaSchematic schematic;
     private final BlockPos origin;
     private final ImmutableMap<String, Box> subRegions;
     private final Set<UUID> existingEntities = new HashSet<>();
+    /** The sub-region names of the boxes in the chunks, so that each box can be processed separately */
+    private final IdentityHashMap<IntBoundingBox, String> boxRegionNames = new IdentityHashMap<>();
     @Nullable private final File dir;
     @Nullable private final String fileName;
     private final boolean takeEntities;
     private final boolean overrideFile;
+    private volatile long bytesWritten;
+    private boolean writingFile;
 
     public TaskSaveSchematic(LitematicaSchematic schematic, AreaSelection area, boolean takeEntities)
     {
@@ -48,6 +66,19 @@ public class TaskSaveSchematic extends TaskProcessChunkBase
         this.overrideFile = overrideFile;
 
         this.addBoxesPerChunks(area.getAllSubRegionBoxes());
+
+        for (ChunkPos pos : this.requiredChunks)
+        {
+            ImmutableMap<String, IntBoundingBox> volumes = PositionUtils.getBoxesWithinChunk(pos.x, pos.z, this.subRegions);
+
+            for (Map.Entry<String, IntBoundingBox> entry : volumes.entrySet())
+            {
+                this.boxRegionNames.put(entry.getValue(), entry.getKey());
+            }
+
+            this.boxesInChunks.replaceValues(pos, volumes.values());
+        }
+
         this.updateInfoHudLinesMissingChunks(this.requiredChunks);
     }
 
@@ -58,17 +89,15 @@ public class TaskSaveSchematic extends TaskProcessChunkBase
     }
 
     @Override
-    protected boolean processChunk(ChunkPos pos)
+    protected void processBox(ChunkPos pos, IntBoundingBox box)
     {
-        ImmutableMap<String, IntBoundingBox> volumes = PositionUtils.getBoxesWithinChunk(pos.x, pos.z, this.subRegions);
+        ImmutableMap<String, IntBoundingBox> volumes = ImmutableMap.of(this.boxRegionNames.get(box), box);
         this.schematic.takeBlocksFromWorldWithinChunk(this.world, pos.x, pos.z, volumes, this.subRegions);
 
         if (this.takeEntities)
         {
             this.schematic.takeEntitiesFromWorldWithinChunk(this.world, pos.x, pos.z, volumes, this.subRegions, this.existingEntities, this.origin);
         }
-
-        return true;
     }
 
     @Override
@@ -83,17 +112,16 @@ public class TaskSaveSchematic extends TaskProcessChunkBase
 
             if (this.dir != null)
             {
-                if (this.schematic.writeToFile(this.dir, this.fileName, this.overrideFile))
-                {
-                    if (this.printCompletionMessage)
-                    {
-                        InfoUtils.showGuiOrInGameMessage(MessageType.SUCCESS, "litematica.message.schematic_saved_as", this.fileName);
-                    }
-                }
-                else
+                File file = LitematicaSchematic.getFileForWriting(this.dir, this.fileName, this.overrideFile);
+
+                if (file != null)
                 {
-                    InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, "litematica.message.error.schematic_save_failed", this.fileName);
+                    // The HUD renderer is removed and the listener notified once the file has been written
+                    this.startWritingFile(file);
+                    return;
                 }
+
+                InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, "litematica.message.error.schematic_save_failed", this.fileName);
             }
             // In-memory only
             else
@@ -116,4 +144,60 @@ public class TaskSaveSchematic extends TaskProcessChunkBase
 
         this.notifyListener();
     }
+
+    /**
+     * Serializes, compresses and writes the schematic on the writer thread,
+     * so that large schematics don't stall the game thread
+     */
+    private void startWritingFile(File file)
+    {
+        this.writingFile = true;
+
+        CompletableFuture.supplyAsync(() -> {
+            try
+            {
+                this.schematic.writeToFileAtomic(file, (count) -> this.bytesWritten = count);
+                return true;
+            }
+            catch (Exception e)
+            {
+                Litematica.logger.warn("Failed to write the schematic to file '{}'", file.getAbsolutePath(), e);
+                return false;
+            }
+        }, WRITE_EXECUTOR).thenAccept((success) -> this.mc.execute(() -> this.onFileWritten(file, success)));
+    }
+
+    private void onFileWritten(File file, boolean success)
+    {
+        this.writingFile = false;
+
+        if (success)
+        {
+            if (this.printCompletionMessage)
+            {
+                InfoUtils.showGuiOrInGameMessage(MessageType.SUCCESS, "litematica.message.schematic_saved_as", this.fileName);
+            }
+        }
+        else
+        {
+            InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, "litematica.error.schematic_write_to_file_failed.exception", file.getAbsolutePath());
+            this.finished = false;
+        }
+
+        InfoHud.getInstance().removeInfoHudRenderer(this, false);
+
+        this.notifyListener();
+    }
+
+    @Override
+    public List<String> getText(RenderPhase phase)
+    {
+        if (this.writingFile)
+        {
+            String size = String.format("%.1f", (double) this.bytesWritten / (1024.0 * 1024.0));
+            return ImmutableList.of(StringUtils.translate("litematica.gui.label.save_schematic.writing", this.name, size));
+        }
+
+        return super.getText(phase);
+    }
 }
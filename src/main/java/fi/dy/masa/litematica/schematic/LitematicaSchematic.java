@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import fi.dy.masa.litematica.Litematica;
 import fi.dy.masa.litematica.config.Configs;
+import fi.dy.masa.litematica.mixin.IMixinPalettedContainer;
 import fi.dy.masa.litematica.schematic.SchematicMetadata;
 import fi.dy.masa.litematica.schematic.SchematicaSchematic;
 import fi.dy.masa.litematica.schematic.container.ILitematicaBlockStatePalette;
@@ -26,9 +27,12 @@ import fi.dy.masa.malilib.util.InfoUtils;
 import fi.dy.masa.malilib.util.IntBoundingBox;
 import fi.dy.masa.malilib.util.NBTUtils;
 import fi.dy.masa.malilib.util.StringUtils;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
@@ -40,6 +44,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.function.LongConsumer;
 import java.util.function.Predicate;
 import javax.annotation.Nullable;
 import net.minecraft.block.Block;
@@ -60,6 +68,7 @@ import net.minecraft.server.world.ServerTickScheduler;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.BlockMirror;
 import net.minecraft.util.BlockRotation;
+import net.minecraft.util.PackedIntegerArray;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
@@ -72,6 +81,8 @@ import net.minecraft.util.registry.Registry;
 import net.minecraft.world.ScheduledTick;
 import net.minecraft.world.TickPriority;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.Palette;
 import org.apache.logging.log4j.Logger;
 
 public class LitematicaSchematic
@@ -88,12 +99,13 @@ public class LitematicaSchematic
     private final Map<String, List<EntityInfo>> entities = new HashMap<String, List<EntityInfo>>();
     private final Map<String, BlockPos> subRegionPositions = new HashMap<String, BlockPos>();
     private final Map<String, BlockPos> subRegionSizes = new HashMap<String, BlockPos>();
+    private final Map<String, BlockStateCounts> blockStateCounts = new HashMap<String, BlockStateCounts>();
     private final SchematicMetadata metadata = new SchematicMetadata();
     private int totalBlocks;
     @Nullable
     private final File schematicFile;
 
-    private LitematicaSchematic(@Nullable File file)
+    LitematicaSchematic(@Nullable File file)
     {
         this.schematicFile = file;
     }
@@ -495,6 +507,27 @@ public class LitematicaSchematic
     }
 
     public boolean placeToWorldWithinChunk(World world, ChunkPos chunkPos, SchematicPlacement schematicPlacement, boolean notifyNeighbors)
+    {
+        IBlockPlacer placer = (pos, state, teNBT, mirrorMain, mirrorSub, rotation) -> placeBlockToWorld(world, pos.toImmutable(), state, teNBT, mirrorMain, mirrorSub, rotation);
+
+        this.placeBlocksWithinChunk(world, placer, chunkPos, schematicPlacement, notifyNeighbors);
+        this.placeEntitiesToWorldWithinChunk(world, chunkPos, schematicPlacement);
+
+        return true;
+    }
+
+    /**
+     * Places the blocks of this schematic within the given chunk to the given placer,
+     * without touching any world. This only reads the schematic data, so it can be called
+     * from a worker thread, as long as the schematic and the placement are not modified meanwhile.
+     * The entities need to be placed separately on the client thread.
+     */
+    public void placeBlocksWithinChunk(IBlockPlacer placer, ChunkPos chunkPos, SchematicPlacement schematicPlacement)
+    {
+        this.placeBlocksWithinChunk(null, placer, chunkPos, schematicPlacement, false);
+    }
+
+    private void placeBlocksWithinChunk(@Nullable World world, IBlockPlacer placer, ChunkPos chunkPos, SchematicPlacement schematicPlacement, boolean notifyNeighbors)
     {
         Set<String> regionsTouchingChunk = schematicPlacement.getRegionsTouchingChunk(chunkPos.x, chunkPos.z);
         BlockPos origin = schematicPlacement.getOrigin();
@@ -509,28 +542,43 @@ public class LitematicaSchematic
                 BlockPos regionSize = this.subRegionSizes.get(regionName);
                 LitematicaBlockStateContainer container = this.blockContainers.get(regionName);
                 Map<BlockPos, CompoundTag> tileMap = this.tileEntities.get(regionName);
-                List<EntityInfo> entityList = this.entities.get(regionName);
 
                 if (regionPos != null && regionSize != null && container != null && tileMap != null)
                 {
-                    this.placeBlocksWithinChunk(world, chunkPos, regionName, origin, regionPos, regionSize, schematicPlacement, placement, container, tileMap, notifyNeighbors);
+                    this.placeBlocksWithinChunk(world, placer, chunkPos, regionName, origin, regionPos, regionSize, schematicPlacement, placement, container, tileMap, notifyNeighbors);
                 }
                 else
                 {
                     Litematica.logger.warn("Invalid/missing schematic data in schematic '{}' for sub-region '{}'", this.metadata.getName(), regionName);
                 }
-
-                if (schematicPlacement.ignoreEntities() == false && placement.ignoreEntities() == false && entityList != null)
-                {
-                    this.placeEntitiesToWorldWithinChunk(world, chunkPos, origin, regionPos, regionSize, schematicPlacement, placement, entityList);
-                }
             }
         }
+    }
 
-        return true;
+    public void placeEntitiesToWorldWithinChunk(World world, ChunkPos chunkPos, SchematicPlacement schematicPlacement)
+    {
+        if (schematicPlacement.ignoreEntities())
+        {
+            return;
+        }
+
+        Set<String> regionsTouchingChunk = schematicPlacement.getRegionsTouchingChunk(chunkPos.x, chunkPos.z);
+        BlockPos origin = schematicPlacement.getOrigin();
+
+        for (String regionName : regionsTouchingChunk)
+        {
+            SubRegionPlacement placement = schematicPlacement.getRelativeSubRegionPlacement(regionName);
+            BlockPos regionSize = this.subRegionSizes.get(regionName);
+            List<EntityInfo> entityList = this.entities.get(regionName);
+
+            if (placement.isEnabled() && placement.ignoreEntities() == false && regionSize != null && entityList != null)
+            {
+                this.placeEntitiesToWorldWithinChunk(world, chunkPos, origin, placement.getPos(), regionSize, schematicPlacement, placement, entityList);
+            }
+        }
     }
 
-    private void placeBlocksWithinChunk(World world, ChunkPos chunkPos, String regionName,
+    private void placeBlocksWithinChunk(@Nullable World world, IBlockPlacer placer, ChunkPos chunkPos, String regionName,
             BlockPos origin, BlockPos regionPos, BlockPos regionSize,
             SchematicPlacement schematicPlacement, SubRegionPlacement placement,
             LitematicaBlockStateContainer container, Map<BlockPos, CompoundTag> tileMap, boolean notifyNeighbors)
@@ -587,7 +635,6 @@ public class LitematicaSchematic
 
         final BlockRotation rotationCombined = schematicPlacement.getRotation().rotate(placement.getRotation());
         final BlockMirror mirrorMain = schematicPlacement.getMirror();
-        final BlockState barrier = Blocks.BARRIER.getDefaultState();
         BlockMirror mirrorSub = placement.getMirror();
 
         if (mirrorSub != BlockMirror.NONE &&
@@ -597,78 +644,70 @@ public class LitematicaSchematic
             mirrorSub = mirrorSub == BlockMirror.FRONT_BACK ? BlockMirror.LEFT_RIGHT : BlockMirror.FRONT_BACK;
         }
 
+        // The transform is the same for every block of the sub-region, so each palette entry
+        // only gets transformed once, when it's first encountered. The table is local to this call,
+        // so that nothing is shared between the worker threads.
+        final BlockState[] transformedStates = new BlockState[Math.max(container.getPalette().getPaletteSize(), 1)];
+
+        // The mirrors and rotations are linear in x and z, so the world position is an affine
+        // transform of the position within the container: base + x * unitX + y + z * unitZ
+        final BlockPos unitX = PositionUtils.getTransformedPlacementPosition(new BlockPos(1, 0, 0), schematicPlacement, placement);
+        final BlockPos unitZ = PositionUtils.getTransformedPlacementPosition(new BlockPos(0, 0, 1), schematicPlacement, placement);
+        final BlockPos base = PositionUtils.getTransformedPlacementPosition(posMinRel.subtract(regionPos), schematicPlacement, placement).add(regionPosTransformed).add(origin);
+        final int baseX = base.getX();
+        final int baseY = base.getY();
+        final int baseZ = base.getZ();
+        final int xToX = unitX.getX();
+        final int xToZ = unitX.getZ();
+        final int zToX = unitZ.getX();
+        final int zToZ = unitZ.getZ();
+        final boolean hasTileEntities = tileMap.isEmpty() == false;
+        BlockPos.Mutable posWorld = new BlockPos.Mutable();
+
+        final int[] rowIds = new int[endX - startX + 1];
+
         for (int y = startY; y <= endY; ++y)
         {
             for (int z = startZ; z <= endZ; ++z)
             {
+                container.getPaletteIds(startX, y, z, rowIds.length, rowIds);
+
                 for (int x = startX; x <= endX; ++x)
                 {
-                    BlockState state = container.get(x, y, z);
+                    final int id = rowIds[x - startX];
+                    BlockState state = id < transformedStates.length ? transformedStates[id] : null;
 
-                    if (state.isAir())
+                    if (state == null)
                     {
-                        continue;
-                    }
-
-                    posMutable.set(x, y, z);
-                    CompoundTag teNBT = tileMap.get(posMutable);
-
-                    posMutable.set( posMinRel.getX() + x - regionPos.getX(),
-                                    posMinRel.getY() + y - regionPos.getY(),
-                                    posMinRel.getZ() + z - regionPos.getZ());
+                        state = container.getStateForPaletteId(id);
 
-                    BlockPos pos = PositionUtils.getTransformedPlacementPosition(posMutable, schematicPlacement, placement);
-                    pos = pos.add(regionPosTransformed).add(origin);
-
-                    if (mirrorMain != BlockMirror.NONE) { state = state.mirror(mirrorMain); }
-                    if (mirrorSub != BlockMirror.NONE)  { state = state.mirror(mirrorSub); }
-                    if (rotationCombined != BlockRotation.NONE) { state = state.rotate(rotationCombined); }
+                        if (mirrorMain != BlockMirror.NONE) { state = state.mirror(mirrorMain); }
+                        if (mirrorSub != BlockMirror.NONE)  { state = state.mirror(mirrorSub); }
+                        if (rotationCombined != BlockRotation.NONE) { state = state.rotate(rotationCombined); }
 
-                    if (teNBT != null)
-                    {
-                        BlockEntity te = world.getBlockEntity(pos);
-
-                        if (te != null)
+                        if (id < transformedStates.length)
                         {
-                            if (te instanceof Inventory)
-                            {
-                                ((Inventory) te).clear();
-                            }
-
-                            world.setBlockState(pos, barrier, 0x14);
+                            transformedStates[id] = state;
                         }
                     }
 
-                    if (world.setBlockState(pos, state, 0x12) && teNBT != null)
+                    if (state.isAir())
                     {
-                        BlockEntity te = world.getBlockEntity(pos);
+                        continue;
+                    }
 
-                        if (te != null)
-                        {
-                            teNBT = teNBT.copy();
-                            teNBT.putInt("x", pos.getX());
-                            teNBT.putInt("y", pos.getY());
-                            teNBT.putInt("z", pos.getZ());
+                    CompoundTag teNBT = hasTileEntities ? tileMap.get(posMutable.set(x, y, z)) : null;
 
-                            try
-                            {
-                                te.fromTag(teNBT);
+                    posWorld.set(baseX + x * xToX + z * zToX,
+                                 baseY + y,
+                                 baseZ + x * xToZ + z * zToZ);
 
-                                if (mirrorMain != BlockMirror.NONE) { te.applyMirror(mirrorMain); }
-                                if (mirrorSub != BlockMirror.NONE)  { te.applyMirror(mirrorSub); }
-                                if (rotationCombined != BlockRotation.NONE) { te.applyRotation(rotationCombined); }
-                            }
-                            catch (Exception e)
-                            {
-                                Litematica.logger.warn("Failed to load TileEntity data for {} @ {}", state, pos);
-                            }
-                        }
-                    }
+                    placer.placeBlock(posWorld, state, teNBT, mirrorMain, mirrorSub, rotationCombined);
                 }
             }
         }
 
-        if (notifyNeighbors)
+        if (notifyNeighbors && world != null)
         {
             for (int y = startX; y <= endY; ++y)
             {
@@ -687,6 +726,54 @@ public class LitematicaSchematic
         }
     }
 
+    /**
+     * Places one already transformed block into the world, and loads its block entity data, if any
+     */
+    public static void placeBlockToWorld(World world, BlockPos pos, BlockState state, @Nullable CompoundTag teNBT,
+            BlockMirror mirrorMain, BlockMirror mirrorSub, BlockRotation rotation)
+    {
+        if (teNBT != null)
+        {
+            BlockEntity te = world.getBlockEntity(pos);
+
+            if (te != null)
+            {
+                if (te instanceof Inventory)
+                {
+                    ((Inventory) te).clear();
+                }
+
+                world.setBlockState(pos, Blocks.BARRIER.getDefaultState(), 0x14);
+            }
+        }
+
+        if (world.setBlockState(pos, state, 0x12) && teNBT != null)
+        {
+            BlockEntity te = world.getBlockEntity(pos);
+
+            if (te != null)
+            {
+                teNBT = teNBT.copy();
+                teNBT.putInt("x", pos.getX());
+                teNBT.putInt("y", pos.getY());
+                teNBT.putInt("z", pos.getZ());
+
+                try
+                {
+                    te.fromTag(teNBT);
+
+                    if (mirrorMain != BlockMirror.NONE) { te.applyMirror(mirrorMain); }
+                    if (mirrorSub != BlockMirror.NONE)  { te.applyMirror(mirrorSub); }
+                    if (rotation != BlockRotation.NONE) { te.applyRotation(rotation); }
+                }
+                catch (Exception e)
+                {
+                    Litematica.logger.warn("Failed to load TileEntity data for {} @ {}", state, pos);
+                }
+            }
+        }
+    }
+
     private void placeEntitiesToWorldWithinChunk(World world, ChunkPos chunkPos, BlockPos origin, BlockPos regionPos, BlockPos regionSize,
             SchematicPlacement schematicPlacement, SubRegionPlacement placement, List<EntityInfo> entityList)
     {
@@ -887,7 +974,7 @@ public class LitematicaSchematic
     public void takeBlocksFromWorldWithinChunk(World world, int chunkX, int chunkZ,
             ImmutableMap<String, IntBoundingBox> volumes, ImmutableMap<String, Box> boxes)
     {
-        BlockPos.Mutable posMutable = new BlockPos.Mutable(0, 0, 0);
+        ChunkSection[] sections = world.getChunk(chunkX, chunkZ).getSectionArray();
 
         for (Map.Entry<String, IntBoundingBox> volumeEntry : volumes.entrySet())
         {
@@ -927,36 +1014,15 @@ public class LitematicaSchematic
             final int endY = startY + (bb.maxY - bb.minY);
             final int endZ = startZ + (bb.maxZ - bb.minZ);
 
-            for (int y = startY; y <= endY; ++y)
+            // Read the blocks directly from each chunk section, instead of going through the world per position
+            for (int sectionY = (startY + offsetY) >> 4; sectionY <= (endY + offsetY) >> 4; ++sectionY)
             {
-                for (int z = startZ; z <= endZ; ++z)
-                {
-                    for (int x = startX; x <= endX; ++x)
-                    {
-                        posMutable.set(x + offsetX, y + offsetY, z + offsetZ);
-                        BlockState state = world.getBlockState(posMutable);
-                        container.set(x, y, z, state);
-
-                        if (state.isAir() == false)
-                        {
-                            this.totalBlocks++;
-                        }
-
-                        if (state.getBlock().hasBlockEntity())
-                        {
-                            BlockEntity te = world.getBlockEntity(posMutable);
+                ChunkSection section = sectionY >= 0 && sectionY < sections.length ? sections[sectionY] : null;
+                final int sectionStartY = Math.max(startY, (sectionY << 4) - offsetY);
+                final int sectionEndY = Math.min(endY, (sectionY << 4) + 15 - offsetY);
 
-                            if (te != null)
-                            {
-                                // TODO Add a TileEntity NBT cache from the Chunk packets, to get the original synced data (too)
-                                BlockPos pos = new BlockPos(x, y, z);
-                                CompoundTag tag = te.toTag(new CompoundTag());
-                                NBTUtils.writeBlockPosToTag(pos, tag);
-                                tileEntityMap.put(pos, tag);
-                            }
-                        }
-                    }
-                }
+                this.takeBlocksFromSection(world, section, container, tileEntityMap, minCorner,
+                                           startX, sectionStartY, startZ, endX, sectionEndY, endZ);
             }
 
             if (world instanceof ServerWorld)
@@ -981,6 +1047,121 @@ public class LitematicaSchematic
         }
     }
 
+    /**
+     * Copies the blocks within the given relative range, which must be inside one chunk section, into the container.
+     * Each distinct section palette id is remapped to the container palette only once, and the container
+     * is presized for all the new states of the section, so that it doesn't get rebuilt in the middle of the copy.
+     */
+    private void takeBlocksFromSection(World world, @Nullable ChunkSection section, LitematicaBlockStateContainer container,
+            Map<BlockPos, CompoundTag> tileEntityMap, BlockPos minCorner,
+            int startX, int startY, int startZ, int endX, int endY, int endZ)
+    {
+        BlockPos.Mutable posMutable = new BlockPos.Mutable(0, 0, 0);
+        final int offsetX = minCorner.getX();
+        final int offsetY = minCorner.getY();
+        final int offsetZ = minCorner.getZ();
+
+        if (ChunkSection.isEmpty(section))
+        {
+            // Empty sections are all air, or void air outside of the world height, same as what World#getBlockState() returns
+            BlockState state = world.getBlockState(posMutable.set(startX + offsetX, startY + offsetY, startZ + offsetZ));
+            final int id = container.getPaletteIdFor(state);
+
+            for (int y = startY; y <= endY; ++y)
+            {
+                for (int z = startZ; z <= endZ; ++z)
+                {
+                    for (int x = startX; x <= endX; ++x)
+                    {
+                        container.setPaletteId(x, y, z, id);
+                    }
+                }
+            }
+
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        IMixinPalettedContainer<BlockState> sectionContainer = (IMixinPalettedContainer<BlockState>) section.getContainer();
+        Palette<BlockState> sectionPalette = sectionContainer.litematica_getPalette();
+        PackedIntegerArray sectionData = sectionContainer.litematica_getData();
+        int[] sectionIds = new int[(endX - startX + 1) * (endY - startY + 1) * (endZ - startZ + 1)];
+        int maxId = 0;
+        int index = 0;
+
+        for (int y = startY; y <= endY; ++y)
+        {
+            for (int z = startZ; z <= endZ; ++z)
+            {
+                for (int x = startX; x <= endX; ++x)
+                {
+                    int id = sectionData.get(((y + offsetY) & 0xF) << 8 | ((z + offsetZ) & 0xF) << 4 | ((x + offsetX) & 0xF));
+                    sectionIds[index++] = id;
+                    maxId = Math.max(maxId, id);
+                }
+            }
+        }
+
+        BlockState[] states = new BlockState[maxId + 1];
+        Set<BlockState> usedStates = new ReferenceOpenHashSet<>();
+
+        for (int id : sectionIds)
+        {
+            if (states[id] == null)
+            {
+                BlockState state = sectionPalette.getByIndex(id);
+                states[id] = state != null ? state : LitematicaBlockStateContainer.AIR_BLOCK_STATE;
+                usedStates.add(states[id]);
+            }
+        }
+
+        container.ensurePaletteCapacity(usedStates);
+
+        int[] containerIds = new int[states.length];
+
+        for (int id = 0; id < states.length; ++id)
+        {
+            if (states[id] != null)
+            {
+                containerIds[id] = container.getPaletteIdFor(states[id]);
+            }
+        }
+
+        index = 0;
+
+        for (int y = startY; y <= endY; ++y)
+        {
+            for (int z = startZ; z <= endZ; ++z)
+            {
+                for (int x = startX; x <= endX; ++x)
+                {
+                    final int id = sectionIds[index++];
+                    BlockState state = states[id];
+                    container.setPaletteId(x, y, z, containerIds[id]);
+
+                    if (state.isAir() == false)
+                    {
+                        this.totalBlocks++;
+                    }
+
+                    if (state.getBlock().hasBlockEntity())
+                    {
+                        BlockEntity te = world.getBlockEntity(posMutable.set(x + offsetX, y + offsetY, z + offsetZ));
+
+                        if (te != null)
+                        {
+                            // TODO Add a TileEntity NBT cache from the Chunk packets, to get the original synced data (too)
+                            BlockPos pos = new BlockPos(x, y, z);
+                            CompoundTag tag = te.toTag(new CompoundTag());
+                            NBTUtils.writeBlockPosToTag(pos, tag);
+                            tileEntityMap.put(pos, tag);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private void setSubRegionPositions(List<Box> boxes, BlockPos areaOrigin)
     {
         for (Box box : boxes)
@@ -1003,6 +1184,32 @@ public class LitematicaSchematic
         return this.blockContainers.get(regionName);
     }
 
+    /**
+     * Returns the number of each block state in the given sub-region, including air.
+     * The counts are done on the palette ids and then cached, until the sub-region's blocks get modified.
+     * The returned map must not be modified.
+     */
+    @Nullable
+    public Object2IntOpenHashMap<BlockState> getBlockStateCounts(String regionName)
+    {
+        LitematicaBlockStateContainer container = this.blockContainers.get(regionName);
+
+        if (container == null)
+        {
+            return null;
+        }
+
+        BlockStateCounts counts = this.blockStateCounts.get(regionName);
+
+        if (counts == null || counts.container != container || counts.modificationCount != container.getModificationCount())
+        {
+            counts = new BlockStateCounts(container);
+            this.blockStateCounts.put(regionName, counts);
+        }
+
+        return counts.counts;
+    }
+
     private CompoundTag writeToNBT()
     {
         CompoundTag nbt = new CompoundTag();
@@ -1136,93 +1343,54 @@ public class LitematicaSchematic
         return tagList;
     }
 
-    private boolean readFromNBT(CompoundTag nbt)
+    void readSubRegionFromNBT(String regionName, CompoundTag regionTag, int version, int minecraftDataVersion)
     {
-        this.blockContainers.clear();
-        this.tileEntities.clear();
-        this.entities.clear();
-        this.subRegionPositions.clear();
-        this.subRegionSizes.clear();
+        BlockPos regionPos = NBTUtils.readBlockPos(regionTag.getCompound("Position"));
+        BlockPos regionSize = NBTUtils.readBlockPos(regionTag.getCompound("Size"));
 
-        if (nbt.contains("Version", Constants.NBT.TAG_INT))
+        if (regionPos != null && regionSize != null)
         {
-            final int version = nbt.getInt("Version");
-            int minecraftDataVersion = nbt.getInt("MinecraftDataVersion");
-            if (version >= 1 && version <= SCHEMATIC_VERSION)
-            {
-                this.metadata.readFromNBT(nbt.getCompound("Metadata"));
-                this.readSubRegionsFromNBT(nbt.getCompound("Regions"), version, minecraftDataVersion);
+            this.subRegionPositions.put(regionName, regionPos);
+            this.subRegionSizes.put(regionName, regionSize);
 
-                return true;
+            if (version >= 2)
+            {
+                this.tileEntities.put(regionName, this.readTileEntitiesFromNBT(regionTag.getList("TileEntities", Constants.NBT.TAG_COMPOUND)));
+                this.entities.put(regionName, this.readEntitiesFromNBT(regionTag.getList("Entities", Constants.NBT.TAG_COMPOUND)));
             }
-            else
+            else if (version == 1)
             {
-                InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, "litematica.error.schematic_load.unsupported_schematic_version", version);
+                this.tileEntities.put(regionName, this.readTileEntitiesFromNBT_v1(regionTag.getList("TileEntities", Constants.NBT.TAG_COMPOUND)));
+                this.entities.put(regionName, this.readEntitiesFromNBT_v1(regionTag.getList("Entities", Constants.NBT.TAG_COMPOUND)));
             }
-        }
-        else
-        {
-            InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, "litematica.error.schematic_load.no_schematic_version_information");
-        }
 
-        return false;
-    }
-
-    private void readSubRegionsFromNBT(CompoundTag tag, int version, int minecraftDataVersion)
-    {
-        for (String regionName : tag.getKeys())
-        {
-            if (tag.get(regionName).getType() == Constants.NBT.TAG_COMPOUND)
+            if (version >= 3)
             {
-                CompoundTag regionTag = tag.getCompound(regionName);
-                BlockPos regionPos = NBTUtils.readBlockPos(regionTag.getCompound("Position"));
-                BlockPos regionSize = NBTUtils.readBlockPos(regionTag.getCompound("Size"));
-
-                if (regionPos != null && regionSize != null)
-                {
-                    this.subRegionPositions.put(regionName, regionPos);
-                    this.subRegionSizes.put(regionName, regionSize);
-
-                    if (version >= 2)
-                    {
-                        this.tileEntities.put(regionName, this.readTileEntitiesFromNBT(regionTag.getList("TileEntities", Constants.NBT.TAG_COMPOUND)));
-                        this.entities.put(regionName, this.readEntitiesFromNBT(regionTag.getList("Entities", Constants.NBT.TAG_COMPOUND)));
-                    }
-                    else if (version == 1)
-                    {
-                        this.tileEntities.put(regionName, this.readTileEntitiesFromNBT_v1(regionTag.getList("TileEntities", Constants.NBT.TAG_COMPOUND)));
-                        this.entities.put(regionName, this.readEntitiesFromNBT_v1(regionTag.getList("Entities", Constants.NBT.TAG_COMPOUND)));
-                    }
-
-                    if (version >= 3)
-                    {
-                        ListTag list = regionTag.getList("PendingBlockTicks", Constants.NBT.TAG_COMPOUND);
-                        this.pendingBlockTicks.put(regionName, this.readPendingTicksFromNBT(list, Blocks.AIR));
-                    }
+                ListTag list = regionTag.getList("PendingBlockTicks", Constants.NBT.TAG_COMPOUND);
+                this.pendingBlockTicks.put(regionName, this.readPendingTicksFromNBT(list, Blocks.AIR));
+            }
 
-                    if (version >= 5)
-                    {
-                        ListTag list = regionTag.getList("PendingFluidTicks", Constants.NBT.TAG_COMPOUND);
-                        this.pendingFluidTicks.put(regionName, this.readPendingTicksFromNBT(list, Fluids.EMPTY));
-                    }
+            if (version >= 5)
+            {
+                ListTag list = regionTag.getList("PendingFluidTicks", Constants.NBT.TAG_COMPOUND);
+                this.pendingFluidTicks.put(regionName, this.readPendingTicksFromNBT(list, Fluids.EMPTY));
+            }
 
-                    Tag nbtBase = regionTag.get("BlockStates");
+            Tag nbtBase = regionTag.get("BlockStates");
 
-                    // There are no convenience methods in NBTTagCompound yet in 1.12, so we'll have to do it the ugly way...
-                    if (nbtBase != null && nbtBase.getType() == Constants.NBT.TAG_LONG_ARRAY)
-                    {
-                        ListTag palette = regionTag.getList("BlockStatePalette", Constants.NBT.TAG_COMPOUND);
-                        long[] blockStateArr = ((LongArrayTag) nbtBase).getLongArray();
-
-                        BlockPos posEndRel = PositionUtils.getRelativeEndPositionFromAreaSize(regionSize).add(regionPos);
-                        BlockPos posMin = PositionUtils.getMinCorner(regionPos, posEndRel);
-                        BlockPos posMax = PositionUtils.getMaxCorner(regionPos, posEndRel);
-                        BlockPos size = posMax.subtract(posMin).add(1, 1, 1);
-                        palette = this.convertBlockStatePalette_1_12_to_1_13_2(palette, version, minecraftDataVersion);
-                        LitematicaBlockStateContainer container = LitematicaBlockStateContainer.createFrom(palette, blockStateArr, size);
-                        this.blockContainers.put(regionName, container);
-                    }
-                }
+            // There are no convenience methods in NBTTagCompound yet in 1.12, so we'll have to do it the ugly way...
+            if (nbtBase != null && nbtBase.getType() == Constants.NBT.TAG_LONG_ARRAY)
+            {
+                ListTag palette = regionTag.getList("BlockStatePalette", Constants.NBT.TAG_COMPOUND);
+                long[] blockStateArr = ((LongArrayTag) nbtBase).getLongArray();
+
+                BlockPos posEndRel = PositionUtils.getRelativeEndPositionFromAreaSize(regionSize).add(regionPos);
+                BlockPos posMin = PositionUtils.getMinCorner(regionPos, posEndRel);
+                BlockPos posMax = PositionUtils.getMaxCorner(regionPos, posEndRel);
+                BlockPos size = posMax.subtract(posMin).add(1, 1, 1);
+                palette = this.convertBlockStatePalette_1_12_to_1_13_2(palette, version, minecraftDataVersion);
+                LitematicaBlockStateContainer container = LitematicaBlockStateContainer.createFrom(palette, blockStateArr, size);
+                this.blockContainers.put(regionName, container);
             }
         }
     }
@@ -1381,6 +1549,34 @@ public class LitematicaSchematic
     }
 
     public boolean writeToFile(File dir, String fileNameIn, boolean override)
+    {
+        File fileSchematic = getFileForWriting(dir, fileNameIn, override);
+
+        if (fileSchematic == null)
+        {
+            return false;
+        }
+
+        try
+        {
+            this.writeToFileAtomic(fileSchematic, null);
+            return true;
+        }
+        catch (Exception e)
+        {
+            InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, "litematica.error.schematic_write_to_file_failed.exception", fileSchematic.getAbsolutePath());
+            InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, e.getMessage());
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks that the schematic can be written to the given file, and shows an error message if not
+     * @return the schematic file, or null if it can't be written
+     */
+    @Nullable
+    public static File getFileForWriting(File dir, String fileNameIn, boolean override)
     {
         String fileName = fileNameIn;
 
@@ -1391,33 +1587,53 @@ public class LitematicaSchematic
 
         File fileSchematic = new File(dir, fileName);
 
+        if (dir.exists() == false && dir.mkdirs() == false)
+        {
+            InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, "litematica.error.schematic_write_to_file_failed.directory_creation_failed", dir.getAbsolutePath());
+            return null;
+        }
+
+        if (override == false && fileSchematic.exists())
+        {
+            InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, "litematica.error.schematic_write_to_file_failed.exists", fileSchematic.getAbsolutePath());
+            return null;
+        }
+
+        return fileSchematic;
+    }
+
+    /**
+     * Writes the schematic to a temporary file next to the given file, and then renames it
+     * over the given file, so that an interrupted write never leaves behind a broken schematic.
+     * This does not show any messages, so that it can be called from a background thread,
+     * as long as the schematic is not modified during the write.
+     * @param bytesWrittenListener an optional listener for the number of compressed bytes written so far
+     */
+    public void writeToFileAtomic(File fileSchematic, @Nullable LongConsumer bytesWrittenListener) throws IOException
+    {
+        File fileTemp = new File(fileSchematic.getParentFile(), fileSchematic.getName() + ".tmp");
+        CompoundTag tag = this.writeToNBT();
+
         try
         {
-            if (dir.exists() == false && dir.mkdirs() == false)
+            try (OutputStream os = new CountingOutputStream(new FileOutputStream(fileTemp), bytesWrittenListener))
             {
-                InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, "litematica.error.schematic_write_to_file_failed.directory_creation_failed", dir.getAbsolutePath());
-                return false;
+                NbtIo.writeCompressed(tag, os);
             }
 
-            if (override == false && fileSchematic.exists())
+            try
             {
-                InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, "litematica.error.schematic_write_to_file_failed.exists", fileSchematic.getAbsolutePath());
-                return false;
+                Files.move(fileTemp.toPath(), fileSchematic.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(fileTemp.toPath(), fileSchematic.toPath(), StandardCopyOption.REPLACE_EXISTING);
             }
-
-            FileOutputStream os = new FileOutputStream(fileSchematic);
-            NbtIo.writeCompressed(this.writeToNBT(), os);
-            os.close();
-
-            return true;
         }
-        catch (Exception e)
+        finally
         {
-            InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, "litematica.error.schematic_write_to_file_failed.exception", fileSchematic.getAbsolutePath());
-            InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, e.getMessage());
+            Files.deleteIfExists(fileTemp.toPath());
         }
-
-        return false;
     }
 
     @Nullable
@@ -1436,28 +1652,49 @@ public class LitematicaSchematic
             return null;
         }
 
-        try
+        SchematicStreamReader reader = new SchematicStreamReader(fileSchematic);
+        LitematicaSchematic schematic = reader.read();
+
+        if (schematic == null)
         {
-            FileInputStream is = new FileInputStream(fileSchematic);
-            CompoundTag nbt = NbtIo.readCompressed(is);
-            is.close();
+            reader.showErrorMessage();
+        }
 
-            if (nbt != null)
-            {
-                LitematicaSchematic schematic = new LitematicaSchematic(fileSchematic);
+        return schematic;
+    }
 
-                if (schematic.readFromNBT(nbt))
+    /**
+     * Receives the transformed schematic blocks, in their final world position and orientation.
+     * The mirrors and the rotation are passed on for transforming the block entity data.
+     * The position is a re-used mutable position, so it must be copied if it's stored.
+     */
+    public interface IBlockPlacer
+    {
+        void placeBlock(BlockPos pos, BlockState state, @Nullable CompoundTag teNBT,
+                        BlockMirror mirrorMain, BlockMirror mirrorSub, BlockRotation rotation);
+    }
+
+    private static class BlockStateCounts
+    {
+        private final LitematicaBlockStateContainer container;
+        private final int modificationCount;
+        private final Object2IntOpenHashMap<BlockState> counts = new Object2IntOpenHashMap<>();
+
+        private BlockStateCounts(LitematicaBlockStateContainer container)
+        {
+            this.container = container;
+            this.modificationCount = container.getModificationCount();
+
+            int[] idCounts = container.getPaletteIdCounts();
+
+            for (int id = 0; id < idCounts.length; ++id)
+            {
+                if (idCounts[id] > 0)
                 {
-                    return schematic;
+                    this.counts.addTo(container.getStateForPaletteId(id), idCounts[id]);
                 }
             }
         }
-        catch (Exception e)
-        {
-            InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, "litematica.error.schematic_read_from_file_failed.exception", fileSchematic.getAbsolutePath());
-        }
-
-        return null;
     }
 
     public static class EntityInfo
@@ -1471,4 +1708,41 @@ public class LitematicaSchematic
             this.nbt = nbt;
         }
     }
+
+    private static class CountingOutputStream extends FilterOutputStream
+    {
+        @Nullable private final LongConsumer listener;
+        private long count;
+
+        private CountingOutputStream(OutputStream out, @Nullable LongConsumer listener)
+        {
+            super(out);
+
+            this.listener = listener;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            this.out.write(b);
+            this.addCount(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            this.out.write(b, off, len);
+            this.addCount(len);
+        }
+
+        private void addCount(int count)
+        {
+            this.count += count;
+
+            if (this.listener != null)
+            {
+                this.listener.accept(this.count);
+            }
+        }
+    }
 }
@@ -0,0 +1,304 @@
+package fi.dy.masa.litematica.schematic;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.Nullable;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fi.dy.masa.litematica.Litematica;
+import fi.dy.masa.litematica.Reference;
+import fi.dy.masa.malilib.util.Constants;
+import fi.dy.masa.malilib.util.FileUtils;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.StringTag;
+
+/**
+ * A persistent catalog of the schematic file metadata, for the schematic browser.
+ * The entries are keyed by the file path, and are valid as long as the file
+ * size and modification time match. Missing or outdated entries are read
+ * on a background thread, first the metadata only, and then the block names
+ * from the sub-region palettes as a material summary.
+ */
+public class SchematicCatalog
+{
+    private static final SchematicCatalog INSTANCE = new SchematicCatalog();
+
+    private final Map<String, CatalogEntry> entries = new ConcurrentHashMap<>();
+    private final Set<String> pendingPaths = ConcurrentHashMap.newKeySet();
+    /** The modification times of the files that could not be read, so that they are not retried until they change */
+    private final Map<String, Long> failedPaths = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("Litematica Schematic Catalog %d").setDaemon(true).build());
+    private boolean hasReadFromFile;
+    private volatile boolean dirty;
+
+    private SchematicCatalog()
+    {
+    }
+
+    public static SchematicCatalog getInstance()
+    {
+        if (INSTANCE.hasReadFromFile == false)
+        {
+            INSTANCE.readFromFile();
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the catalog entry for the given .litematic file, if it's up to date.
+     * If the entry is missing or outdated, then it gets read on the background thread,
+     * and null is returned until then.
+     */
+    @Nullable
+    public CatalogEntry getEntry(File file)
+    {
+        String path = file.getAbsolutePath();
+        CatalogEntry entry = this.entries.get(path);
+
+        if (entry != null && entry.matchesFile(file))
+        {
+            return entry;
+        }
+
+        Long failedTime = this.failedPaths.get(path);
+
+        if ((failedTime == null || failedTime.longValue() != file.lastModified()) && this.pendingPaths.add(path))
+        {
+            this.executor.execute(() -> this.readEntry(file, path));
+        }
+
+        return null;
+    }
+
+    private void readEntry(File file, String path)
+    {
+        try
+        {
+            final long size = file.length();
+            final long lastModified = file.lastModified();
+            SchematicMetadata metadata = SchematicStreamReader.readMetadata(file);
+
+            if (metadata == null)
+            {
+                this.failedPaths.put(path, lastModified);
+                return;
+            }
+
+            // Publish the metadata right away, the material summary needs to decompress the entire file
+            this.entries.put(path, new CatalogEntry(size, lastModified, metadata, Collections.emptyList()));
+
+            List<String> materials = SchematicStreamReader.readPaletteBlockNames(file);
+
+            if (materials != null)
+            {
+                this.entries.put(path, new CatalogEntry(size, lastModified, metadata, materials));
+            }
+
+            this.dirty = true;
+        }
+        finally
+        {
+            this.pendingPaths.remove(path);
+        }
+    }
+
+    protected File getCacheDir()
+    {
+        return new File(FileUtils.getConfigDirectory(), Reference.MOD_ID);
+    }
+
+    protected File getCacheFile()
+    {
+        return new File(this.getCacheDir(), "schematic_catalog.nbt");
+    }
+
+    public CompoundTag writeToNBT()
+    {
+        CompoundTag nbt = new CompoundTag();
+        ListTag list = new ListTag();
+
+        for (Map.Entry<String, CatalogEntry> mapEntry : this.entries.entrySet())
+        {
+            // Drop the entries of the files that have been deleted
+            if ((new File(mapEntry.getKey())).exists())
+            {
+                CompoundTag tag = mapEntry.getValue().writeToNBT();
+                tag.putString("Path", mapEntry.getKey());
+                list.add(tag);
+            }
+        }
+
+        nbt.put("Entries", list);
+
+        return nbt;
+    }
+
+    public void readFromNBT(CompoundTag nbt)
+    {
+        this.entries.clear();
+
+        if (nbt.contains("Entries", Constants.NBT.TAG_LIST))
+        {
+            ListTag list = nbt.getList("Entries", Constants.NBT.TAG_COMPOUND);
+            final int size = list.size();
+
+            for (int i = 0; i < size; ++i)
+            {
+                CompoundTag tag = list.getCompound(i);
+                String path = tag.getString("Path");
+
+                if (path.isEmpty() == false)
+                {
+                    this.entries.put(path, CatalogEntry.fromNBT(tag));
+                }
+            }
+        }
+    }
+
+    public boolean writeToFile()
+    {
+        if (this.dirty == false)
+        {
+            return false;
+        }
+
+        File dir = this.getCacheDir();
+        File file = this.getCacheFile();
+
+        try
+        {
+            if (dir.exists() == false && dir.mkdirs() == false)
+            {
+                Litematica.logger.warn("Failed to write the schematic catalog to file '{}'", file.getAbsolutePath());
+                return false;
+            }
+
+            this.dirty = false;
+
+            FileOutputStream os = new FileOutputStream(file);
+            NbtIo.writeCompressed(this.writeToNBT(), os);
+            os.close();
+
+            return true;
+        }
+        catch (Exception e)
+        {
+            Litematica.logger.warn("Failed to write the schematic catalog to file '{}'", file.getAbsolutePath(), e);
+        }
+
+        return false;
+    }
+
+    public void readFromFile()
+    {
+        this.hasReadFromFile = true;
+
+        File file = this.getCacheFile();
+
+        if (file.exists() == false || file.canRead() == false)
+        {
+            return;
+        }
+
+        try
+        {
+            FileInputStream is = new FileInputStream(file);
+            CompoundTag nbt = NbtIo.readCompressed(is);
+            is.close();
+
+            if (nbt != null)
+            {
+                this.readFromNBT(nbt);
+                this.dirty = false;
+            }
+        }
+        catch (Exception e)
+        {
+            Litematica.logger.warn("Failed to read the schematic catalog from file '{}'", file.getAbsolutePath(), e);
+        }
+    }
+
+    public static class CatalogEntry
+    {
+        private final long fileSize;
+        private final long lastModified;
+        private final SchematicMetadata metadata;
+        private final List<String> materials;
+
+        public CatalogEntry(long fileSize, long lastModified, SchematicMetadata metadata, List<String> materials)
+        {
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+            this.metadata = metadata;
+            this.materials = materials;
+        }
+
+        public boolean matchesFile(File file)
+        {
+            return this.fileSize == file.length() && this.lastModified == file.lastModified();
+        }
+
+        /**
+         * @return the metadata, including the preview image pixels
+         */
+        public SchematicMetadata getMetadata()
+        {
+            return this.metadata;
+        }
+
+        /**
+         * @return the sorted names of the blocks used in the schematic,
+         * or an empty list if they have not been read yet
+         */
+        public List<String> getMaterials()
+        {
+            return this.materials;
+        }
+
+        public CompoundTag writeToNBT()
+        {
+            CompoundTag tag = new CompoundTag();
+            ListTag list = new ListTag();
+
+            for (String name : this.materials)
+            {
+                list.add(StringTag.of(name));
+            }
+
+            tag.putLong("FileSize", this.fileSize);
+            tag.putLong("LastModified", this.lastModified);
+            tag.put("Metadata", this.metadata.writeToNBT());
+            tag.put("Materials", list);
+
+            return tag;
+        }
+
+        public static CatalogEntry fromNBT(CompoundTag tag)
+        {
+            SchematicMetadata metadata = new SchematicMetadata();
+            metadata.readFromNBT(tag.getCompound("Metadata"));
+
+            ListTag list = tag.getList("Materials", Constants.NBT.TAG_STRING);
+            List<String> materials = new ArrayList<>();
+            final int size = list.size();
+
+            for (int i = 0; i < size; ++i)
+            {
+                materials.add(list.getString(i));
+            }
+
+            return new CatalogEntry(tag.getLong("FileSize"), tag.getLong("LastModified"), metadata, materials);
+        }
+    }
+}
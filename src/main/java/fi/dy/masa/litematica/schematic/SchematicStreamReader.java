@@ -0,0 +1,489 @@
+package fi.dy.masa.litematica.schematic;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.tuple.Pair;
+import fi.dy.masa.litematica.Litematica;
+import fi.dy.masa.malilib.gui.Message.MessageType;
+import fi.dy.masa.malilib.util.Constants;
+import fi.dy.masa.malilib.util.InfoUtils;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.LongArrayTag;
+import net.minecraft.nbt.PositionTracker;
+import net.minecraft.nbt.Tag;
+import net.minecraft.nbt.TagReaders;
+
+/**
+ * Reads a .litematic file by walking the compressed NBT stream directly,
+ * instead of first reading the entire file into one tag tree.
+ * The block state arrays are decoded straight into the arrays that the block state
+ * containers then use, and each sub-region is converted and its remaining tags dropped
+ * as soon as the region has been read, so only one region's tags are held at a time.
+ * The read progress can be polled from other threads while the file is being read.
+ */
+public class SchematicStreamReader
+{
+    /** How many longs of a block state array to read between progress updates */
+    private static final int LONG_ARRAY_CHUNK = 65536;
+
+    private final File file;
+    private final long fileLength;
+    private final List<Pair<String, CompoundTag>> pendingRegions = new ArrayList<>();
+    private volatile long bytesRead;
+    private int version = -1;
+    private int minecraftDataVersion;
+    @Nullable private String errorKey;
+    private Object[] errorArgs = new Object[0];
+
+    public SchematicStreamReader(File file)
+    {
+        this.file = file;
+        this.fileLength = file.length();
+    }
+
+    public File getFile()
+    {
+        return this.file;
+    }
+
+    /**
+     * @return the read progress from 0.0 to 1.0, based on the compressed bytes read so far
+     */
+    public double getProgress()
+    {
+        return this.fileLength > 0 ? Math.min((double) this.bytesRead / (double) this.fileLength, 1.0) : 0.0;
+    }
+
+    /**
+     * Reads the schematic from the file. This does not show any messages,
+     * so that it can be called from a background thread.
+     * On failure the error can be shown afterwards with {@link #showErrorMessage()}.
+     * @return the read schematic, or null if the schematic could not be read
+     */
+    @Nullable
+    public LitematicaSchematic read()
+    {
+        this.bytesRead = 0;
+        this.version = -1;
+        this.minecraftDataVersion = 0;
+        this.pendingRegions.clear();
+        this.setError(null);
+
+        LitematicaSchematic schematic = new LitematicaSchematic(this.file);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new ProgressInputStream(new FileInputStream(this.file))))))
+        {
+            if (in.readByte() != Constants.NBT.TAG_COMPOUND)
+            {
+                this.setError("litematica.error.schematic_read_from_file_failed.exception", this.file.getAbsolutePath());
+                return null;
+            }
+
+            in.readUTF(); // The root tag name
+            this.readRootEntries(in, schematic);
+        }
+        catch (Exception e)
+        {
+            this.setError("litematica.error.schematic_read_from_file_failed.exception", this.file.getAbsolutePath());
+            return null;
+        }
+
+        if (this.version == -1)
+        {
+            this.setError("litematica.error.schematic_load.no_schematic_version_information");
+            return null;
+        }
+        else if (isSupportedVersion(this.version) == false)
+        {
+            this.setError("litematica.error.schematic_load.unsupported_schematic_version", this.version);
+            return null;
+        }
+
+        // The regions that were read before the version information
+        for (Pair<String, CompoundTag> pair : this.pendingRegions)
+        {
+            schematic.readSubRegionFromNBT(pair.getLeft(), pair.getRight(), this.version, this.minecraftDataVersion);
+        }
+
+        this.pendingRegions.clear();
+        this.bytesRead = this.fileLength;
+
+        return schematic;
+    }
+
+    public void showErrorMessage()
+    {
+        if (this.errorKey != null)
+        {
+            InfoUtils.showGuiOrInGameMessage(MessageType.ERROR, this.errorKey, this.errorArgs);
+        }
+    }
+
+    private void setError(@Nullable String errorKey, Object... args)
+    {
+        this.errorKey = errorKey;
+        this.errorArgs = args;
+    }
+
+    private void readRootEntries(DataInputStream in, LitematicaSchematic schematic) throws IOException
+    {
+        byte type;
+
+        while ((type = in.readByte()) != Constants.NBT.TAG_END)
+        {
+            String key = in.readUTF();
+
+            if (type == Constants.NBT.TAG_INT && key.equals("Version"))
+            {
+                this.version = in.readInt();
+            }
+            else if (type == Constants.NBT.TAG_INT && key.equals("MinecraftDataVersion"))
+            {
+                this.minecraftDataVersion = in.readInt();
+            }
+            else if (type == Constants.NBT.TAG_COMPOUND && key.equals("Metadata"))
+            {
+                schematic.getMetadata().readFromNBT((CompoundTag) readTag(in, type));
+            }
+            else if (type == Constants.NBT.TAG_COMPOUND && key.equals("Regions"))
+            {
+                this.readRegions(in, schematic);
+            }
+            else
+            {
+                readTag(in, type);
+            }
+        }
+    }
+
+    private void readRegions(DataInputStream in, LitematicaSchematic schematic) throws IOException
+    {
+        byte type;
+
+        while ((type = in.readByte()) != Constants.NBT.TAG_END)
+        {
+            String regionName = in.readUTF();
+
+            if (type != Constants.NBT.TAG_COMPOUND)
+            {
+                readTag(in, type);
+                continue;
+            }
+
+            CompoundTag regionTag = this.readRegion(in);
+
+            // The tag order in the file is not fixed, so the version may not have been read yet
+            if (this.version == -1)
+            {
+                this.pendingRegions.add(Pair.of(regionName, regionTag));
+            }
+            else if (isSupportedVersion(this.version))
+            {
+                schematic.readSubRegionFromNBT(regionName, regionTag, this.version, this.minecraftDataVersion);
+            }
+        }
+    }
+
+    private CompoundTag readRegion(DataInputStream in) throws IOException
+    {
+        CompoundTag regionTag = new CompoundTag();
+        byte type;
+
+        while ((type = in.readByte()) != Constants.NBT.TAG_END)
+        {
+            String key = in.readUTF();
+
+            if (type == Constants.NBT.TAG_LONG_ARRAY && key.equals("BlockStates"))
+            {
+                // The LongArrayTag does not copy the array, so it will be used as-is by the container
+                regionTag.put(key, new LongArrayTag(this.readLongArray(in)));
+            }
+            else
+            {
+                regionTag.put(key, readTag(in, type));
+            }
+        }
+
+        return regionTag;
+    }
+
+    private long[] readLongArray(DataInputStream in) throws IOException
+    {
+        final int length = in.readInt();
+
+        if (length < 0)
+        {
+            throw new IOException("Invalid long array length: " + length);
+        }
+
+        long[] arr = new long[length];
+
+        for (int start = 0; start < length; start += LONG_ARRAY_CHUNK)
+        {
+            final int end = Math.min(start + LONG_ARRAY_CHUNK, length);
+
+            for (int i = start; i < end; ++i)
+            {
+                arr[i] = in.readLong();
+            }
+
+            // Allow the array reading to be interrupted, ie. when the game is closing
+            if (Thread.currentThread().isInterrupted())
+            {
+                throw new IOException("Interrupted");
+            }
+        }
+
+        return arr;
+    }
+
+    /**
+     * Reads only the metadata of the schematic, stopping as soon as the Metadata compound has been read.
+     * The metadata is written before the regions, so the block data is never decompressed.
+     * This does not show any messages, so that it can be called from a background thread.
+     * @return the metadata, or null if the file could not be read or it has no metadata
+     */
+    @Nullable
+    public static SchematicMetadata readMetadata(File file)
+    {
+        try (DataInputStream in = openStream(file))
+        {
+            if (in == null)
+            {
+                return null;
+            }
+
+            byte type;
+
+            while ((type = in.readByte()) != Constants.NBT.TAG_END)
+            {
+                String key = in.readUTF();
+
+                if (type == Constants.NBT.TAG_COMPOUND && key.equals("Metadata"))
+                {
+                    SchematicMetadata metadata = new SchematicMetadata();
+                    metadata.readFromNBT((CompoundTag) readTag(in, type));
+                    return metadata;
+                }
+
+                skipTag(in, type);
+            }
+        }
+        catch (Exception e)
+        {
+            Litematica.logger.warn("Failed to read the schematic metadata from file '{}'", file.getAbsolutePath(), e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads the names of all the blocks in the block state palettes of the sub-regions.
+     * The block state arrays are skipped over without being stored or decoded.
+     * This does not show any messages, so that it can be called from a background thread.
+     * @return the sorted block names, or null if the file could not be read
+     */
+    @Nullable
+    public static List<String> readPaletteBlockNames(File file)
+    {
+        TreeSet<String> names = new TreeSet<>();
+
+        try (DataInputStream in = openStream(file))
+        {
+            if (in == null)
+            {
+                return null;
+            }
+
+            byte type;
+
+            while ((type = in.readByte()) != Constants.NBT.TAG_END)
+            {
+                String key = in.readUTF();
+
+                if (type == Constants.NBT.TAG_COMPOUND && key.equals("Regions"))
+                {
+                    while ((type = in.readByte()) != Constants.NBT.TAG_END)
+                    {
+                        in.readUTF(); // The region name
+
+                        if (type == Constants.NBT.TAG_COMPOUND)
+                        {
+                            readRegionPaletteNames(in, names);
+                        }
+                        else
+                        {
+                            skipTag(in, type);
+                        }
+                    }
+                }
+                else
+                {
+                    skipTag(in, type);
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            Litematica.logger.warn("Failed to read the schematic palettes from file '{}'", file.getAbsolutePath(), e);
+            return null;
+        }
+
+        return new ArrayList<>(names);
+    }
+
+    private static void readRegionPaletteNames(DataInputStream in, TreeSet<String> names) throws IOException
+    {
+        byte type;
+
+        while ((type = in.readByte()) != Constants.NBT.TAG_END)
+        {
+            String key = in.readUTF();
+
+            if (type == Constants.NBT.TAG_LIST && key.equals("BlockStatePalette"))
+            {
+                ListTag palette = (ListTag) readTag(in, type);
+                final int size = palette.size();
+
+                for (int i = 0; i < size; ++i)
+                {
+                    String name = palette.getCompound(i).getString("Name");
+
+                    if (name.isEmpty() == false)
+                    {
+                        names.add(name);
+                    }
+                }
+            }
+            else
+            {
+                skipTag(in, type);
+            }
+        }
+    }
+
+    @Nullable
+    private static DataInputStream openStream(File file) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+
+        if (in.readByte() != Constants.NBT.TAG_COMPOUND)
+        {
+            in.close();
+            return null;
+        }
+
+        in.readUTF(); // The root tag name
+
+        return in;
+    }
+
+    /**
+     * Skips over a tag. The large primitive arrays are skipped without being stored.
+     */
+    private static void skipTag(DataInputStream in, byte type) throws IOException
+    {
+        switch (type)
+        {
+            case Constants.NBT.TAG_BYTE_ARRAY:
+                skipBytes(in, (long) in.readInt());
+                break;
+            case Constants.NBT.TAG_INT_ARRAY:
+                skipBytes(in, (long) in.readInt() * 4L);
+                break;
+            case Constants.NBT.TAG_LONG_ARRAY:
+                skipBytes(in, (long) in.readInt() * 8L);
+                break;
+            case Constants.NBT.TAG_COMPOUND:
+                byte subType;
+
+                while ((subType = in.readByte()) != Constants.NBT.TAG_END)
+                {
+                    in.readUTF();
+                    skipTag(in, subType);
+                }
+
+                break;
+            default:
+                readTag(in, type);
+        }
+    }
+
+    private static void skipBytes(DataInputStream in, long count) throws IOException
+    {
+        while (count > 0)
+        {
+            int skipped = in.skipBytes((int) Math.min(count, Integer.MAX_VALUE));
+
+            if (skipped <= 0)
+            {
+                throw new IOException("Unexpected end of stream");
+            }
+
+            count -= skipped;
+        }
+    }
+
+    private static Tag readTag(DataInputStream in, byte type) throws IOException
+    {
+        return TagReaders.of(type).read(in, 1, PositionTracker.DEFAULT);
+    }
+
+    private static boolean isSupportedVersion(int version)
+    {
+        return version >= 1 && version <= LitematicaSchematic.SCHEMATIC_VERSION;
+    }
+
+    private class ProgressInputStream extends FilterInputStream
+    {
+        private ProgressInputStream(InputStream in)
+        {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int b = super.read();
+
+            if (b != -1)
+            {
+                SchematicStreamReader.this.bytesRead += 1;
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            int count = super.read(b, off, len);
+
+            if (count > 0)
+            {
+                SchematicStreamReader.this.bytesRead += count;
+            }
+
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            long count = super.skip(n);
+            SchematicStreamReader.this.bytesRead += count;
+            return count;
+        }
+    }
+}
@@ -12,6 +12,12 @@ public interface ILitematicaBlockStatePalette
      */
     int idFor(BlockState state);
 
+    /**
+     * Gets the palette id for the given block state, without adding it to the palette.
+     * @return the palette id, or -1 if the state is not in the palette
+     */
+    int getIdIfExists(BlockState state);
+
     /**
      * Gets the block state by the palette id.
      */
@@ -44,6 +44,21 @@ public class LitematicaBitArray
     {
         Validate.inclusiveBetween(0L, (long) (this.arraySize - 1), (long) index);
         Validate.inclusiveBetween(0L, this.maxEntryValue, (long) value);
+        this.setAtUnchecked(index, value);
+    }
+
+    public int getAt(int index)
+    {
+        Validate.inclusiveBetween(0L, (long) (this.arraySize - 1), (long) index);
+        return this.getAtUnchecked(index);
+    }
+
+    /**
+     * Sets the value without any bounds checks. The caller must make sure that the index
+     * is within the array, and that the value fits in the bits per entry.
+     */
+    void setAtUnchecked(int index, int value)
+    {
         int startOffset = index * this.bitsPerEntry;
         int startArrIndex = startOffset >> 6; // startOffset / 64
         int endArrIndex = ((index + 1) * this.bitsPerEntry - 1) >> 6;
@@ -58,9 +73,11 @@ public class LitematicaBitArray
         }
     }
 
-    public int getAt(int index)
+    /**
+     * Gets the value without any bounds checks. The caller must make sure that the index is within the array.
+     */
+    int getAtUnchecked(int index)
     {
-        Validate.inclusiveBetween(0L, (long) (this.arraySize - 1), (long) index);
         int startOffset = index * this.bitsPerEntry;
         int startArrIndex = startOffset >> 6; // startOffset / 64
         int endArrIndex = ((index + 1) * this.bitsPerEntry - 1) >> 6;
@@ -77,6 +94,84 @@ public class LitematicaBitArray
         }
     }
 
+    /**
+     * Decodes <b>count</b> consecutive entries starting from <b>startIndex</b> into the given array.
+     * The entries are read sequentially from the backing long array, instead of locating each one separately.
+     */
+    public void getRange(int startIndex, int count, int[] arrOut, int outOffset)
+    {
+        Validate.isTrue(startIndex >= 0 && count >= 0 && startIndex + count <= this.arraySize, "Range out of bounds");
+        Validate.isTrue(outOffset >= 0 && outOffset + count <= arrOut.length, "Output array too small");
+
+        if (count == 0)
+        {
+            return;
+        }
+
+        final long[] arr = this.longArray;
+        final int bits = this.bitsPerEntry;
+        final long mask = this.maxEntryValue;
+        final int bitOffset = startIndex * bits;
+        int arrIndex = bitOffset >> 6;
+        int bitInWord = bitOffset & 0x3F;
+        long word = arr[arrIndex];
+
+        for (int i = 0; i < count; ++i)
+        {
+            int endBit = bitInWord + bits;
+
+            if (endBit < 64)
+            {
+                arrOut[outOffset + i] = (int) ((word >>> bitInWord) & mask);
+                bitInWord = endBit;
+            }
+            else if (endBit == 64)
+            {
+                arrOut[outOffset + i] = (int) ((word >>> bitInWord) & mask);
+                bitInWord = 0;
+
+                if (++arrIndex < arr.length)
+                {
+                    word = arr[arrIndex];
+                }
+            }
+            else
+            {
+                // The entry straddles two longs
+                long next = arr[++arrIndex];
+                arrOut[outOffset + i] = (int) (((word >>> bitInWord) | (next << (64 - bitInWord))) & mask);
+                bitInWord = endBit - 64;
+                word = next;
+            }
+        }
+    }
+
+    /**
+     * Counts the occurrences of each value in the whole array, by adding them to the given array
+     * at the value's index. Values that don't fit in the array are not counted.
+     */
+    public void addValueCounts(int[] countsOut)
+    {
+        final int maxValue = countsOut.length;
+        final int[] buf = new int[Math.min(this.arraySize, 4096)];
+
+        for (int start = 0; start < this.arraySize; start += buf.length)
+        {
+            int count = Math.min(buf.length, this.arraySize - start);
+            this.getRange(start, count, buf, 0);
+
+            for (int i = 0; i < count; ++i)
+            {
+                int value = buf[i];
+
+                if (value < maxValue)
+                {
+                    countsOut[value]++;
+                }
+            }
+        }
+    }
+
     public long[] getBackingLongArray()
     {
         return this.longArray;
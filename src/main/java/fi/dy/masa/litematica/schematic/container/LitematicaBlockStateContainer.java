@@ -1,5 +1,6 @@
 package fi.dy.masa.litematica.schematic.container;
 
+import java.util.Collection;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.nbt.ListTag;
@@ -16,6 +17,7 @@ public class LitematicaBlockStateContainer implements ILitematicaBlockStatePalet
     protected final int sizeZ;
     protected final int sizeLayer;
     protected int bits;
+    protected int modificationCount;
 
     public LitematicaBlockStateContainer(int sizeX, int sizeY, int sizeZ)
     {
@@ -47,6 +49,91 @@ public class LitematicaBlockStateContainer implements ILitematicaBlockStatePalet
     {
         int id = this.palette.idFor(state);
         this.storage.setAt(this.getIndex(x, y, z), id);
+        ++this.modificationCount;
+    }
+
+    /**
+     * Sets the palette id directly, for bulk copying with ids from {@link #getPaletteIdFor(BlockState)}.
+     */
+    public void setPaletteId(int x, int y, int z, int id)
+    {
+        this.storage.setAt(this.getIndex(x, y, z), id);
+        ++this.modificationCount;
+    }
+
+    /**
+     * Gets the palette id for the given block state, adding it to the palette if needed.
+     * Note that adding a state can resize the palette, which invalidates all the previously
+     * returned ids, unless there was room reserved via {@link #ensurePaletteCapacity(Collection)}.
+     */
+    public int getPaletteIdFor(BlockState state)
+    {
+        return this.palette.idFor(state);
+    }
+
+    /**
+     * Makes sure that the palette has room for all the given distinct block states,
+     * growing the storage at most once, instead of rebuilding it each time the palette fills up.
+     * After this, the ids returned by {@link #getPaletteIdFor(BlockState)} for these states stay valid.
+     */
+    public void ensurePaletteCapacity(Collection<BlockState> states)
+    {
+        int newStates = 0;
+
+        for (BlockState state : states)
+        {
+            if (this.palette.getIdIfExists(state) == -1)
+            {
+                ++newStates;
+            }
+        }
+
+        final int totalSize = this.palette.getPaletteSize() + newStates;
+        final int bits = Math.max(2, Integer.SIZE - Integer.numberOfLeadingZeros(totalSize - 1));
+
+        if (bits > this.bits)
+        {
+            // Air is always in the palette, so this just rebuilds the storage with the new size
+            this.onResize(bits, AIR_BLOCK_STATE);
+        }
+    }
+
+    /**
+     * Returns a counter that changes whenever the blocks in this container are modified,
+     * which can be used to invalidate any data cached from the container.
+     */
+    public int getModificationCount()
+    {
+        return this.modificationCount;
+    }
+
+    /**
+     * Returns the block state for the given palette id, or air if the id is not in the palette.
+     */
+    public BlockState getStateForPaletteId(int id)
+    {
+        BlockState state = this.palette.getBlockState(id);
+        return state == null ? AIR_BLOCK_STATE : state;
+    }
+
+    /**
+     * Decodes the palette ids of <b>count</b> consecutive positions starting from the given position,
+     * in the storage order (x first, then z, then y) into the given array.
+     */
+    public void getPaletteIds(int x, int y, int z, int count, int[] idsOut)
+    {
+        this.storage.getRange(this.getIndex(x, y, z), count, idsOut, 0);
+    }
+
+    /**
+     * Counts the number of positions using each palette id, without looking up the block states.
+     * @return an array of the counts, indexed by the palette id
+     */
+    public int[] getPaletteIdCounts()
+    {
+        int[] counts = new int[this.palette.getPaletteSize()];
+        this.storage.addValueCounts(counts);
+        return counts;
     }
 
     protected void set(int index, BlockState state)
@@ -98,7 +185,7 @@ public class LitematicaBlockStateContainer implements ILitematicaBlockStatePalet
 
         for (int id = 0; id < bitArray.size(); ++id)
         {
-            BlockState stateTmp = statePaletteOld.getBlockState(bitArray.getAt(id));
+            BlockState stateTmp = statePaletteOld.getBlockState(bitArray.getAtUnchecked(id));
 
             if (stateTmp != null)
             {
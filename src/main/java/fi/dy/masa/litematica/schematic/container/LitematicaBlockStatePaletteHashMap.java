@@ -38,6 +38,12 @@ public class LitematicaBlockStatePaletteHashMap implements ILitematicaBlockState
         return i;
     }
 
+    @Override
+    public int getIdIfExists(BlockState state)
+    {
+        return this.statePaletteMap.getId(state);
+    }
+
     @Override
     @Nullable
     public BlockState getBlockState(int indexKey)
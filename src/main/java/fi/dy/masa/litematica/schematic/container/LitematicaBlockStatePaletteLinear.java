@@ -45,6 +45,20 @@ public class LitematicaBlockStatePaletteLinear implements ILitematicaBlockStateP
         }
     }
 
+    @Override
+    public int getIdIfExists(BlockState state)
+    {
+        for (int i = 0; i < this.currentSize; ++i)
+        {
+            if (this.states[i] == state)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
     @Override
     @Nullable
     public BlockState getBlockState(int indexKey)
@@ -309,6 +309,15 @@ public class SchematicPlacement
         return this.materialList;
     }
 
+    /**
+     * Returns the material list if it has already been created, without creating it.
+     */
+    @Nullable
+    public MaterialListPlacement getMaterialListIfExists()
+    {
+        return this.materialList instanceof MaterialListPlacement ? (MaterialListPlacement) this.materialList : null;
+    }
+
     public boolean hasVerifier()
     {
         return this.verifier != null;
@@ -7,17 +7,25 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import javax.annotation.Nullable;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import fi.dy.masa.litematica.Litematica;
 import fi.dy.masa.litematica.config.Configs;
 import fi.dy.masa.litematica.config.Hotkeys;
 import fi.dy.masa.litematica.data.DataManager;
 import fi.dy.masa.litematica.data.SchematicHolder;
+import fi.dy.masa.litematica.materials.MaterialListPlacement;
+import fi.dy.masa.litematica.printer.PrinterWorkIndex;
 import fi.dy.masa.litematica.render.LitematicaRenderer;
 import fi.dy.masa.litematica.render.OverlayRenderer;
 import fi.dy.masa.litematica.render.infohud.StatusInfoRenderer;
@@ -30,6 +38,8 @@ import fi.dy.masa.litematica.util.RayTraceUtils;
 import fi.dy.masa.litematica.util.RayTraceUtils.RayTraceWrapper;
 import fi.dy.masa.litematica.util.RayTraceUtils.RayTraceWrapper.HitType;
 import fi.dy.masa.litematica.util.WorldUtils;
+import fi.dy.masa.litematica.world.ChunkSchematic;
+import fi.dy.masa.litematica.world.ChunkSchematicBuilder;
 import fi.dy.masa.litematica.world.SchematicWorldHandler;
 import fi.dy.masa.litematica.world.WorldSchematic;
 import fi.dy.masa.malilib.config.options.ConfigHotkey;
@@ -40,6 +50,11 @@ import fi.dy.masa.malilib.util.JsonUtils;
 import fi.dy.masa.malilib.util.LayerMode;
 import fi.dy.masa.malilib.util.StringUtils;
 import fi.dy.masa.malilib.util.SubChunkPos;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.block.BlockState;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.entity.Entity;
@@ -55,24 +70,34 @@ import net.minecraft.world.World;
 
 public class SchematicPlacementManager
 {
+    private static final ThreadFactory CHUNK_BUILD_THREAD_FACTORY = new ThreadFactoryBuilder().setNameFormat("Litematica Schematic Chunk Builder %d").setDaemon(true).build();
+
     private final List<SchematicPlacement> schematicPlacements = new ArrayList<>();
     private final HashMultimap<ChunkPos, SchematicPlacement> schematicsTouchingChunk = HashMultimap.create();
     private final ArrayListMultimap<SubChunkPos, PlacementPart> touchedVolumesInSubChunk = ArrayListMultimap.create();
+    private final Long2IntOpenHashMap touchedSubChunkMasks = new Long2IntOpenHashMap();
     private final Set<ChunkPos> chunksToRebuild = new HashSet<>();
     private final Set<ChunkPos> chunksToUnload = new HashSet<>();
     private final Set<ChunkPos> chunksPreChange = new HashSet<>();
+    private final Set<ChunkPos> chunksToRecount = new HashSet<>();
+    private final PrinterWorkIndex printerWorkIndex = new PrinterWorkIndex();
+    private final Long2ObjectOpenHashMap<ChunkBuild> chunkBuildsInProgress = new Long2ObjectOpenHashMap<>();
+    @Nullable private ExecutorService chunkBuildExecutor;
+    private int chunkBuildThreadCount;
+
+    private int touchedSubChunksVersion;
 
     @Nullable
     private SchematicPlacement selectedPlacement;
 
     public boolean hasPendingRebuilds()
     {
-        return this.chunksToRebuild.isEmpty() == false;
+        return this.chunksToRebuild.isEmpty() == false || this.chunkBuildsInProgress.isEmpty() == false;
     }
 
     public boolean hasPendingRebuildFor(ChunkPos pos)
     {
-        return this.chunksToRebuild.contains(pos);
+        return this.chunksToRebuild.contains(pos) || this.chunkBuildsInProgress.containsKey(pos.toLong());
     }
 
     public boolean processQueuedChunks()
@@ -92,18 +117,28 @@ public class SchematicPlacementManager
             this.chunksToUnload.clear();
         }
 
+        if (this.chunksToRecount.isEmpty() == false)
+        {
+            this.processQueuedMaterialListRecounts();
+        }
+
         //System.out.printf("processQueuedChunks, size: %d\n", this.chunksToRebuild.size());
-        if (this.chunksToRebuild.isEmpty() == false)
+        if (this.chunksToRebuild.isEmpty() == false || this.chunkBuildsInProgress.isEmpty() == false)
         {
             ClientWorld worldClient = MinecraftClient.getInstance().world;
 
             if (worldClient == null)
             {
                 this.chunksToRebuild.clear();
+                this.cancelChunkBuilds();
                 return true;
             }
 
             WorldSchematic worldSchematic = SchematicWorldHandler.getSchematicWorld();
+            final int threadCount = Configs.Generic.SCHEMATIC_LOAD_THREADS.getIntegerValue();
+
+            this.finishChunkBuilds(worldClient, worldSchematic);
+
             Iterator<ChunkPos> iter = this.chunksToRebuild.iterator();
 
             while (iter.hasNext())
@@ -121,8 +156,30 @@ public class SchematicPlacementManager
                     continue;
                 }
 
-                if (Configs.Generic.LOAD_ENTIRE_SCHEMATICS.getBooleanValue() ||
-                    WorldUtils.isClientChunkLoaded(worldClient, pos.x, pos.z))
+                // Wait for the previous build of this chunk to finish, its result will then be discarded
+                if (this.chunkBuildsInProgress.containsKey(pos.toLong()))
+                {
+                    continue;
+                }
+
+                boolean canLoad = Configs.Generic.LOAD_ENTIRE_SCHEMATICS.getBooleanValue() ||
+                                  WorldUtils.isClientChunkLoaded(worldClient, pos.x, pos.z);
+
+                if (threadCount > 0 && canLoad)
+                {
+                    // Keep a few builds per thread queued, but don't queue up everything at once,
+                    // so that the later placement changes don't have to wait for all the stale builds
+                    if (this.chunkBuildsInProgress.size() >= threadCount * 4)
+                    {
+                        break;
+                    }
+
+                    this.startChunkBuild(pos, worldSchematic, threadCount);
+                    iter.remove();
+                    continue;
+                }
+
+                if (canLoad)
                 {
                     // Wipe the old chunk if it exists
                     this.unloadSchematicChunk(worldSchematic, pos.x, pos.z);
@@ -149,13 +206,16 @@ public class SchematicPlacementManager
                         worldSchematic.scheduleChunkRenders(pos.x, pos.z);
                     }
 
+                    this.printerWorkIndex.invalidateChunk(pos.x, pos.z);
+                    this.recountMaterialListsInChunk(pos.x, pos.z, worldSchematic, worldClient);
+
                     iter.remove();
                 }
             }
 
             LitematicaRenderer.getInstance().getWorldRenderer().markNeedsUpdate();
 
-            if (this.chunksToRebuild.isEmpty())
+            if (this.chunksToRebuild.isEmpty() && this.chunkBuildsInProgress.isEmpty())
             {
                 return true;
             }
@@ -164,6 +224,126 @@ public class SchematicPlacementManager
         return false;
     }
 
+    /**
+     * Starts building the contents of the given schematic chunk on a worker thread.
+     * The enabled placements touching the chunk are captured here, on the client thread.
+     */
+    private void startChunkBuild(ChunkPos pos, WorldSchematic worldSchematic, int threadCount)
+    {
+        List<SchematicPlacement> placements = new ArrayList<>();
+
+        for (SchematicPlacement placement : this.schematicsTouchingChunk.get(pos))
+        {
+            if (placement.isEnabled())
+            {
+                placements.add(placement);
+            }
+        }
+
+        CompletableFuture<ChunkSchematicBuilder> future = CompletableFuture
+                .supplyAsync(() -> (new ChunkSchematicBuilder(pos)).build(placements), this.getChunkBuildExecutor(threadCount))
+                .exceptionally((e) -> {
+                    // Most likely the placement was modified while the chunk was being built,
+                    // in which case the chunk has also been queued for a new rebuild
+                    Litematica.logger.warn("Failed to build the schematic chunk at [{}, {}]", pos.x, pos.z, e);
+                    return null;
+                });
+
+        this.chunkBuildsInProgress.put(pos.toLong(), new ChunkBuild(pos, worldSchematic, placements, future));
+    }
+
+    /**
+     * Swaps the finished chunk builds into the schematic world, within the tick time budget.
+     * The results that have become stale while they were being built are discarded.
+     */
+    private void finishChunkBuilds(ClientWorld worldClient, WorldSchematic worldSchematic)
+    {
+        ObjectIterator<Long2ObjectMap.Entry<ChunkBuild>> iter = this.chunkBuildsInProgress.long2ObjectEntrySet().fastIterator();
+        final boolean loadEntire = Configs.Generic.LOAD_ENTIRE_SCHEMATICS.getBooleanValue();
+
+        while (iter.hasNext())
+        {
+            if ((System.nanoTime() - DataManager.getClientTickStartTime()) >= 45000000L)
+            {
+                break;
+            }
+
+            ChunkBuild build = iter.next().getValue();
+
+            if (build.future.isDone() == false)
+            {
+                continue;
+            }
+
+            iter.remove();
+
+            ChunkSchematicBuilder builder = build.future.getNow(null);
+            ChunkPos pos = build.pos;
+
+            if (builder == null ||
+                build.world != worldSchematic ||
+                this.chunksToRebuild.contains(pos) ||
+                this.schematicsTouchingChunk.containsKey(pos) == false ||
+                (loadEntire == false && WorldUtils.isClientChunkLoaded(worldClient, pos.x, pos.z) == false))
+            {
+                continue;
+            }
+
+            // Wipe the old chunk if it exists
+            this.unloadSchematicChunk(worldSchematic, pos.x, pos.z);
+
+            ChunkSchematic chunk = worldSchematic.getChunkProvider().loadChunk(pos.x, pos.z);
+            builder.applyToChunk(worldSchematic, chunk);
+
+            for (SchematicPlacement placement : build.placements)
+            {
+                placement.getSchematic().placeEntitiesToWorldWithinChunk(worldSchematic, pos, placement);
+            }
+
+            worldSchematic.scheduleChunkRenders(pos.x, pos.z);
+            this.printerWorkIndex.invalidateChunk(pos.x, pos.z);
+            this.recountMaterialListsInChunk(pos.x, pos.z, worldSchematic, worldClient);
+        }
+    }
+
+    private ExecutorService getChunkBuildExecutor(int threadCount)
+    {
+        if (this.chunkBuildExecutor == null || this.chunkBuildThreadCount != threadCount)
+        {
+            // Any already queued builds still finish on the old executor
+            if (this.chunkBuildExecutor != null)
+            {
+                this.chunkBuildExecutor.shutdown();
+            }
+
+            this.chunkBuildExecutor = Executors.newFixedThreadPool(threadCount, CHUNK_BUILD_THREAD_FACTORY);
+            this.chunkBuildThreadCount = threadCount;
+        }
+
+        return this.chunkBuildExecutor;
+    }
+
+    /**
+     * Cancels all the pending chunk builds, and shuts down the build threads.
+     * The executor gets re-created when the next chunk build is started.
+     */
+    private void cancelChunkBuilds()
+    {
+        for (ChunkBuild build : this.chunkBuildsInProgress.values())
+        {
+            build.future.cancel(false);
+        }
+
+        this.chunkBuildsInProgress.clear();
+
+        if (this.chunkBuildExecutor != null)
+        {
+            // Drops the builds that haven't started yet, and interrupts the running ones
+            this.chunkBuildExecutor.shutdownNow();
+            this.chunkBuildExecutor = null;
+        }
+    }
+
     public void onClientChunkUnload(int chunkX, int chunkZ)
     {
         if (Configs.Generic.LOAD_ENTIRE_SCHEMATICS.getBooleanValue() == false)
@@ -186,6 +366,142 @@ public class SchematicPlacementManager
             worldSchematic.scheduleChunkRenders(chunkX, chunkZ);
             worldSchematic.getChunkProvider().unloadChunk(chunkX, chunkZ);
         }
+
+        this.printerWorkIndex.invalidateChunk(chunkX, chunkZ);
+
+        for (SchematicPlacement placement : this.schematicPlacements)
+        {
+            MaterialListPlacement materialList = placement.getMaterialListIfExists();
+
+            if (materialList != null)
+            {
+                materialList.onSchematicChunkUnloaded(chunkX, chunkZ);
+            }
+        }
+    }
+
+    /**
+     * Queues the chunk to be re-counted for the material lists of the placements.
+     * The queued chunks are re-counted on the following client ticks, within the tick time budget.
+     */
+    public void queueMaterialListRecount(int chunkX, int chunkZ)
+    {
+        for (SchematicPlacement placement : this.schematicPlacements)
+        {
+            if (placement.getMaterialListIfExists() != null)
+            {
+                this.chunksToRecount.add(new ChunkPos(chunkX, chunkZ));
+                return;
+            }
+        }
+    }
+
+    private void processQueuedMaterialListRecounts()
+    {
+        WorldSchematic worldSchematic = SchematicWorldHandler.getSchematicWorld();
+        ClientWorld worldClient = MinecraftClient.getInstance().world;
+
+        if (worldSchematic == null || worldClient == null)
+        {
+            this.chunksToRecount.clear();
+            return;
+        }
+
+        Iterator<ChunkPos> iter = this.chunksToRecount.iterator();
+
+        while (iter.hasNext())
+        {
+            if ((System.nanoTime() - DataManager.getClientTickStartTime()) >= 45000000L)
+            {
+                break;
+            }
+
+            ChunkPos pos = iter.next();
+            iter.remove();
+
+            // The chunk gets re-counted anyway after it has been rebuilt
+            if (this.hasPendingRebuildFor(pos) == false)
+            {
+                this.recountMaterialListsInChunk(pos.x, pos.z, worldSchematic, worldClient);
+            }
+        }
+    }
+
+    /**
+     * Re-counts the chunk for the material lists of the placements,
+     * if both the schematic chunk and the client chunk are loaded.
+     */
+    private void recountMaterialListsInChunk(int chunkX, int chunkZ, WorldSchematic worldSchematic, ClientWorld worldClient)
+    {
+        if (worldSchematic.getChunkProvider().isChunkLoaded(chunkX, chunkZ) == false ||
+            WorldUtils.isClientChunkLoaded(worldClient, chunkX, chunkZ) == false)
+        {
+            return;
+        }
+
+        for (SchematicPlacement placement : this.schematicPlacements)
+        {
+            MaterialListPlacement materialList = placement.getMaterialListIfExists();
+
+            if (materialList != null)
+            {
+                materialList.onSchematicChunkLoaded(chunkX, chunkZ, worldSchematic, worldClient);
+            }
+        }
+    }
+
+    /**
+     * Updates the live material list counts of the placements at the given position,
+     * when the client world block is about to change from <b>stateOld</b> to <b>stateNew</b>.
+     */
+    public void onClientBlockChange(BlockPos pos, BlockState stateOld, BlockState stateNew)
+    {
+        if (stateOld == stateNew || pos.getY() < 0 || pos.getY() > 255)
+        {
+            return;
+        }
+
+        WorldSchematic worldSchematic = SchematicWorldHandler.getSchematicWorld();
+        BlockState stateSchematic = null;
+
+        if (worldSchematic == null)
+        {
+            return;
+        }
+
+        // Not using touchedVolumesInSubChunk here, as that only has the placements that are being rendered
+        for (SchematicPlacement placement : this.schematicsTouchingChunk.get(new ChunkPos(pos)))
+        {
+            MaterialListPlacement materialList = placement.getMaterialListIfExists();
+
+            if (materialList != null && isPositionWithinBoxes(pos, placement.getBoxesWithinChunk(pos.getX() >> 4, pos.getZ() >> 4).values()))
+            {
+                if (stateSchematic == null)
+                {
+                    stateSchematic = worldSchematic.getBlockState(pos);
+                }
+
+                materialList.onClientBlockChange(pos, stateSchematic, stateOld, stateNew);
+            }
+        }
+    }
+
+    private static boolean isPositionWithinBoxes(BlockPos pos, Collection<IntBoundingBox> boxes)
+    {
+        for (IntBoundingBox box : boxes)
+        {
+            if (box.containsPos(pos))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public PrinterWorkIndex getPrinterWorkIndex()
+    {
+        return this.printerWorkIndex;
     }
 
     public List<SchematicPlacement> getAllSchematicsPlacements()
@@ -215,6 +531,32 @@ public class SchematicPlacementManager
         return this.touchedVolumesInSubChunk.keySet();
     }
 
+    /**
+     * Returns a bit mask of the touched sub-chunks in the given chunk column,
+     * where bit N is set if the sub-chunk at chunk y-position N is touched by any placement.
+     */
+    public int getTouchedSubChunkMask(int chunkX, int chunkZ)
+    {
+        return this.touchedSubChunkMasks.get(ChunkPos.toLong(chunkX, chunkZ));
+    }
+
+    /**
+     * Returns the chunk columns that have any touched sub-chunks, as packed ChunkPos longs,
+     * mapped to the touched sub-chunk bit masks. The returned map must not be modified.
+     */
+    public Long2IntOpenHashMap getTouchedSubChunkMasks()
+    {
+        return this.touchedSubChunkMasks;
+    }
+
+    /**
+     * Returns a counter that changes whenever the set of touched sub-chunks changes
+     */
+    public int getTouchedSubChunksVersion()
+    {
+        return this.touchedSubChunksVersion;
+    }
+
     public void addSchematicPlacement(SchematicPlacement placement, boolean printMessages)
     {
         if (this.schematicPlacements.contains(placement) == false)
@@ -436,6 +778,8 @@ public class SchematicPlacementManager
 
     private void updateTouchedBoxesInChunk(ChunkPos pos)
     {
+        int mask = 0;
+
         for (int y = 0; y < 16; ++y)
         {
             SubChunkPos subChunk = new SubChunkPos(pos.x, y, pos.z);
@@ -466,12 +810,27 @@ public class SchematicPlacementManager
                             IntBoundingBox bbSub = new IntBoundingBox(bbOrig.minX, y1, bbOrig.minZ, bbOrig.maxX, y2, bbOrig.maxZ);
                             PlacementPart part = new PlacementPart(placement, entry.getKey(), bbSub);
                             this.touchedVolumesInSubChunk.put(new SubChunkPos(pos.x, cy, pos.z), part);
+                            if (cy >= 0 && cy < 16)
+                            {
+                                mask |= (1 << cy);
+                            }
                             //System.out.printf("updateTouchedBoxesInChunk box at %d, %d, %d: %s\n", pos.x, cy, pos.z, bbSub);
                         }
                     }
                 }
             }
         }
+
+        if (mask != 0)
+        {
+            this.touchedSubChunkMasks.put(pos.toLong(), mask);
+        }
+        else
+        {
+            this.touchedSubChunkMasks.remove(pos.toLong());
+        }
+
+        ++this.touchedSubChunksVersion;
     }
 
     public void markAllPlacementsOfSchematicForRebuild(LitematicaSchematic schematic)
@@ -722,9 +1081,14 @@ public class SchematicPlacementManager
         this.selectedPlacement = null;
         this.schematicsTouchingChunk.clear();
         this.touchedVolumesInSubChunk.clear();
+        this.touchedSubChunkMasks.clear();
+        ++this.touchedSubChunksVersion;
         this.chunksPreChange.clear();
         this.chunksToRebuild.clear();
         this.chunksToUnload.clear();
+        this.chunksToRecount.clear();
+        this.cancelChunkBuilds();
+        this.printerWorkIndex.clear();
 
         SchematicHolder.getInstance().clearLoadedSchematics();
     }
@@ -844,4 +1208,20 @@ public class SchematicPlacementManager
             return this.bb;
         }
     }
+
+    private static class ChunkBuild
+    {
+        private final ChunkPos pos;
+        private final WorldSchematic world;
+        private final List<SchematicPlacement> placements;
+        private final CompletableFuture<ChunkSchematicBuilder> future;
+
+        private ChunkBuild(ChunkPos pos, WorldSchematic world, List<SchematicPlacement> placements, CompletableFuture<ChunkSchematicBuilder> future)
+        {
+            this.pos = pos;
+            this.world = world;
+            this.placements = placements;
+            this.future = future;
+        }
+    }
 }
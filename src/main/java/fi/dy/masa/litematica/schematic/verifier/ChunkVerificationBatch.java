@@ -0,0 +1,149 @@
+package fi.dy.masa.litematica.schematic.verifier;
+
+import java.util.List;
+import io.netty.buffer.Unpooled;
+import fi.dy.masa.malilib.util.IntBoundingBox;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.PacketByteBuf;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+
+/**
+ * The verification results of one chunk. These are computed on a worker thread
+ * from copies of the client and schematic chunk sections, and then merged into
+ * the verifier on the client thread.
+ */
+public class ChunkVerificationBatch
+{
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+
+    final ChunkPos chunkPos;
+    final LongArrayList mismatchPositions = new LongArrayList();
+    final LongArrayList mismatchPairKeys = new LongArrayList();
+    final Object2IntOpenHashMap<BlockState> correctStateCounts = new Object2IntOpenHashMap<>();
+    /** One position of each encountered state, for caching the items for the states on the client thread */
+    final Object2LongOpenHashMap<BlockState> clientStatePositions = new Object2LongOpenHashMap<>();
+    final Object2LongOpenHashMap<BlockState> schematicStatePositions = new Object2LongOpenHashMap<>();
+    int correctStatesCount;
+    int schematicBlocks;
+    int clientBlocks;
+
+    private ChunkVerificationBatch(ChunkPos chunkPos)
+    {
+        this.chunkPos = chunkPos;
+    }
+
+    /**
+     * Compares the blocks within the given boxes. The boxes must be within the chunk,
+     * and already clamped to the verified layer range.
+     */
+    public static ChunkVerificationBatch verify(ChunkPos chunkPos, ChunkSection[] sectionsClient, ChunkSection[] sectionsSchematic, List<IntBoundingBox> boxes)
+    {
+        ChunkVerificationBatch batch = new ChunkVerificationBatch(chunkPos);
+        BlockPos.Mutable posMutable = new BlockPos.Mutable();
+
+        for (IntBoundingBox box : boxes)
+        {
+            for (int y = box.minY; y <= box.maxY; ++y)
+            {
+                ChunkSection sectionClient = getSection(sectionsClient, y);
+                ChunkSection sectionSchematic = getSection(sectionsSchematic, y);
+
+                for (int z = box.minZ; z <= box.maxZ; ++z)
+                {
+                    for (int x = box.minX; x <= box.maxX; ++x)
+                    {
+                        BlockState stateClient = sectionClient != null ? sectionClient.getBlockState(x & 0xF, y & 0xF, z & 0xF) : AIR;
+                        BlockState stateSchematic = sectionSchematic != null ? sectionSchematic.getBlockState(x & 0xF, y & 0xF, z & 0xF) : AIR;
+                        long posLong = posMutable.set(x, y, z).asLong();
+
+                        batch.checkBlockStates(posLong, stateSchematic, stateClient);
+
+                        if (stateSchematic.isAir() == false)
+                        {
+                            batch.schematicBlocks++;
+                        }
+
+                        if (stateClient.isAir() == false)
+                        {
+                            batch.clientBlocks++;
+                        }
+                    }
+                }
+            }
+        }
+
+        return batch;
+    }
+
+    private void checkBlockStates(long posLong, BlockState stateSchematic, BlockState stateClient)
+    {
+        if (this.clientStatePositions.containsKey(stateClient) == false)
+        {
+            this.clientStatePositions.put(stateClient, posLong);
+        }
+
+        if (stateClient != stateSchematic && (stateClient.isAir() == false || stateSchematic.isAir() == false))
+        {
+            // The ignored mismatches are filtered out when the batch is merged
+            this.mismatchPositions.add(posLong);
+            this.mismatchPairKeys.add(SchematicVerifier.getStatePairKey(stateSchematic, stateClient));
+
+            if (this.schematicStatePositions.containsKey(stateSchematic) == false)
+            {
+                this.schematicStatePositions.put(stateSchematic, posLong);
+            }
+        }
+        else
+        {
+            this.correctStateCounts.addTo(stateClient, 1);
+
+            if (stateSchematic.isAir() == false)
+            {
+                ++this.correctStatesCount;
+            }
+        }
+    }
+
+    private static ChunkSection getSection(ChunkSection[] sections, int y)
+    {
+        return y >= 0 && (y >> 4) < sections.length ? sections[y >> 4] : null;
+    }
+
+    /**
+     * Creates detached copies of the non-empty sections of the chunk within the given y-range,
+     * which can then be read safely on another thread. Must be called on the client thread.
+     */
+    public static ChunkSection[] copySections(Chunk chunk, int minY, int maxY)
+    {
+        ChunkSection[] sections = chunk.getSectionArray();
+        ChunkSection[] copies = new ChunkSection[sections.length];
+        PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+        final int max = Math.min(maxY >> 4, sections.length - 1);
+
+        for (int i = Math.max(minY >> 4, 0); i <= max; ++i)
+        {
+            ChunkSection section = sections[i];
+
+            if (ChunkSection.isEmpty(section) == false)
+            {
+                buf.clear();
+                section.toPacket(buf);
+
+                ChunkSection copy = new ChunkSection(section.getYOffset());
+                copy.fromPacket(buf);
+                copies[i] = copy;
+            }
+        }
+
+        buf.release();
+
+        return copies;
+    }
+}
@@ -0,0 +1,326 @@
+package fi.dy.masa.litematica.schematic.verifier;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * A spatial index of the mismatched positions of one mismatch type.
+ * The positions are bucketed by sub-chunk, so that the closest positions
+ * to a point can be found by only visiting the sub-chunks that can still
+ * contain a closer position than the ones already found, without sorting
+ * all the positions.
+ */
+public class MismatchPositionIndex
+{
+    private final Long2ObjectOpenHashMap<LongOpenHashSet> cells = new Long2ObjectOpenHashMap<>();
+    private long[] cellKeys = new long[0];
+    private long[] cellDistances = new long[0];
+
+    public void add(long posLong)
+    {
+        long cellKey = getCellKey(posLong);
+        LongOpenHashSet positions = this.cells.get(cellKey);
+
+        if (positions == null)
+        {
+            positions = new LongOpenHashSet();
+            this.cells.put(cellKey, positions);
+        }
+
+        positions.add(posLong);
+    }
+
+    public void remove(long posLong)
+    {
+        long cellKey = getCellKey(posLong);
+        LongOpenHashSet positions = this.cells.get(cellKey);
+
+        if (positions != null && positions.remove(posLong) && positions.isEmpty())
+        {
+            this.cells.remove(cellKey);
+        }
+    }
+
+    public void clear()
+    {
+        this.cells.clear();
+    }
+
+    public boolean isEmpty()
+    {
+        return this.cells.isEmpty();
+    }
+
+    /**
+     * Offers the closest positions matching the filter to the collector.
+     * The sub-chunks are visited in the order of their minimum distance to the center,
+     * and the search stops once that distance is larger than the furthest collected position.
+     * @param filter an optional filter for the positions, or null to accept all positions
+     * @param tag the tag stored with the offered positions
+     */
+    public void collectClosest(NearestPositions collector, @Nullable LongPredicate filter, int tag)
+    {
+        final int count = this.cells.size();
+
+        if (count == 0)
+        {
+            return;
+        }
+
+        if (this.cellKeys.length < count)
+        {
+            this.cellKeys = new long[count];
+            this.cellDistances = new long[count];
+        }
+
+        long[] keys = this.cellKeys;
+        long[] distances = this.cellDistances;
+        ObjectIterator<Long2ObjectMap.Entry<LongOpenHashSet>> iter = this.cells.long2ObjectEntrySet().fastIterator();
+        int index = 0;
+
+        while (iter.hasNext())
+        {
+            long cellKey = iter.next().getLongKey();
+            keys[index] = cellKey;
+            distances[index] = collector.getMinSquaredDistanceToCell(cellKey);
+            ++index;
+        }
+
+        sortByDistance(keys, distances, count);
+
+        for (int i = 0; i < count; ++i)
+        {
+            if (distances[i] > collector.getFurthestSquaredDistance())
+            {
+                break;
+            }
+
+            LongIterator posIter = this.cells.get(keys[i]).iterator();
+
+            while (posIter.hasNext())
+            {
+                long posLong = posIter.nextLong();
+
+                if (filter == null || filter.test(posLong))
+                {
+                    collector.offer(posLong, tag);
+                }
+            }
+        }
+    }
+
+    private static long getCellKey(long posLong)
+    {
+        return BlockPos.asLong(BlockPos.unpackLongX(posLong) >> 4, BlockPos.unpackLongY(posLong) >> 4, BlockPos.unpackLongZ(posLong) >> 4);
+    }
+
+    /**
+     * Sorts the keys by their distances, using a packed index array
+     * so that the two arrays can be sorted together without boxing.
+     */
+    private static void sortByDistance(long[] keys, long[] distances, int count)
+    {
+        // The squared distances fit in 32 bits for any sensible distance, clamp just in case
+        long[] packed = new long[count];
+
+        for (int i = 0; i < count; ++i)
+        {
+            packed[i] = (Math.min(distances[i], 0x7FFFFFFFL) << 32) | i;
+        }
+
+        Arrays.sort(packed);
+
+        long[] keysSorted = new long[count];
+
+        for (int i = 0; i < count; ++i)
+        {
+            int index = (int) packed[i];
+            keysSorted[i] = keys[index];
+            distances[i] = packed[i] >>> 32;
+        }
+
+        System.arraycopy(keysSorted, 0, keys, 0, count);
+    }
+
+    /**
+     * Collects up to a given number of the closest positions to a center point,
+     * using a bounded max-heap on the squared distance.
+     */
+    public static class NearestPositions
+    {
+        private final int centerX;
+        private final int centerY;
+        private final int centerZ;
+        private final int maxEntries;
+        private final long[] positions;
+        private final long[] distances;
+        private final int[] tags;
+        private int size;
+
+        public NearestPositions(BlockPos center, int maxEntries)
+        {
+            this.centerX = center.getX();
+            this.centerY = center.getY();
+            this.centerZ = center.getZ();
+            this.maxEntries = maxEntries;
+            this.positions = new long[maxEntries];
+            this.distances = new long[maxEntries];
+            this.tags = new int[maxEntries];
+        }
+
+        /**
+         * @return the squared distance of the furthest collected position,
+         * or Long.MAX_VALUE if there is still room for more positions
+         */
+        public long getFurthestSquaredDistance()
+        {
+            return this.size < this.maxEntries ? Long.MAX_VALUE : this.distances[0];
+        }
+
+        private long getMinSquaredDistanceToCell(long cellKey)
+        {
+            long dx = getMinAxisDistance(this.centerX, BlockPos.unpackLongX(cellKey) << 4);
+            long dy = getMinAxisDistance(this.centerY, BlockPos.unpackLongY(cellKey) << 4);
+            long dz = getMinAxisDistance(this.centerZ, BlockPos.unpackLongZ(cellKey) << 4);
+
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        private static long getMinAxisDistance(int center, int cellMin)
+        {
+            if (center < cellMin)
+            {
+                return cellMin - center;
+            }
+            else if (center > cellMin + 15)
+            {
+                return center - cellMin - 15;
+            }
+
+            return 0;
+        }
+
+        public void offer(long posLong, int tag)
+        {
+            long dx = BlockPos.unpackLongX(posLong) - this.centerX;
+            long dy = BlockPos.unpackLongY(posLong) - this.centerY;
+            long dz = BlockPos.unpackLongZ(posLong) - this.centerZ;
+            long dist = dx * dx + dy * dy + dz * dz;
+
+            if (this.size < this.maxEntries)
+            {
+                int index = this.size++;
+
+                // Sift up
+                while (index > 0)
+                {
+                    int parent = (index - 1) >> 1;
+
+                    if (this.distances[parent] >= dist)
+                    {
+                        break;
+                    }
+
+                    this.set(index, parent);
+                    index = parent;
+                }
+
+                this.set(index, posLong, dist, tag);
+            }
+            else if (dist < this.distances[0])
+            {
+                this.replaceRoot(posLong, dist, tag);
+            }
+        }
+
+        private void replaceRoot(long posLong, long dist, int tag)
+        {
+            int index = 0;
+
+            // Sift down
+            while (true)
+            {
+                int child = (index << 1) + 1;
+
+                if (child >= this.size)
+                {
+                    break;
+                }
+
+                if (child + 1 < this.size && this.distances[child + 1] > this.distances[child])
+                {
+                    ++child;
+                }
+
+                if (this.distances[child] <= dist)
+                {
+                    break;
+                }
+
+                this.set(index, child);
+                index = child;
+            }
+
+            this.set(index, posLong, dist, tag);
+        }
+
+        private void set(int index, int fromIndex)
+        {
+            this.set(index, this.positions[fromIndex], this.distances[fromIndex], this.tags[fromIndex]);
+        }
+
+        private void set(int index, long posLong, long dist, int tag)
+        {
+            this.positions[index] = posLong;
+            this.distances[index] = dist;
+            this.tags[index] = tag;
+        }
+
+        public int size()
+        {
+            return this.size;
+        }
+
+        /**
+         * Empties the collector, passing the positions to the consumer in order of increasing distance
+         */
+        public void drainClosestFirst(IPositionConsumer consumer)
+        {
+            final int count = this.size;
+            long[] positions = new long[count];
+            int[] tags = new int[count];
+
+            // Pop the furthest position each time, filling the arrays from the end
+            for (int i = count - 1; i >= 0; --i)
+            {
+                positions[i] = this.positions[0];
+                tags[i] = this.tags[0];
+
+                --this.size;
+
+                if (this.size > 0)
+                {
+                    int last = this.size;
+                    this.replaceRoot(this.positions[last], this.distances[last], this.tags[last]);
+                }
+            }
+
+            for (int i = 0; i < count; ++i)
+            {
+                consumer.accept(positions[i], tags[i]);
+            }
+        }
+    }
+
+    public interface IPositionConsumer
+    {
+        void accept(long posLong, int tag);
+    }
+}
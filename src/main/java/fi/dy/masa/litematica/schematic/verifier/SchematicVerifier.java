@@ -1,6 +1,7 @@
 package fi.dy.masa.litematica.schematic.verifier;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -9,12 +10,16 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import javax.annotation.Nullable;
-import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.world.ClientWorld;
@@ -23,6 +28,8 @@ import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+import fi.dy.masa.litematica.Litematica;
 import fi.dy.masa.litematica.config.Configs;
 import fi.dy.masa.litematica.data.DataManager;
 import fi.dy.masa.litematica.render.infohud.IInfoHudRenderer;
@@ -33,7 +40,6 @@ import fi.dy.masa.litematica.scheduler.tasks.TaskBase;
 import fi.dy.masa.litematica.schematic.placement.SchematicPlacement;
 import fi.dy.masa.litematica.util.BlockInfoListType;
 import fi.dy.masa.litematica.util.ItemUtils;
-import fi.dy.masa.litematica.util.PositionUtils;
 import fi.dy.masa.litematica.util.WorldUtils;
 import fi.dy.masa.litematica.world.WorldSchematic;
 import fi.dy.masa.malilib.gui.GuiBase;
@@ -43,30 +49,45 @@ import fi.dy.masa.malilib.util.Color4f;
 import fi.dy.masa.malilib.util.IntBoundingBox;
 import fi.dy.masa.malilib.util.LayerRange;
 import fi.dy.masa.malilib.util.StringUtils;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
 
+/**
+ * The mismatched positions are stored as packed longs in primitive collections,
+ * grouped by the (expected, found) state pair. The state pairs are identified by
+ * a long key made from the global block state ids of the two states, see {@link #getStatePairKey(BlockState, BlockState)}.
+ */
 public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
 {
-    private static final MutablePair<BlockState, BlockState> MUTABLE_PAIR = new MutablePair<>();
     private static final BlockPos.Mutable MUTABLE_POS = new BlockPos.Mutable();
     private static final List<SchematicVerifier> ACTIVE_VERIFIERS = new ArrayList<>();
-
-    private final ArrayListMultimap<Pair<BlockState, BlockState>, BlockPos> missingBlocksPositions = ArrayListMultimap.create();
-    private final ArrayListMultimap<Pair<BlockState, BlockState>, BlockPos> extraBlocksPositions = ArrayListMultimap.create();
-    private final ArrayListMultimap<Pair<BlockState, BlockState>, BlockPos> wrongBlocksPositions = ArrayListMultimap.create();
-    private final ArrayListMultimap<Pair<BlockState, BlockState>, BlockPos> wrongStatesPositions = ArrayListMultimap.create();
+    private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder().setNameFormat("Litematica Verifier %d").setDaemon(true).build();
+    @Nullable private static ExecutorService executor;
+    private static int executorThreadCount;
+
+    private final Long2ObjectOpenHashMap<LongOpenHashSet> missingBlocksPositions = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<LongOpenHashSet> extraBlocksPositions = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<LongOpenHashSet> wrongBlocksPositions = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<LongOpenHashSet> wrongStatesPositions = new Long2ObjectOpenHashMap<>();
+    private final int[] mismatchCounts = new int[MismatchType.values().length];
     private final Object2IntOpenHashMap<BlockState> correctStateCounts = new Object2IntOpenHashMap<>();
-    private final Object2ObjectOpenHashMap<BlockPos, BlockMismatch> blockMismatches = new Object2ObjectOpenHashMap<>();
+    /** The state pair key of each mismatched position */
+    private final Long2LongOpenHashMap mismatchPairsByPosition = new Long2LongOpenHashMap();
     private final HashSet<Pair<BlockState, BlockState>> ignoredMismatches = new HashSet<>();
-    private final List<BlockPos> missingBlocksPositionsClosest = new ArrayList<>();
-    private final List<BlockPos> extraBlocksPositionsClosest = new ArrayList<>();
-    private final List<BlockPos> mismatchedBlocksPositionsClosest = new ArrayList<>();
-    private final List<BlockPos> mismatchedStatesPositionsClosest = new ArrayList<>();
+    private final LongOpenHashSet ignoredMismatchKeys = new LongOpenHashSet();
+    /** The spatial indices of the mismatched positions, indexed by the MismatchType ordinal */
+    private final MismatchPositionIndex[] mismatchIndices = new MismatchPositionIndex[MismatchType.values().length];
     private final Set<MismatchType> selectedCategories = new HashSet<>();
     private final HashMultimap<MismatchType, BlockMismatch> selectedEntries = HashMultimap.create();
     private final Set<ChunkPos> requiredChunks = new HashSet<>();
-    private final Set<BlockPos> recheckQueue = new HashSet<>();
+    private final LongOpenHashSet recheckQueue = new LongOpenHashSet();
+    private final List<CompletableFuture<ChunkVerificationBatch>> chunksInProgress = new ArrayList<>();
     private final MinecraftClient mc = MinecraftClient.getInstance();
     private ClientWorld worldClient;
     private WorldSchematic worldSchematic;
@@ -82,15 +103,36 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
     private int schematicBlocks;
     private int clientBlocks;
     private int correctStatesCount;
+    @Nullable private BlockPos lastOverlayCenter;
 
     public SchematicVerifier()
     {
         this.name = StringUtils.translate("litematica.gui.label.schematic_verifier.verifier");
+        this.mismatchPairsByPosition.defaultReturnValue(-1L);
+
+        for (int i = 0; i < this.mismatchIndices.length; ++i)
+        {
+            this.mismatchIndices[i] = new MismatchPositionIndex();
+        }
     }
 
     public static void clearActiveVerifiers()
     {
         ACTIVE_VERIFIERS.clear();
+        shutdownExecutor();
+    }
+
+    /**
+     * Called when the verifier thread count option changes. The old threads finish
+     * any already queued chunks, and the next chunks go to a new pool with the new thread count.
+     */
+    public static void onThreadCountChanged()
+    {
+        if (executor != null)
+        {
+            executor.shutdown();
+            executor = null;
+        }
     }
 
     public static void markVerifierBlockChanges(BlockPos pos)
@@ -150,22 +192,22 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
 
     public int getMissingBlocks()
     {
-        return this.missingBlocksPositions.size();
+        return this.mismatchCounts[MismatchType.MISSING.ordinal()];
     }
 
     public int getExtraBlocks()
     {
-        return this.extraBlocksPositions.size();
+        return this.mismatchCounts[MismatchType.EXTRA.ordinal()];
     }
 
     public int getMismatchedBlocks()
     {
-        return this.wrongBlocksPositions.size();
+        return this.mismatchCounts[MismatchType.WRONG_BLOCK.ordinal()];
     }
 
     public int getMismatchedStates()
     {
-        return this.wrongStatesPositions.size();
+        return this.mismatchCounts[MismatchType.WRONG_STATE.ordinal()];
     }
 
     public int getCorrectStatesCount()
@@ -296,6 +338,7 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
     {
         this.verifyChunks();
         this.checkChangedPositions();
+        this.updateMismatchOverlaysIfMoved();
         return false;
     }
 
@@ -367,12 +410,26 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
         this.clientBlocks = 0;
         this.requiredChunks.clear();
         this.recheckQueue.clear();
+        // The chunk verifications that haven't started yet are skipped, and the results of the running ones are dropped
+        for (CompletableFuture<ChunkVerificationBatch> future : this.chunksInProgress)
+        {
+            future.cancel(false);
+        }
+
+        this.chunksInProgress.clear();
 
         this.missingBlocksPositions.clear();
         this.extraBlocksPositions.clear();
         this.wrongBlocksPositions.clear();
         this.wrongStatesPositions.clear();
-        this.blockMismatches.clear();
+        Arrays.fill(this.mismatchCounts, 0);
+        this.mismatchPairsByPosition.clear();
+        this.lastOverlayCenter = null;
+
+        for (MismatchPositionIndex index : this.mismatchIndices)
+        {
+            index.clear();
+        }
         this.correctStateCounts.clear();
         this.selectedCategories.clear();
         this.selectedEntries.clear();
@@ -382,6 +439,11 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
         ACTIVE_VERIFIERS.remove(this);
         TaskScheduler.getInstanceClient().removeTask(this);
 
+        if (ACTIVE_VERIFIERS.isEmpty())
+        {
+            shutdownExecutor();
+        }
+
         InfoHud.getInstance().removeInfoHudRenderer(this, false);
         this.clearActiveMismatchRenderPositions();
     }
@@ -390,11 +452,11 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
     {
         if (this.finished)
         {
-            BlockMismatch mismatch = this.blockMismatches.get(pos);
+            long posLong = pos.asLong();
 
-            if (mismatch != null)
+            if (this.mismatchPairsByPosition.containsKey(posLong))
             {
-                this.recheckQueue.add(pos);
+                this.recheckQueue.add(posLong);
             }
         }
     }
@@ -403,29 +465,27 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
     {
         if (this.finished && this.recheckQueue.isEmpty() == false)
         {
-            Iterator<BlockPos> iter = this.recheckQueue.iterator();
+            LongIterator iter = this.recheckQueue.iterator();
 
             while (iter.hasNext())
             {
-                BlockPos pos = iter.next();
+                long posLong = iter.nextLong();
+                BlockPos pos = BlockPos.fromLong(posLong);
 
                 if (this.worldClient.isChunkLoaded(pos) &&
                     this.worldSchematic.isChunkLoaded(pos))
                 {
-                    BlockMismatch mismatch = this.blockMismatches.get(pos);
+                    long pairKey = this.removeMismatch(posLong);
 
-                    if (mismatch != null)
+                    if (pairKey != -1L)
                     {
-                        this.blockMismatches.remove(pos);
-
+                        BlockState stateExpected = getExpectedState(pairKey);
+                        BlockState stateFoundOld = getFoundState(pairKey);
                         BlockState stateFound = this.worldClient.getBlockState(pos);
-                        MUTABLE_PAIR.setLeft(mismatch.stateExpected);
-                        MUTABLE_PAIR.setRight(mismatch.stateFound);
 
-                        this.getMapForMismatchType(mismatch.mismatchType).remove(MUTABLE_PAIR, pos);
-                        this.checkBlockStates(pos.getX(), pos.getY(), pos.getZ(), mismatch.stateExpected, stateFound);
+                        this.checkBlockStates(pos, stateExpected, stateFound);
 
-                        if (stateFound.isAir() == false && mismatch.stateFound.isAir())
+                        if (stateFound.isAir() == false && stateFoundOld.isAir())
                         {
                             this.clientBlocks++;
                         }
@@ -434,7 +494,7 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
                     {
                         BlockState stateExpected = this.worldSchematic.getBlockState(pos);
                         BlockState stateFound = this.worldClient.getBlockState(pos);
-                        this.checkBlockStates(pos.getX(), pos.getY(), pos.getZ(), stateExpected, stateFound);
+                        this.checkBlockStates(pos, stateExpected, stateFound);
                     }
 
                     iter.remove();
@@ -448,7 +508,7 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
         }
     }
 
-    private ArrayListMultimap<Pair<BlockState, BlockState>, BlockPos> getMapForMismatchType(MismatchType mismatchType)
+    private Long2ObjectOpenHashMap<LongOpenHashSet> getMapForMismatchType(MismatchType mismatchType)
     {
         switch (mismatchType)
         {
@@ -465,12 +525,94 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
         }
     }
 
+    /**
+     * Creates the key identifying an (expected, found) state pair, from the global block state ids of the states
+     */
+    public static long getStatePairKey(BlockState stateExpected, BlockState stateFound)
+    {
+        return ((long) Block.getRawIdFromState(stateExpected) << 32) | (Block.getRawIdFromState(stateFound) & 0xFFFFFFFFL);
+    }
+
+    public static BlockState getExpectedState(long pairKey)
+    {
+        return Block.getStateFromRawId((int) (pairKey >>> 32));
+    }
+
+    public static BlockState getFoundState(long pairKey)
+    {
+        return Block.getStateFromRawId((int) pairKey);
+    }
+
+    private static MismatchType getMismatchType(BlockState stateExpected, BlockState stateFound)
+    {
+        if (stateExpected.isAir())
+        {
+            return MismatchType.EXTRA;
+        }
+        else if (stateFound.isAir())
+        {
+            return MismatchType.MISSING;
+        }
+
+        return stateExpected.getBlock() != stateFound.getBlock() ? MismatchType.WRONG_BLOCK : MismatchType.WRONG_STATE;
+    }
+
+    private void addMismatch(long posLong, long pairKey, MismatchType type)
+    {
+        Long2ObjectOpenHashMap<LongOpenHashSet> map = this.getMapForMismatchType(type);
+        LongOpenHashSet positions = map.get(pairKey);
+
+        if (positions == null)
+        {
+            positions = new LongOpenHashSet();
+            map.put(pairKey, positions);
+        }
+
+        if (positions.add(posLong))
+        {
+            ++this.mismatchCounts[type.ordinal()];
+            this.mismatchIndices[type.ordinal()].add(posLong);
+        }
+
+        this.mismatchPairsByPosition.put(posLong, pairKey);
+    }
+
+    /**
+     * Removes the mismatch from the given position, if there is one
+     * @return the state pair key of the removed mismatch, or -1 if there was no mismatch
+     */
+    private long removeMismatch(long posLong)
+    {
+        long pairKey = this.mismatchPairsByPosition.remove(posLong);
+
+        if (pairKey != -1L)
+        {
+            MismatchType type = getMismatchType(getExpectedState(pairKey), getFoundState(pairKey));
+            Long2ObjectOpenHashMap<LongOpenHashSet> map = this.getMapForMismatchType(type);
+            LongOpenHashSet positions = map.get(pairKey);
+
+            if (positions != null && positions.remove(posLong))
+            {
+                --this.mismatchCounts[type.ordinal()];
+                this.mismatchIndices[type.ordinal()].remove(posLong);
+
+                if (positions.isEmpty())
+                {
+                    map.remove(pairKey);
+                }
+            }
+        }
+
+        return pairKey;
+    }
+
     private boolean verifyChunks()
     {
         if (this.verificationActive)
         {
+            final int threadCount = Configs.Generic.VERIFIER_THREADS.getIntegerValue();
+            boolean checkedSome = this.mergeFinishedChunks();
             Iterator<ChunkPos> iter = this.requiredChunks.iterator();
-            boolean checkedSome = false;
 
             while (iter.hasNext())
             {
@@ -479,6 +621,12 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
                     break;
                 }
 
+                // Keep a few chunks per thread queued, the rest are copied when there is room
+                if (threadCount > 0 && this.chunksInProgress.size() >= threadCount * 4)
+                {
+                    break;
+                }
+
                 ChunkPos pos = iter.next();
                 int count = 0;
 
@@ -500,13 +648,21 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
                     Chunk chunkSchematic = this.worldSchematic.getChunk(pos.x, pos.z);
                     Map<String, IntBoundingBox> boxes = this.schematicPlacement.getBoxesWithinChunk(pos.x, pos.z);
 
-                    for (IntBoundingBox box : boxes.values())
+                    if (threadCount > 0)
+                    {
+                        this.startChunkVerification(pos, chunkClient, chunkSchematic, boxes.values(), threadCount);
+                    }
+                    else
                     {
-                        this.verifyChunk(chunkClient, chunkSchematic, box);
+                        for (IntBoundingBox box : boxes.values())
+                        {
+                            this.verifyChunk(chunkClient, chunkSchematic, box);
+                        }
+
+                        checkedSome = true;
                     }
 
                     iter.remove();
-                    checkedSome = true;
                 }
             }
 
@@ -515,7 +671,7 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
                 this.updateRequiredChunksStringList();
             }
 
-            if (this.requiredChunks.isEmpty())
+            if (this.requiredChunks.isEmpty() && this.chunksInProgress.isEmpty())
             {
                 this.verificationActive = false;
                 this.verificationStarted = false;
@@ -528,6 +684,142 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
         return this.verificationActive == false; // finished or stopped
     }
 
+    /**
+     * Copies the chunk sections for the boxes, and starts comparing them on a worker thread
+     */
+    private void startChunkVerification(ChunkPos pos, Chunk chunkClient, Chunk chunkSchematic, Collection<IntBoundingBox> boxes, int threadCount)
+    {
+        List<IntBoundingBox> clampedBoxes = new ArrayList<>();
+        int minY = 255;
+        int maxY = 0;
+
+        for (IntBoundingBox box : boxes)
+        {
+            IntBoundingBox clamped = this.getVerifiedBox(box);
+
+            if (clamped != null)
+            {
+                clampedBoxes.add(clamped);
+                minY = Math.min(minY, clamped.minY);
+                maxY = Math.max(maxY, clamped.maxY);
+            }
+        }
+
+        if (clampedBoxes.isEmpty())
+        {
+            return;
+        }
+
+        ChunkSection[] sectionsClient = ChunkVerificationBatch.copySections(chunkClient, minY, maxY);
+        ChunkSection[] sectionsSchematic = ChunkVerificationBatch.copySections(chunkSchematic, minY, maxY);
+
+        this.chunksInProgress.add(CompletableFuture.supplyAsync(() ->
+                ChunkVerificationBatch.verify(pos, sectionsClient, sectionsSchematic, clampedBoxes), getExecutor(threadCount)));
+    }
+
+    /**
+     * Merges the results of the finished chunk verifications, within the tick time budget
+     * @return true if any results were merged
+     */
+    private boolean mergeFinishedChunks()
+    {
+        Iterator<CompletableFuture<ChunkVerificationBatch>> iter = this.chunksInProgress.iterator();
+        boolean mergedSome = false;
+
+        while (iter.hasNext())
+        {
+            if ((System.nanoTime() - DataManager.getClientTickStartTime()) >= 50000000L)
+            {
+                break;
+            }
+
+            CompletableFuture<ChunkVerificationBatch> future = iter.next();
+
+            if (future.isDone() == false)
+            {
+                continue;
+            }
+
+            iter.remove();
+
+            try
+            {
+                this.mergeChunkBatch(future.join());
+                mergedSome = true;
+            }
+            catch (Exception e)
+            {
+                Litematica.logger.warn("Schematic verifier: Failed to verify a chunk", e);
+            }
+        }
+
+        return mergedSome;
+    }
+
+    private void mergeChunkBatch(ChunkVerificationBatch batch)
+    {
+        final int size = batch.mismatchPositions.size();
+
+        for (int i = 0; i < size; ++i)
+        {
+            long pairKey = batch.mismatchPairKeys.getLong(i);
+
+            if (this.ignoredMismatchKeys.contains(pairKey) == false)
+            {
+                this.addMismatch(batch.mismatchPositions.getLong(i), pairKey, getMismatchType(getExpectedState(pairKey), getFoundState(pairKey)));
+            }
+        }
+
+        for (Object2IntMap.Entry<BlockState> entry : batch.correctStateCounts.object2IntEntrySet())
+        {
+            this.correctStateCounts.addTo(entry.getKey(), entry.getIntValue());
+        }
+
+        for (Object2LongMap.Entry<BlockState> entry : batch.clientStatePositions.object2LongEntrySet())
+        {
+            ItemUtils.setItemForBlock(this.worldClient, BlockPos.fromLong(entry.getLongValue()), entry.getKey());
+        }
+
+        for (Object2LongMap.Entry<BlockState> entry : batch.schematicStatePositions.object2LongEntrySet())
+        {
+            ItemUtils.setItemForBlock(this.worldSchematic, BlockPos.fromLong(entry.getLongValue()), entry.getKey());
+        }
+
+        this.correctStatesCount += batch.correctStatesCount;
+        this.schematicBlocks += batch.schematicBlocks;
+        this.clientBlocks += batch.clientBlocks;
+    }
+
+    private static ExecutorService getExecutor(int threadCount)
+    {
+        if (executor == null || executorThreadCount != threadCount)
+        {
+            // Any already queued chunks still finish on the old executor
+            if (executor != null)
+            {
+                executor.shutdown();
+            }
+
+            executor = Executors.newFixedThreadPool(threadCount, THREAD_FACTORY);
+            executorThreadCount = threadCount;
+        }
+
+        return executor;
+    }
+
+    /**
+     * Shuts down the verifier threads when there are no verifiers running anymore.
+     * The pool gets re-created when the next verification starts.
+     */
+    private static void shutdownExecutor()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
     public void ignoreStateMismatch(BlockMismatch mismatch)
     {
         this.ignoreStateMismatch(mismatch, true);
@@ -535,22 +827,25 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
 
     private void ignoreStateMismatch(BlockMismatch mismatch, boolean updateOverlay)
     {
-        Pair<BlockState, BlockState> ignore = Pair.of(mismatch.stateExpected, mismatch.stateFound);
+        long pairKey = getStatePairKey(mismatch.stateExpected, mismatch.stateFound);
 
-        if (this.ignoredMismatches.contains(ignore) == false)
+        if (this.ignoredMismatchKeys.add(pairKey))
         {
-            this.ignoredMismatches.add(ignore);
-            this.getMapForMismatchType(mismatch.mismatchType).removeAll(ignore);
+            this.ignoredMismatches.add(Pair.of(mismatch.stateExpected, mismatch.stateFound));
 
-            Iterator<Map.Entry<BlockPos, BlockMismatch>> iter = this.blockMismatches.entrySet().iterator();
+            LongOpenHashSet positions = this.getMapForMismatchType(mismatch.mismatchType).remove(pairKey);
 
-            while (iter.hasNext())
+            if (positions != null)
             {
-                Map.Entry<BlockPos, BlockMismatch> entry = iter.next();
+                MismatchPositionIndex index = this.mismatchIndices[mismatch.mismatchType.ordinal()];
+                this.mismatchCounts[mismatch.mismatchType.ordinal()] -= positions.size();
+                LongIterator iter = positions.iterator();
 
-                if (entry.getValue().equals(mismatch))
+                while (iter.hasNext())
                 {
-                    iter.remove();
+                    long posLong = iter.nextLong();
+                    this.mismatchPairsByPosition.remove(posLong);
+                    index.remove(posLong);
                 }
             }
         }
@@ -574,6 +869,7 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
     public void resetIgnoredStateMismatches()
     {
         this.ignoredMismatches.clear();
+        this.ignoredMismatchKeys.clear();
     }
 
     public Set<Pair<BlockState, BlockState>> getIgnoredMismatches()
@@ -589,7 +885,16 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
     @Nullable
     public BlockMismatch getMismatchForPosition(BlockPos pos)
     {
-        return this.blockMismatches.get(pos);
+        long pairKey = this.mismatchPairsByPosition.get(pos.asLong());
+
+        if (pairKey != -1L)
+        {
+            BlockState stateExpected = getExpectedState(pairKey);
+            BlockState stateFound = getFoundState(pairKey);
+            return new BlockMismatch(getMismatchType(stateExpected, stateFound), stateExpected, stateFound, 1);
+        }
+
+        return null;
     }
 
     public List<BlockMismatch> getMismatchOverviewFor(MismatchType type)
@@ -622,11 +927,12 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
         return list;
     }
 
-    private void addCountFor(MismatchType mismatchType, ArrayListMultimap<Pair<BlockState, BlockState>, BlockPos> map, List<BlockMismatch> list)
+    private void addCountFor(MismatchType mismatchType, Long2ObjectOpenHashMap<LongOpenHashSet> map, List<BlockMismatch> list)
     {
-        for (Pair<BlockState, BlockState> pair : map.keySet())
+        for (Long2ObjectMap.Entry<LongOpenHashSet> entry : map.long2ObjectEntrySet())
         {
-            list.add(new BlockMismatch(mismatchType, pair.getLeft(), pair.getRight(), map.get(pair).size()));
+            long pairKey = entry.getLongKey();
+            list.add(new BlockMismatch(mismatchType, getExpectedState(pairKey), getFoundState(pairKey), entry.getValue().size()));
         }
     }
 
@@ -671,7 +977,13 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
         return list;
     }
 
-    private boolean verifyChunk(Chunk chunkClient, Chunk chunkSchematic, IntBoundingBox box)
+    /**
+     * Returns the part of the box that gets verified, which is the
+     * entire box, unless only the render layers are being verified
+     * @return the clamped box, or null if nothing within the box gets verified
+     */
+    @Nullable
+    private IntBoundingBox getVerifiedBox(IntBoundingBox box)
     {
         LayerRange range = DataManager.getRenderLayerRange();
         Direction.Axis axis = range.getAxis();
@@ -684,6 +996,30 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
         final int endY = ranged && axis == Direction.Axis.Y ? Math.min(box.maxY, range.getLayerMax()) : box.maxY;
         final int endZ = ranged && axis == Direction.Axis.Z ? Math.min(box.maxZ, range.getLayerMax()) : box.maxZ;
 
+        if (startX > endX || startY > endY || startZ > endZ)
+        {
+            return null;
+        }
+
+        return new IntBoundingBox(startX, startY, startZ, endX, endY, endZ);
+    }
+
+    private boolean verifyChunk(Chunk chunkClient, Chunk chunkSchematic, IntBoundingBox box)
+    {
+        box = this.getVerifiedBox(box);
+
+        if (box == null)
+        {
+            return true;
+        }
+
+        final int startX = box.minX;
+        final int startY = box.minY;
+        final int startZ = box.minZ;
+        final int endX = box.maxX;
+        final int endY = box.maxY;
+        final int endZ = box.maxZ;
+
         for (int y = startY; y <= endY; ++y)
         {
             for (int z = startZ; z <= endZ; ++z)
@@ -694,7 +1030,7 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
                     BlockState stateClient = chunkClient.getBlockState(MUTABLE_POS);
                     BlockState stateSchematic = chunkSchematic.getBlockState(MUTABLE_POS);
 
-                    this.checkBlockStates(x, y, z, stateSchematic, stateClient);
+                    this.checkBlockStates(MUTABLE_POS, stateSchematic, stateClient);
 
                     if (stateSchematic.isAir() == false)
                     {
@@ -712,47 +1048,15 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
         return true;
     }
 
-    private void checkBlockStates(int x, int y, int z, BlockState stateSchematic, BlockState stateClient)
+    private void checkBlockStates(BlockPos pos, BlockState stateSchematic, BlockState stateClient)
     {
-        BlockPos pos = new BlockPos(x, y, z);
-
         if (stateClient != stateSchematic && (stateClient.isAir() == false || stateSchematic.isAir() == false))
         {
-            MUTABLE_PAIR.setLeft(stateSchematic);
-            MUTABLE_PAIR.setRight(stateClient);
+            long pairKey = getStatePairKey(stateSchematic, stateClient);
 
-            if (this.ignoredMismatches.contains(MUTABLE_PAIR) == false)
+            if (this.ignoredMismatchKeys.contains(pairKey) == false)
             {
-                BlockMismatch mismatch;
-
-                if (stateSchematic.isAir() == false)
-                {
-                    if (stateClient.isAir())
-                    {
-                        mismatch = new BlockMismatch(MismatchType.MISSING, stateSchematic, stateClient, 1);
-                        this.missingBlocksPositions.put(Pair.of(stateSchematic, stateClient), pos);
-                    }
-                    else
-                    {
-                        if (stateSchematic.getBlock() != stateClient.getBlock())
-                        {
-                            mismatch = new BlockMismatch(MismatchType.WRONG_BLOCK, stateSchematic, stateClient, 1);
-                            this.wrongBlocksPositions.put(Pair.of(stateSchematic, stateClient), pos);
-                        }
-                        else
-                        {
-                            mismatch = new BlockMismatch(MismatchType.WRONG_STATE, stateSchematic, stateClient, 1);
-                            this.wrongStatesPositions.put(Pair.of(stateSchematic, stateClient), pos);
-                        }
-                    }
-                }
-                else
-                {
-                    mismatch = new BlockMismatch(MismatchType.EXTRA, stateSchematic, stateClient, 1);
-                    this.extraBlocksPositions.put(Pair.of(stateSchematic, stateClient), pos);
-                }
-
-                this.blockMismatches.put(pos, mismatch);
+                this.addMismatch(pos.asLong(), pairKey, getMismatchType(stateSchematic, stateClient));
 
                 ItemUtils.setItemForBlock(this.worldClient, pos, stateClient);
                 ItemUtils.setItemForBlock(this.worldSchematic, pos, stateSchematic);
@@ -770,6 +1074,24 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
         }
     }
 
+    /**
+     * Refreshes the closest mismatch overlay positions when the player has moved
+     * far enough since the last update, as long as something is selected
+     */
+    private void updateMismatchOverlaysIfMoved()
+    {
+        if (this.mc.player != null && this.lastOverlayCenter != null &&
+            (this.selectedCategories.isEmpty() == false || this.selectedEntries.isEmpty() == false))
+        {
+            BlockPos centerPos = new BlockPos(this.mc.player.getPos());
+
+            if (centerPos.getSquaredDistance(this.lastOverlayCenter) >= 16)
+            {
+                this.updateMismatchOverlays();
+            }
+        }
+    }
+
     private void updateMismatchOverlays()
     {
         if (this.mc.player != null)
@@ -779,7 +1101,7 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
             // This needs to happen first
             BlockPos centerPos = new BlockPos(this.mc.player.getPos());
             this.updateClosestPositions(centerPos, maxEntries);
-            this.combineClosestPositions(centerPos, maxEntries);
+            this.lastOverlayCenter = centerPos;
 
             // Only one category selected, show the title
             if (this.selectedCategories.size() == 1 && this.selectedEntries.size() == 0)
@@ -794,101 +1116,54 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
         }
     }
 
+    /**
+     * Finds the closest selected mismatch positions of all the types from the spatial indices,
+     * without sorting all the positions
+     */
     private void updateClosestPositions(BlockPos centerPos, int maxEntries)
     {
-        PositionUtils.BLOCK_POS_COMPARATOR.setReferencePosition(centerPos);
-        PositionUtils.BLOCK_POS_COMPARATOR.setClosestFirst(true);
+        this.mismatchPositionsForRender.clear();
+        this.mismatchBlockPositionsForRender.clear();
+
+        MismatchPositionIndex.NearestPositions nearest = new MismatchPositionIndex.NearestPositions(centerPos, maxEntries);
 
-        this.addAndSortPositions(MismatchType.WRONG_BLOCK,  this.wrongBlocksPositions, this.mismatchedBlocksPositionsClosest, maxEntries);
-        this.addAndSortPositions(MismatchType.WRONG_STATE,  this.wrongStatesPositions, this.mismatchedStatesPositionsClosest, maxEntries);
-        this.addAndSortPositions(MismatchType.EXTRA,        this.extraBlocksPositions, this.extraBlocksPositionsClosest, maxEntries);
-        this.addAndSortPositions(MismatchType.MISSING,      this.missingBlocksPositions, this.missingBlocksPositionsClosest, maxEntries);
+        this.collectClosestPositions(MismatchType.WRONG_BLOCK, nearest);
+        this.collectClosestPositions(MismatchType.WRONG_STATE, nearest);
+        this.collectClosestPositions(MismatchType.EXTRA, nearest);
+        this.collectClosestPositions(MismatchType.MISSING, nearest);
+
+        final MismatchType[] types = MismatchType.values();
+
+        nearest.drainClosestFirst((posLong, tag) -> {
+            BlockPos pos = BlockPos.fromLong(posLong);
+            this.mismatchPositionsForRender.add(new MismatchRenderPos(types[tag], pos));
+            this.mismatchBlockPositionsForRender.add(pos);
+        });
     }
 
-    private void addAndSortPositions(MismatchType type,
-            ArrayListMultimap<Pair<BlockState, BlockState>, BlockPos> sourceMap,
-            List<BlockPos> listOut, int maxEntries)
+    private void collectClosestPositions(MismatchType type, MismatchPositionIndex.NearestPositions nearest)
     {
-        listOut.clear();
-
-        //List<BlockPos> tempList = new ArrayList<>();
+        MismatchPositionIndex index = this.mismatchIndices[type.ordinal()];
 
         if (this.selectedCategories.contains(type))
         {
-            listOut.addAll(sourceMap.values());
+            index.collectClosest(nearest, null, type.ordinal());
         }
         else
         {
             Collection<BlockMismatch> mismatches = this.selectedEntries.get(type);
 
-            for (BlockMismatch mismatch : mismatches)
+            if (mismatches.isEmpty() == false)
             {
-                MUTABLE_PAIR.setLeft(mismatch.stateExpected);
-                MUTABLE_PAIR.setRight(mismatch.stateFound);
-                listOut.addAll(sourceMap.get(MUTABLE_PAIR));
-            }
-        }
-
-        Collections.sort(listOut, PositionUtils.BLOCK_POS_COMPARATOR);
-
-        /*
-        final int max = Math.min(maxEntries, tempList.size());
-
-        for (int i = 0; i < max; ++i)
-        {
-            listOut.add(tempList.get(i));
-        }
-        */
-    }
-
-    private void combineClosestPositions(BlockPos centerPos, int maxEntries)
-    {
-        this.mismatchPositionsForRender.clear();
-        this.mismatchBlockPositionsForRender.clear();
-
-        List<MismatchRenderPos> tempList = new ArrayList<>();
-
-        this.getMismatchRenderPositionFor(MismatchType.WRONG_BLOCK, tempList);
-        this.getMismatchRenderPositionFor(MismatchType.WRONG_STATE, tempList);
-        this.getMismatchRenderPositionFor(MismatchType.EXTRA, tempList);
-        this.getMismatchRenderPositionFor(MismatchType.MISSING, tempList);
-
-        Collections.sort(tempList, new RenderPosComparator(centerPos, true));
-
-        final int max = Math.min(maxEntries, tempList.size());
-
-        for (int i = 0; i < max; ++i)
-        {
-            MismatchRenderPos entry = tempList.get(i);
-            this.mismatchPositionsForRender.add(entry);
-            this.mismatchBlockPositionsForRender.add(entry.pos);
-        }
-    }
-
-    private void getMismatchRenderPositionFor(MismatchType type, List<MismatchRenderPos> listOut)
-    {
-        List<BlockPos> list = this.getClosestMismatchedPositionsFor(type);
+                LongOpenHashSet pairKeys = new LongOpenHashSet();
 
-        for (BlockPos pos : list)
-        {
-            listOut.add(new MismatchRenderPos(type, pos));
-        }
-    }
+                for (BlockMismatch mismatch : mismatches)
+                {
+                    pairKeys.add(getStatePairKey(mismatch.stateExpected, mismatch.stateFound));
+                }
 
-    private List<BlockPos> getClosestMismatchedPositionsFor(MismatchType type)
-    {
-        switch (type)
-        {
-            case MISSING:
-                return this.missingBlocksPositionsClosest;
-            case EXTRA:
-                return this.extraBlocksPositionsClosest;
-            case WRONG_BLOCK:
-                return this.mismatchedBlocksPositionsClosest;
-            case WRONG_STATE:
-                return this.mismatchedStatesPositionsClosest;
-            default:
-                return Collections.emptyList();
+                index.collectClosest(nearest, (posLong) -> pairKeys.contains(this.mismatchPairsByPosition.get(posLong)), type.ordinal());
+            }
         }
     }
 
@@ -1016,32 +1291,6 @@ public class SchematicVerifier extends TaskBase implements IInfoHudRenderer
         }
     }
 
-    private static class RenderPosComparator implements Comparator<MismatchRenderPos>
-    {
-        private final BlockPos posReference;
-        private final boolean closestFirst;
-
-        public RenderPosComparator(BlockPos posReference, boolean closestFirst)
-        {
-            this.posReference = posReference;
-            this.closestFirst = closestFirst;
-        }
-
-        @Override
-        public int compare(MismatchRenderPos pos1, MismatchRenderPos pos2)
-        {
-            double dist1 = pos1.pos.getSquaredDistance(this.posReference);
-            double dist2 = pos2.pos.getSquaredDistance(this.posReference);
-
-            if (dist1 == dist2)
-            {
-                return 0;
-            }
-
-            return dist1 < dist2 == this.closestFirst ? -1 : 1;
-        }
-    }
-
     public enum MismatchType
     {
         ALL             (0xFF0000, "litematica.gui.label.schematic_verifier_display_type.all", GuiBase.TXT_WHITE),
@@ -1,6 +1,7 @@
 package fi.dy.masa.litematica.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.entity.player.PlayerEntity;
@@ -34,6 +35,14 @@ public class InventoryUtils
         }
     }
 
+    /**
+     * Returns the pick-blockable hotbar slots, as 1-based slot numbers
+     */
+    public static List<Integer> getPickBlockableSlots()
+    {
+        return Collections.unmodifiableList(PICK_BLOCKABLE_SLOTS);
+    }
+
     public static void setPickedItemToHand(ItemStack stack, MinecraftClient mc)
     {
         PlayerEntity player = mc.player;
@@ -1,15 +1,20 @@
 package fi.dy.masa.litematica.util;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import javax.annotation.Nullable;
 
 import com.google.common.collect.ImmutableMap;
 
 import fi.dy.masa.litematica.config.Configs;
 import fi.dy.masa.litematica.data.DataManager;
 import fi.dy.masa.litematica.materials.MaterialCache;
+import fi.dy.masa.litematica.printer.PrinterFacingRules;
+import fi.dy.masa.litematica.printer.PrinterFacingRules.FacingData;
+import fi.dy.masa.litematica.printer.PrinterHotbarManager;
+import fi.dy.masa.litematica.printer.PrinterMaterialBatcher;
+import fi.dy.masa.litematica.printer.PrinterPlacementPlanner;
+import fi.dy.masa.litematica.printer.PrinterPositionCache;
+import fi.dy.masa.litematica.printer.PrinterThrottle;
 import fi.dy.masa.litematica.schematic.placement.SchematicPlacementManager.PlacementPart;
 import fi.dy.masa.litematica.schematic.placement.SubRegionPlacement.RequiredEnabled;
 import fi.dy.masa.litematica.selection.Box;
@@ -17,41 +22,26 @@ import fi.dy.masa.litematica.util.RayTraceUtils.RayTraceWrapper;
 import fi.dy.masa.litematica.world.SchematicWorldHandler;
 import fi.dy.masa.malilib.util.IntBoundingBox;
 import fi.dy.masa.malilib.util.SubChunkPos;
-import net.minecraft.block.AbstractButtonBlock;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
 import net.minecraft.block.BedBlock;
-import net.minecraft.block.BeehiveBlock;
-import net.minecraft.block.BellBlock;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
-import net.minecraft.block.CarvedPumpkinBlock;
-import net.minecraft.block.ChestBlock;
 import net.minecraft.block.ComparatorBlock;
-import net.minecraft.block.DispenserBlock;
 import net.minecraft.block.DoorBlock;
-import net.minecraft.block.DropperBlock;
-import net.minecraft.block.EndPortalFrameBlock;
 import net.minecraft.block.EndRodBlock;
-import net.minecraft.block.EnderChestBlock;
 import net.minecraft.block.FenceGateBlock;
-import net.minecraft.block.FurnaceBlock;
-import net.minecraft.block.GrindstoneBlock;
 import net.minecraft.block.HopperBlock;
 import net.minecraft.block.LadderBlock;
-import net.minecraft.block.LecternBlock;
 import net.minecraft.block.LeverBlock;
 import net.minecraft.block.LogBlock;
-import net.minecraft.block.LoomBlock;
 import net.minecraft.block.Material;
 import net.minecraft.block.NoteBlock;
-import net.minecraft.block.ObserverBlock;
 import net.minecraft.block.PillarBlock;
-import net.minecraft.block.PistonBlock;
-import net.minecraft.block.PumpkinBlock;
 import net.minecraft.block.RepeaterBlock;
 import net.minecraft.block.SignBlock;
 import net.minecraft.block.SlabBlock;
 import net.minecraft.block.StairsBlock;
-import net.minecraft.block.StonecutterBlock;
 import net.minecraft.block.TorchBlock;
 import net.minecraft.block.TrapdoorBlock;
 import net.minecraft.block.TripwireHookBlock;
@@ -80,84 +70,14 @@ import net.minecraft.world.World;
 
 public class Printer {
 
-    private static class FacingData {
-        public int type;
-        public boolean isReversed;
+    private static final PrinterPositionCache positionCache = new PrinterPositionCache();
+    private static final LongArrayList PRINTER_POSITIONS = new LongArrayList();
+    private static final PrinterPlacementPlanner PLANNER = new PrinterPlacementPlanner();
+    private static final PrinterMaterialBatcher BATCHER = new PrinterMaterialBatcher();
+    private static final PrinterHotbarManager HOTBAR = new PrinterHotbarManager(BATCHER);
 
-        FacingData(int type, boolean isrev) {
-            this.type = type;
-            this.isReversed = isrev;
-        }
-    }
-
-    private static final Map<Class<? extends Block>, FacingData> facingMap = new LinkedHashMap<Class<? extends Block>, FacingData>();
-
-    private static final List<PositionCache> positionCache = new ArrayList<>();
-    private static boolean setupFacing = false;
-
-    private static void addFD(final Class<? extends Block> c, FacingData data) {
-        facingMap.put(c, data);
-    }
-
-    private static void setUpFacingData() {
-        setupFacing = true;
-
-        /*
-         * 0 = Normal up/down/east/west/south/north directions 1 = Horizontal directions
-         * 2 = Wall Attactchable block
-         * 
-         * 
-         * TODO: THIS CODE MUST BE CLEANED UP.
-         */
-
-        // All directions, reverse of what player is facing
-        addFD(PistonBlock.class, new FacingData(0, true));
-        addFD(DispenserBlock.class, new FacingData(0, true));
-        addFD(DropperBlock.class, new FacingData(0, true));
-
-        // All directions, normal direction of player
-        addFD(ObserverBlock.class, new FacingData(0, false));
-
-        // Horizontal directions, normal direction
-        addFD(StairsBlock.class, new FacingData(1, false));
-        addFD(DoorBlock.class, new FacingData(1, false));
-        addFD(BedBlock.class, new FacingData(1, false));
-        addFD(FenceGateBlock.class, new FacingData(1, false));
-
-        // Horizontal directions, reverse of what player is facing
-        addFD(ChestBlock.class, new FacingData(1, true));
-        addFD(RepeaterBlock.class, new FacingData(1, true));
-        addFD(ComparatorBlock.class, new FacingData(1, true));
-        addFD(EnderChestBlock.class, new FacingData(1, true));
-        addFD(FurnaceBlock.class, new FacingData(1, true));
-        addFD(LecternBlock.class, new FacingData(1, true));
-        addFD(LoomBlock.class, new FacingData(1, true));
-        addFD(BeehiveBlock.class, new FacingData(1, true));
-        addFD(StonecutterBlock.class, new FacingData(1, true));
-        addFD(CarvedPumpkinBlock.class, new FacingData(1, true));
-        addFD(PumpkinBlock.class, new FacingData(1, true));
-        addFD(EndPortalFrameBlock.class, new FacingData(1, true));
-
-        // Top/bottom placable side mountable blocks
-        addFD(LeverBlock.class, new FacingData(2, false));
-        addFD(AbstractButtonBlock.class, new FacingData(2, false));
-     //addFD(BellBlock.class, new FacingData(2, false));
-        //addFD(GrindstoneBlock.class, new FacingData(2, false));
-
-    }
-
-    // TODO: This must be moved to another class and not be static.
     private static FacingData getFacingData(BlockState state) {
-        if (!setupFacing) {
-            setUpFacingData();
-        }
-        Block block = state.getBlock();
-        for (final Class<? extends Block> c : facingMap.keySet()) {
-            if (c.isInstance(block)) {
-                return facingMap.get(c);
-            }
-        }
-        return null;
+        return PrinterFacingRules.getInstance().getFacingData(state.getBlock());
     }
 
     /**
@@ -198,7 +118,11 @@ public class Printer {
                 boolean canPick = slot != -1;
 
                 if (shouldPick && canPick) {
-                    InventoryUtils.setPickedItemToHand(stack, mc);
+                    if (Configs.Generic.EASY_PLACE_HOTBAR_STAGING.getBooleanValue()) {
+                        HOTBAR.pickItem(mc, stack);
+                    } else {
+                        InventoryUtils.setPickedItemToHand(stack, mc);
+                    }
                 }
 
                 // return shouldPick == false || canPick;
@@ -279,29 +203,9 @@ public class Printer {
         int rangeX = Configs.Generic.EASY_PLACE_MODE_RANGE_X.getIntegerValue();
         int rangeY = Configs.Generic.EASY_PLACE_MODE_RANGE_Y.getIntegerValue();
         int rangeZ = Configs.Generic.EASY_PLACE_MODE_RANGE_Z.getIntegerValue();
-        boolean breakBlocks = Configs.Generic.EASY_PLACE_MODE_BREAK_BLOCKS.getBooleanValue();
-        Direction[] facingSides = Direction.getEntityFacingOrder(mc.player);
-        Direction primaryFacing = facingSides[0];
-        Direction horizontalFacing = primaryFacing; // For use in blocks with only horizontal rotation
-
-        int index = 0;
-        while (horizontalFacing.getAxis() == Direction.Axis.Y && index < facingSides.length) {
-            horizontalFacing = facingSides[index++];
-        }
 
         World world = SchematicWorldHandler.getSchematicWorld();
 
-        /*
-         * TODO: THIS IS REALLY BAD IN TERMS OF EFFICIENCY. I suggest using some form of
-         * search with a built in datastructure first Maybe quadtree? (I dont know how
-         * MC works)
-         */
-
-        int maxInteract = Configs.Generic.EASY_PLACE_MODE_MAX_BLOCKS.getIntegerValue();
-        int interact = 0;
-        boolean hasPicked = false;
-        Text pickedBlock = null;
-
         int fromX = Math.max(posX - rangeX, minX);
         int fromY = Math.max(posY - rangeY, minY);
         int fromZ = Math.max(posZ - rangeZ, minZ);
@@ -310,6 +214,34 @@ public class Printer {
         int toY = Math.min(posY + rangeY, maxY);
         int toZ = Math.min(posZ + rangeZ, maxZ);
 
+        LongList positions = getOrderedCandidates(mc, world, fromX, fromY, fromZ, toX, toY, toZ);
+
+        PrinterPass pass = new PrinterPass(mc, world, Configs.Generic.EASY_PLACE_MODE_MAX_BLOCKS.getIntegerValue());
+        pass.setBatchItem(selectBatchItem(mc, world, positions));
+
+        for (int posIndex = 0; posIndex < positions.size() && pass.isFinished() == false; ++posIndex) {
+            printPosition(mc, pass, positions.getLong(posIndex));
+        }
+
+        // Went through all the positions without placing anything with the batched item
+        if (pass.isFinished() == false && pass.batchItem != null && pass.placed == 0) {
+            onBatchItemStalled();
+        }
+
+        if (pass.pickFailed) {
+            return ActionResult.FAIL;
+        }
+
+        return (pass.interact > 0) ? ActionResult.SUCCESS : ActionResult.FAIL;
+    }
+
+    /**
+     * Returns the positions that still need work within the given range,
+     * limited to the player's reach, in the order they should be printed in.
+     * The returned list is reused on the next call.
+     */
+    public static LongList getOrderedCandidates(MinecraftClient mc, World world,
+            int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
         toY = Math.max(0, Math.min(toY, 255));
         fromY = Math.max(0, Math.min(fromY, 255));
 
@@ -320,321 +252,383 @@ public class Printer {
         toX = Math.min(toX,(int)mc.player.getX() + 8);
         toY = Math.min(toY,(int)mc.player.getY() + 8);
         toZ = Math.min(toZ,(int)mc.player.getZ() + 8);
-        
-        for (int x = fromX; x <= toX; x++) {
-            for (int y = fromY; y <= toY; y++) {
-                for (int z = fromZ; z <= toZ; z++) {
 
-                    double dx = mc.player.getX() - x - 0.5;
-                    double dy = mc.player.getY() - y - 0.5;
-                    double dz = mc.player.getZ() - z - 0.5;
+        /*
+         * Only the positions that still differ from the schematic are visited,
+         * those are tracked by the PrinterWorkIndex.
+         */
+        LongArrayList candidates = PRINTER_POSITIONS;
+        candidates.clear();
+        IntBoundingBox searchBox = new IntBoundingBox(fromX, fromY, fromZ, toX, toY, toZ);
+        DataManager.getSchematicPlacementManager().getPrinterWorkIndex().getPositionsWithinBox(searchBox, candidates);
+
+        // Supporting blocks first, then nearest first.
+        // The distance is measured from the feet, same as the reach check in printPosition().
+        return PLANNER.orderPositions(candidates, world, mc.world, mc.player.getX(), mc.player.getY(), mc.player.getZ(), 8.0);
+    }
 
-                    if (dx * dx + dy * dy + dz * dz > 64.0) // Check if within reach distance
-                        continue;
+    /**
+     * Selects the item that the printer should be placing from the given positions.
+     * The same item stays selected for as long as it still has positions left to place.
+     */
+    @Nullable
+    public static ItemStack selectBatchItem(MinecraftClient mc, World world, LongList positions) {
+        return BATCHER.selectItem(positions, world, mc.world, mc.player);
+    }
+
+    /**
+     * Called when a whole pass over the positions didn't place anything with the batched item,
+     * so that the next selection tries another item.
+     */
+    public static void onBatchItemStalled() {
+        BATCHER.onCurrentItemStalled();
+    }
+
+    /**
+     * Called on ticks where the printer didn't have anything to do,
+     * to move the upcoming materials into the hotbar in advance.
+     */
+    public static void onIdleTick(MinecraftClient mc) {
+        if (Configs.Generic.EASY_PLACE_HOTBAR_STAGING.getBooleanValue()) {
+            HOTBAR.onIdleTick(mc);
+        }
+    }
+
+    /**
+     * Tries to print the given position, ie. break, click or place the block there.
+     * The interaction count, picked item and the failure state are tracked in the pass.
+     */
+    public static void printPosition(MinecraftClient mc, PrinterPass pass, long packedPos) {
+        int x = BlockPos.unpackLongX(packedPos);
+        int y = BlockPos.unpackLongY(packedPos);
+        int z = BlockPos.unpackLongZ(packedPos);
+
+        double dx = mc.player.getX() - x - 0.5;
+        double dy = mc.player.getY() - y - 0.5;
+        double dz = mc.player.getZ() - z - 0.5;
+
+        if (dx * dx + dy * dy + dz * dz > 64.0) // Check if within reach distance
+            return;
 
-                    BlockPos pos = new BlockPos(x, y, z);
+        BlockPos pos = new BlockPos(x, y, z);
 
-                    BlockState stateSchematic = world.getBlockState(pos);
-                    BlockState stateClient = mc.world.getBlockState(pos);
+        BlockState stateSchematic = pass.world.getBlockState(pos);
+        BlockState stateClient = mc.world.getBlockState(pos);
 
-                    if (breakBlocks && stateSchematic != null && !stateClient.isAir()) {
-                        if (!stateClient.getBlock().getName().equals(stateSchematic.getBlock().getName()) && dx * dx + Math.pow(dy + 1.5,2) + dz * dz <= 36.0) {
-                            mc.interactionManager.attackBlock(pos, Direction.DOWN);
-                            interact++;
+        if (pass.breakBlocks && stateSchematic != null && !stateClient.isAir()) {
+            if (!stateClient.getBlock().getName().equals(stateSchematic.getBlock().getName()) && dx * dx + Math.pow(dy + 1.5,2) + dz * dz <= 36.0) {
+                if (!tryAcquireInteraction(pass)) {
+                    return;
+                }
+
+                mc.interactionManager.attackBlock(pos, Direction.DOWN);
+                pass.interact++;
 
-                            if (interact >= maxInteract) {
-                                return ActionResult.SUCCESS;
+                if (pass.interact >= pass.maxInteract) {
+                    return;
+                }
+            }
+        }
+        if (stateSchematic.isAir())
+            return;
+
+        // Abort if there is already a block in the target position
+        if (printerCheckCancel(stateSchematic, stateClient, mc.player)) {
+
+            /*
+             * Sometimes, blocks have other states like the delay on a repeater. So, this
+             * code clicks the block until the state is the same I don't know if Schematica
+             * does this too, I just did it because I work with a lot of redstone
+             */
+            if (!stateClient.isAir() && !mc.player.isSneaking() && !isPositionCached(pos, true)) {
+                Block cBlock = stateClient.getBlock();
+                Block sBlock = stateSchematic.getBlock();
+
+                if (cBlock.getName().equals(sBlock.getName())) {
+                    Direction facingSchematic = fi.dy.masa.malilib.util.BlockUtils
+                            .getFirstPropertyFacingValue(stateSchematic);
+                    Direction facingClient = fi.dy.masa.malilib.util.BlockUtils
+                            .getFirstPropertyFacingValue(stateClient);
+
+                    if (facingSchematic == facingClient) {
+                        int clickTimes = 0;
+                        Direction side = Direction.NORTH;
+                        if (sBlock instanceof RepeaterBlock) {
+                            int clientDelay = stateClient.get(RepeaterBlock.DELAY);
+                            int schematicDelay = stateSchematic.get(RepeaterBlock.DELAY);
+                            if (clientDelay != schematicDelay) {
+
+                                if (clientDelay < schematicDelay) {
+                                    clickTimes = schematicDelay - clientDelay;
+                                } else if (clientDelay > schematicDelay) {
+                                    clickTimes = schematicDelay + (4 - clientDelay);
+                                }
                             }
-                        }
-                    }
-                    if (stateSchematic.isAir())
-                        continue;
+                            side = Direction.UP;
+                        } else if (sBlock instanceof ComparatorBlock) {
+                            if (stateSchematic.get(ComparatorBlock.MODE) != stateClient
+                                    .get(ComparatorBlock.MODE))
+                                clickTimes = 1;
+                            side = Direction.UP;
+                        } else if (sBlock instanceof LeverBlock) {
+                            if (stateSchematic.get(LeverBlock.POWERED) != stateClient
+                                    .get(LeverBlock.POWERED))
+                                clickTimes = 1;
 
-                    // Abort if there is already a block in the target position
-                    if (printerCheckCancel(stateSchematic, stateClient, mc.player)) {
+                            /*
+                             * I dont know if this direction code is needed. I am just doing it anyway to
+                             * make it "make sense" to the server (I am emulating what the client does so
+                             * the server isn't confused)
+                             */
+                            if (stateClient.get(LeverBlock.FACE) == WallMountLocation.CEILING) {
+                                side = Direction.DOWN;
+                            } else if (stateClient.get(LeverBlock.FACE) == WallMountLocation.FLOOR) {
+                                side = Direction.UP;
+                            } else {
+                                side = stateClient.get(LeverBlock.FACING);
+                            }
 
-                        /*
-                         * Sometimes, blocks have other states like the delay on a repeater. So, this
-                         * code clicks the block until the state is the same I don't know if Schematica
-                         * does this too, I just did it because I work with a lot of redstone
-                         */
-                        if (!stateClient.isAir() && !mc.player.isSneaking() && !isPositionCached(pos, true)) {
-                            Block cBlock = stateClient.getBlock();
-                            Block sBlock = stateSchematic.getBlock();
-
-                            if (cBlock.getName().equals(sBlock.getName())) {
-                                Direction facingSchematic = fi.dy.masa.malilib.util.BlockUtils
-                                        .getFirstPropertyFacingValue(stateSchematic);
-                                Direction facingClient = fi.dy.masa.malilib.util.BlockUtils
-                                        .getFirstPropertyFacingValue(stateClient);
-
-                                if (facingSchematic == facingClient) {
-                                    int clickTimes = 0;
-                                    Direction side = Direction.NORTH;
-                                    if (sBlock instanceof RepeaterBlock) {
-                                        int clientDelay = stateClient.get(RepeaterBlock.DELAY);
-                                        int schematicDelay = stateSchematic.get(RepeaterBlock.DELAY);
-                                        if (clientDelay != schematicDelay) {
-
-                                            if (clientDelay < schematicDelay) {
-                                                clickTimes = schematicDelay - clientDelay;
-                                            } else if (clientDelay > schematicDelay) {
-                                                clickTimes = schematicDelay + (4 - clientDelay);
-                                            }
-                                        }
-                                        side = Direction.UP;
-                                    } else if (sBlock instanceof ComparatorBlock) {
-                                        if (stateSchematic.get(ComparatorBlock.MODE) != stateClient
-                                                .get(ComparatorBlock.MODE))
-                                            clickTimes = 1;
-                                        side = Direction.UP;
-                                    } else if (sBlock instanceof LeverBlock) {
-                                        if (stateSchematic.get(LeverBlock.POWERED) != stateClient
-                                                .get(LeverBlock.POWERED))
-                                            clickTimes = 1;
-
-                                        /*
-                                         * I dont know if this direction code is needed. I am just doing it anyway to
-                                         * make it "make sense" to the server (I am emulating what the client does so
-                                         * the server isn't confused)
-                                         */
-                                        if (stateClient.get(LeverBlock.FACE) == WallMountLocation.CEILING) {
-                                            side = Direction.DOWN;
-                                        } else if (stateClient.get(LeverBlock.FACE) == WallMountLocation.FLOOR) {
-                                            side = Direction.UP;
-                                        } else {
-                                            side = stateClient.get(LeverBlock.FACING);
-                                        }
-
-                                    } else if (sBlock instanceof TrapdoorBlock) {
-                                        if (stateSchematic.getMaterial() != Material.METAL && stateSchematic
-                                                .get(TrapdoorBlock.OPEN) != stateClient.get(TrapdoorBlock.OPEN))
-                                            clickTimes = 1;
-                                    } else if (sBlock instanceof FenceGateBlock) {
-                                        if (stateSchematic.get(FenceGateBlock.OPEN) != stateClient
-                                                .get(FenceGateBlock.OPEN))
-                                            clickTimes = 1;
-                                    } else if (sBlock instanceof DoorBlock) {
-                                        if (stateClient.getMaterial() != Material.METAL && stateSchematic
-                                                .get(DoorBlock.OPEN) != stateClient.get(DoorBlock.OPEN))
-                                            clickTimes = 1;
-                                    } else if (sBlock instanceof NoteBlock) {
-                                        int note = stateClient.get(NoteBlock.NOTE);
-                                        int targetNote = stateSchematic.get(NoteBlock.NOTE);
-                                        if (note != targetNote) {
-
-                                            if (note < targetNote) {
-                                                clickTimes = targetNote - note;
-                                            } else if (note > targetNote) {
-                                                clickTimes = targetNote + (25 - note);
-                                            }
-                                        }
-                                    }
-
-                                    for (int i = 0; i < clickTimes; i++) // Click on the block a few times
-                                    {
-                                        Hand hand = Hand.MAIN_HAND;
-
-                                        Vec3d hitPos = new Vec3d(pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
-
-                                        BlockHitResult hitResult = new BlockHitResult(hitPos, side, pos, false);
-
-                                        mc.interactionManager.interactBlock(mc.player, mc.world, hand, hitResult);
-                                        interact++;
-
-                                        if (interact >= maxInteract) {
-                                            return ActionResult.SUCCESS;
-                                        }
-                                    }
-
-                                    if (clickTimes > 0) {
-                                        cacheEasyPlacePosition(pos, true);
-                                    }
-                                  
+                        } else if (sBlock instanceof TrapdoorBlock) {
+                            if (stateSchematic.getMaterial() != Material.METAL && stateSchematic
+                                    .get(TrapdoorBlock.OPEN) != stateClient.get(TrapdoorBlock.OPEN))
+                                clickTimes = 1;
+                        } else if (sBlock instanceof FenceGateBlock) {
+                            if (stateSchematic.get(FenceGateBlock.OPEN) != stateClient
+                                    .get(FenceGateBlock.OPEN))
+                                clickTimes = 1;
+                        } else if (sBlock instanceof DoorBlock) {
+                            if (stateClient.getMaterial() != Material.METAL && stateSchematic
+                                    .get(DoorBlock.OPEN) != stateClient.get(DoorBlock.OPEN))
+                                clickTimes = 1;
+                        } else if (sBlock instanceof NoteBlock) {
+                            int note = stateClient.get(NoteBlock.NOTE);
+                            int targetNote = stateSchematic.get(NoteBlock.NOTE);
+                            if (note != targetNote) {
+
+                                if (note < targetNote) {
+                                    clickTimes = targetNote - note;
+                                } else if (note > targetNote) {
+                                    clickTimes = targetNote + (25 - note);
                                 }
                             }
                         }
-                        continue;
-                    }
-                    if (isPositionCached(pos, false)) {
-                        continue;
-                    }
 
-                    ItemStack stack = MaterialCache.getInstance().getItemForState(stateSchematic);
-                    if (stack.isEmpty() == false && (mc.player.abilities.creativeMode || mc.player.inventory.getSlotWithStack(stack) != -1)) {
+                        for (int i = 0; i < clickTimes; i++) // Click on the block a few times
+                        {
+                            Hand hand = Hand.MAIN_HAND;
 
-                        if (stateSchematic == stateClient) {
-                            continue;
-                        }
+                            Vec3d hitPos = new Vec3d(pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
 
-                        Direction facing = fi.dy.masa.malilib.util.BlockUtils
-                                .getFirstPropertyFacingValue(stateSchematic);
-                        if (facing != null) {
-                            FacingData facedata = getFacingData(stateSchematic);
-                            if (!canPlaceFace(facedata, stateSchematic, mc.player, primaryFacing, horizontalFacing))
-                                continue;
+                            BlockHitResult hitResult = new BlockHitResult(hitPos, side, pos, false);
 
-                            if ((stateSchematic.getBlock() instanceof DoorBlock
-                                    && stateSchematic.get(DoorBlock.HALF) == DoubleBlockHalf.UPPER)
-                                    || (stateSchematic.getBlock() instanceof BedBlock
-                                            && stateSchematic.get(BedBlock.PART) == BedPart.HEAD)
+                            if (!tryAcquireInteraction(pass)) {
+                                return;
+                            }
+
+                            mc.interactionManager.interactBlock(mc.player, mc.world, hand, hitResult);
+                            pass.interact++;
 
-                            ) {
-                                continue;
+                            if (pass.interact >= pass.maxInteract) {
+                                return;
                             }
                         }
 
-                        // Exception for signs (edge case)
-                        if (stateSchematic.getBlock() instanceof SignBlock
-                                && !(stateSchematic.getBlock() instanceof WallSignBlock)) {
-                            if ((MathHelper.floor((double) ((180.0F + mc.player.yaw) * 16.0F / 360.0F) + 0.5D)
-                                    & 15) != stateSchematic.get(SignBlock.ROTATION))
-                                continue;
-
+                        if (clickTimes > 0) {
+                            cacheEasyPlacePosition(pos, true);
                         }
-                        double offX = 0.5; // We dont really need this. But I did it anyway so that I could experiment
-                                           // easily.
-                        double offY = 0.5;
-                        double offZ = 0.5;
-
-                        Direction sideOrig = Direction.NORTH;
-                        BlockPos npos = pos;
-                        Direction side = applyPlacementFacing(stateSchematic, sideOrig, stateClient);
-                        Block blockSchematic = stateSchematic.getBlock();
-                        if (blockSchematic instanceof WallMountedBlock || blockSchematic instanceof TorchBlock
-                                || blockSchematic instanceof LadderBlock || blockSchematic instanceof TrapdoorBlock
-                                || blockSchematic instanceof TripwireHookBlock || blockSchematic instanceof SignBlock || blockSchematic instanceof EndRodBlock) {
+                      
+                    }
+                }
+            }
+            return;
+        }
+        if (isPositionCached(pos, false)) {
+            return;
+        }
 
-                            /*
-                             * Some blocks, especially wall mounted blocks must be placed on another for
-                             * directionality to work Basically, the block pos sent must be a "clicked"
-                             * block.
-                             */
-                            int px = pos.getX();
-                            int py = pos.getY();
-                            int pz = pos.getZ();
-
-                            if (side == Direction.DOWN) {
-                                py += 1;
-                            } else if (side == Direction.UP) {
-                                py += -1;
-                            } else if (side == Direction.NORTH) {
-                                pz += 1;
-                            } else if (side == Direction.SOUTH) {
-                                pz += -1;
-                            } else if (side == Direction.EAST) {
-                                px += -1;
-                            } else if (side == Direction.WEST) {
-                                px += 1;
-                            }
+        ItemStack stack = MaterialCache.getInstance().getItemForState(stateSchematic);
+        if (stack.isEmpty() == false && (mc.player.abilities.creativeMode || mc.player.inventory.getSlotWithStack(stack) != -1)) {
 
-                            npos = new BlockPos(px, py, pz);
+            if (stateSchematic == stateClient) {
+                return;
+            }
 
-                            BlockState clientStateItem = mc.world.getBlockState(npos);
+            Direction facing = fi.dy.masa.malilib.util.BlockUtils
+                    .getFirstPropertyFacingValue(stateSchematic);
+            if (facing != null) {
+                FacingData facedata = getFacingData(stateSchematic);
+                if (!canPlaceFace(facedata, stateSchematic, mc.player, pass.primaryFacing, pass.horizontalFacing))
+                    return;
 
-                            if (clientStateItem == null || clientStateItem.isAir()) {
-                                if (!(blockSchematic instanceof TrapdoorBlock)) {
-                                    continue;
-                                }
-                                BlockPos testPos;
-
-                                /*
-                                 * Trapdoors are special. They can also be placed on top, or below another block
-                                 */
-                                if (stateSchematic.get(TrapdoorBlock.HALF) == BlockHalf.TOP) {
-                                    testPos = new BlockPos(pos.getX(), pos.getY() + 1, pos.getZ());
-                                    side = Direction.DOWN;
-                                } else {
-                                    testPos = new BlockPos(pos.getX(), pos.getY() - 1, pos.getZ());
-                                    side = Direction.UP;
-                                }
-                                BlockState clientStateItemTest = mc.world.getBlockState(testPos);
-
-                                if (clientStateItemTest == null || clientStateItemTest.isAir()) {
-                                    BlockState schematicNItem = world.getBlockState(npos);
-
-                                    BlockState schematicTItem = world.getBlockState(testPos);
-
-                                    /*
-                                     * If possible, it is always best to attatch the trapdoor to an actual block
-                                     * that exists on the world But other times, it can't be helped
-                                     */
-                                    if ((schematicNItem != null && !schematicNItem.isAir())
-                                            || (schematicTItem != null && !schematicTItem.isAir()))
-                                        continue;
-                                    npos = pos;
-                                } else
-                                    npos = testPos;
-
-                                // If trapdoor is placed from top or bottom, directionality is decided by player
-                                // direction
-                                if (stateSchematic.get(TrapdoorBlock.FACING).getOpposite() != horizontalFacing) {
-                                    continue;
-                                }
+                if ((stateSchematic.getBlock() instanceof DoorBlock
+                        && stateSchematic.get(DoorBlock.HALF) == DoubleBlockHalf.UPPER)
+                        || (stateSchematic.getBlock() instanceof BedBlock
+                                && stateSchematic.get(BedBlock.PART) == BedPart.HEAD)
 
-                            }
+                ) {
+                    return;
+                }
+            }
 
-                        }
+            // Exception for signs (edge case)
+            if (stateSchematic.getBlock() instanceof SignBlock
+                    && !(stateSchematic.getBlock() instanceof WallSignBlock)) {
+                if ((MathHelper.floor((double) ((180.0F + mc.player.yaw) * 16.0F / 360.0F) + 0.5D)
+                        & 15) != stateSchematic.get(SignBlock.ROTATION))
+                    return;
 
-                        // Abort if the required item was not able to be pick-block'd
-                        if (!hasPicked) {
+            }
+            double offX = 0.5; // We dont really need this. But I did it anyway so that I could experiment
+                               // easily.
+            double offY = 0.5;
+            double offZ = 0.5;
+
+            Direction sideOrig = Direction.NORTH;
+            BlockPos npos = pos;
+            Direction side = applyPlacementFacing(stateSchematic, sideOrig, stateClient);
+            Block blockSchematic = stateSchematic.getBlock();
+            if (PrinterPlacementPlanner.requiresSupportingBlock(blockSchematic)) {
+
+                /*
+                 * Some blocks, especially wall mounted blocks must be placed on another for
+                 * directionality to work Basically, the block pos sent must be a "clicked"
+                 * block.
+                 */
+                int px = pos.getX();
+                int py = pos.getY();
+                int pz = pos.getZ();
+
+                if (side == Direction.DOWN) {
+                    py += 1;
+                } else if (side == Direction.UP) {
+                    py += -1;
+                } else if (side == Direction.NORTH) {
+                    pz += 1;
+                } else if (side == Direction.SOUTH) {
+                    pz += -1;
+                } else if (side == Direction.EAST) {
+                    px += -1;
+                } else if (side == Direction.WEST) {
+                    px += 1;
+                }
 
-                            if (doSchematicWorldPickBlock(true, mc, stateSchematic, pos) == false) {
-                                return ActionResult.FAIL;
-                            }
-                            hasPicked = true;
-                            pickedBlock = stateSchematic.getBlock().getName();
-                        } else if (pickedBlock != null && !pickedBlock.equals(stateSchematic.getBlock().getName())) {
-                            continue;
-                        }
+                npos = new BlockPos(px, py, pz);
 
-                        Hand hand = EntityUtils.getUsedHandForItem(mc.player, stack);
+                BlockState clientStateItem = mc.world.getBlockState(npos);
 
-                        // Abort if a wrong item is in the player's hand
-                        if (hand == null) {
-                            continue;
-                        }
+                if (clientStateItem == null || clientStateItem.isAir()) {
+                    if (!(blockSchematic instanceof TrapdoorBlock)) {
+                        return;
+                    }
+                    BlockPos testPos;
+
+                    /*
+                     * Trapdoors are special. They can also be placed on top, or below another block
+                     */
+                    if (stateSchematic.get(TrapdoorBlock.HALF) == BlockHalf.TOP) {
+                        testPos = new BlockPos(pos.getX(), pos.getY() + 1, pos.getZ());
+                        side = Direction.DOWN;
+                    } else {
+                        testPos = new BlockPos(pos.getX(), pos.getY() - 1, pos.getZ());
+                        side = Direction.UP;
+                    }
+                    BlockState clientStateItemTest = mc.world.getBlockState(testPos);
 
-                        Vec3d hitPos = new Vec3d(offX, offY, offZ);
-                        // Carpet Accurate Placement protocol support, plus BlockSlab support
-                        hitPos = applyHitVec(npos, stateSchematic, hitPos, side);
+                    if (clientStateItemTest == null || clientStateItemTest.isAir()) {
+                        BlockState schematicNItem = pass.world.getBlockState(npos);
 
-                        // Mark that this position has been handled (use the non-offset position that is
-                        // checked above)
-                        cacheEasyPlacePosition(pos, false);
+                        BlockState schematicTItem = pass.world.getBlockState(testPos);
 
-                        BlockHitResult hitResult = new BlockHitResult(hitPos, side, npos, false);
+                        /*
+                         * If possible, it is always best to attatch the trapdoor to an actual block
+                         * that exists on the world But other times, it can't be helped
+                         */
+                        if ((schematicNItem != null && !schematicNItem.isAir())
+                                || (schematicTItem != null && !schematicTItem.isAir()))
+                            return;
+                        npos = pos;
+                    } else
+                        npos = testPos;
+
+                    // If trapdoor is placed from top or bottom, directionality is decided by player
+                    // direction
+                    if (stateSchematic.get(TrapdoorBlock.FACING).getOpposite() != pass.horizontalFacing) {
+                        return;
+                    }
 
-                        // System.out.printf("pos: %s side: %s, hit: %s\n", pos, side, hitPos);
-                        // pos, side, hitPos
+                }
 
-                        mc.interactionManager.interactBlock(mc.player, mc.world, hand, hitResult);
-                        interact++;
-                        if (stateSchematic.getBlock() instanceof SlabBlock
-                                && stateSchematic.get(SlabBlock.TYPE) == SlabType.DOUBLE) {
-                            stateClient = mc.world.getBlockState(npos);
+            }
 
-                            if (stateClient.getBlock() instanceof SlabBlock
-                                    && stateClient.get(SlabBlock.TYPE) != SlabType.DOUBLE) {
-                                side = applyPlacementFacing(stateSchematic, sideOrig, stateClient);
-                                hitResult = new BlockHitResult(hitPos, side, npos, false);
-                                mc.interactionManager.interactBlock(mc.player, mc.world, hand, hitResult);
-                                interact++;
-                            }
-                        }
+            // Only place the currently batched item, so that the item in hand doesn't need to be swapped
+            if (pass.batchItem != null && !EntityUtils.areStacksEqualIgnoreDurability(stack, pass.batchItem)) {
+                return;
+            }
 
-                        if (interact >= maxInteract) {
-                            return ActionResult.SUCCESS;
-                        }
+            // Abort if the required item was not able to be pick-block'd
+            if (!pass.hasPicked) {
+
+                if (doSchematicWorldPickBlock(true, mc, stateSchematic, pos) == false) {
+                    pass.pickFailed = true;
+                    return;
+                }
+                pass.hasPicked = true;
+                pass.pickedBlock = stateSchematic.getBlock().getName();
+            } else if (pass.pickedBlock != null && !pass.pickedBlock.equals(stateSchematic.getBlock().getName())) {
+                return;
+            }
+
+            Hand hand = EntityUtils.getUsedHandForItem(mc.player, stack);
 
+            // Abort if a wrong item is in the player's hand
+            if (hand == null) {
+                return;
+            }
+
+            Vec3d hitPos = new Vec3d(offX, offY, offZ);
+            // Carpet Accurate Placement protocol support, plus BlockSlab support
+            hitPos = applyHitVec(npos, stateSchematic, hitPos, side);
+
+            if (!tryAcquireInteraction(pass)) {
+                return;
+            }
+
+            BlockHitResult hitResult = new BlockHitResult(hitPos, side, npos, false);
+
+            // System.out.printf("pos: %s side: %s, hit: %s\n", pos, side, hitPos);
+            // pos, side, hitPos
+
+            mc.interactionManager.interactBlock(mc.player, mc.world, hand, hitResult);
+            pass.interact++;
+            pass.placed++;
+
+            // Mark that this position has been handled (use the non-offset position that is
+            // checked above). This is done after the interaction, so that the throttle
+            // can see whether the client predicted the placement.
+            cacheEasyPlacePosition(pos, stateSchematic);
+            if (stateSchematic.getBlock() instanceof SlabBlock
+                    && stateSchematic.get(SlabBlock.TYPE) == SlabType.DOUBLE) {
+                stateClient = mc.world.getBlockState(npos);
+
+                if (stateClient.getBlock() instanceof SlabBlock
+                        && stateClient.get(SlabBlock.TYPE) != SlabType.DOUBLE) {
+                    side = applyPlacementFacing(stateSchematic, sideOrig, stateClient);
+                    hitResult = new BlockHitResult(hitPos, side, npos, false);
+
+                    if (!tryAcquireInteraction(pass)) {
+                        return;
                     }
 
+                    mc.interactionManager.interactBlock(mc.player, mc.world, hand, hitResult);
+                    pass.interact++;
                 }
             }
 
-        }
+            if (pass.interact >= pass.maxInteract) {
+                return;
+            }
 
-        return (interact > 0) ? ActionResult.SUCCESS : ActionResult.FAIL;
+        }
     }
 
     /*
@@ -647,20 +641,20 @@ public class Printer {
         if (facing != null && facedata != null) {
 
             switch (facedata.type) {
-            case 0: // All directions (ie, observers and pistons)
+            case ALL: // All directions (ie, observers and pistons)
                 if (facedata.isReversed) {
                     return facing.getOpposite() == primaryFacing;
                 } else {
                     return facing == primaryFacing;
                 }
 
-            case 1: // Only Horizontal directions (ie, repeaters and comparators)
+            case HORIZONTAL: // Only Horizontal directions (ie, repeaters and comparators)
                 if (facedata.isReversed) {
                     return facing.getOpposite() == horizontalFacing;
                 } else {
                     return facing == horizontalFacing;
                 }
-            case 2: // Wall mountable, such as a lever, only use player direction if not on wall.
+            case WALL_MOUNTABLE: // Wall mountable, such as a lever, only use player direction if not on wall.
                 return stateSchematic.get(WallMountedBlock.FACE) == WallMountLocation.WALL
                         || facing == horizontalFacing;
             default: // Ignore rest -> TODO: Other blocks like anvils, etc...
@@ -831,61 +825,89 @@ public class Printer {
     }
 
     public static boolean isPositionCached(BlockPos pos, boolean useClicked) {
-        long currentTime = System.nanoTime();
-        boolean cached = false;
-
-        for (int i = 0; i < positionCache.size(); ++i) {
-            PositionCache val = positionCache.get(i);
-            boolean expired = val.hasExpired(currentTime);
-
-            if (expired) {
-                positionCache.remove(i);
-                --i;
-            } else if (val.getPos().equals(pos)) {
-
-                // Item placement and "using"/"clicking" (changing delay for repeaters) are
-                // diffferent
-                if (!useClicked || val.hasClicked) {
-                    cached = true;
-                }
+        // Item placement and "using"/"clicking" (changing delay for repeaters) are
+        // tracked separately
+        return positionCache.isPositionCached(pos, useClicked, System.nanoTime());
+    }
 
-                // Keep checking and removing old entries if there are a fair amount
-                if (positionCache.size() < 16) {
-                    break;
-                }
-            }
-        }
+    private static void cacheEasyPlacePosition(BlockPos pos, boolean useClicked) {
+        positionCache.cachePosition(pos, useClicked, System.nanoTime());
+    }
 
-        return cached;
+    /**
+     * Caches a placed position, and lets the throttle check later whether the server accepted the placement
+     */
+    private static void cacheEasyPlacePosition(BlockPos pos, BlockState expectedState) {
+        long now = System.nanoTime();
+        positionCache.cachePosition(pos, false, now);
+        PrinterThrottle.getInstance().onPlacementSent(pos, expectedState, now);
     }
 
-    private static void cacheEasyPlacePosition(BlockPos pos, boolean useClicked) {
-        PositionCache item = new PositionCache(pos, System.nanoTime(), useClicked ? 1000000000 : 2000000000);
-        // TODO: Create a separate cache for clickable items, as this just makes
-        // duplicates
-        if (useClicked)
-            item.hasClicked = true;
-        positionCache.add(item);
+    /**
+     * Checks with the throttle whether another interaction can be sent to the server right now.
+     * If not, then the pass is marked as throttled, which ends it.
+     */
+    private static boolean tryAcquireInteraction(PrinterPass pass) {
+        if (PrinterThrottle.getInstance().tryAcquire(System.nanoTime())) {
+            return true;
+        }
+
+        pass.throttled = true;
+        return false;
     }
 
-    public static class PositionCache {
-        private final BlockPos pos;
-        private final long time;
-        private final long timeout;
-        public boolean hasClicked = false;
+    /**
+     * The state of one printer run, shared by all the positions handled during it.
+     */
+    public static class PrinterPass {
+        private final World world;
+        private final boolean breakBlocks;
+        private final int maxInteract;
+        private final Direction primaryFacing;
+        private final Direction horizontalFacing; // For use in blocks with only horizontal rotation
+        private int interact;
+        private int placed;
+        private boolean hasPicked;
+        private Text pickedBlock;
+        private boolean pickFailed;
+        private boolean throttled;
+        @Nullable private ItemStack batchItem;
+
+        public PrinterPass(MinecraftClient mc, World world, int maxInteract) {
+            this.world = world;
+            this.maxInteract = maxInteract;
+            this.breakBlocks = Configs.Generic.EASY_PLACE_MODE_BREAK_BLOCKS.getBooleanValue();
+
+            Direction[] facingSides = Direction.getEntityFacingOrder(mc.player);
+            Direction horizontalFacing = facingSides[0];
+            int index = 0;
+
+            while (horizontalFacing.getAxis() == Direction.Axis.Y && index < facingSides.length) {
+                horizontalFacing = facingSides[index++];
+            }
+
+            this.primaryFacing = facingSides[0];
+            this.horizontalFacing = horizontalFacing;
+        }
+
+        public void setBatchItem(@Nullable ItemStack batchItem) {
+            this.batchItem = batchItem;
+        }
+
+        public int getInteractionCount() {
+            return this.interact;
+        }
 
-        private PositionCache(BlockPos pos, long time, long timeout) {
-            this.pos = pos;
-            this.time = time;
-            this.timeout = timeout;
+        public int getPlacedCount() {
+            return this.placed;
         }
 
-        public BlockPos getPos() {
-            return this.pos;
+        public boolean hasFailed() {
+            return this.pickFailed;
         }
 
-        public boolean hasExpired(long currentTime) {
-            return currentTime - this.time > this.timeout;
+        public boolean isFinished() {
+            return this.pickFailed || this.throttled || this.interact >= this.maxInteract;
         }
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package fi.dy.masa.litematica.util;
 
+import fi.dy.masa.litematica.config.Configs;
+import fi.dy.masa.litematica.render.LitematicaRenderer;
 import fi.dy.masa.litematica.world.ChunkSchematic;
 import fi.dy.masa.litematica.world.SchematicWorldHandler;
 import fi.dy.masa.litematica.world.WorldSchematic;
@@ -131,7 +133,14 @@ public class SchematicWorldRefresher implements IRangeChangeListener
             if (world.getChunkProvider().isChunkLoaded(chunkX, chunkZ) &&
                 WorldUtils.isClientChunkLoaded(this.mc.world, chunkX, chunkZ))
             {
-                world.scheduleBlockRenders(chunkX, pos.getY() >> 4, chunkZ);
+                if (Configs.Visuals.RENDER_INCREMENTAL_UPDATES.getBooleanValue())
+                {
+                    LitematicaRenderer.getInstance().getWorldRenderer().scheduleBlockChange(pos);
+                }
+                else
+                {
+                    world.scheduleBlockRenders(chunkX, pos.getY() >> 4, chunkZ);
+                }
             }
         }
     }
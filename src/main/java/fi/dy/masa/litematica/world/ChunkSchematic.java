@@ -108,6 +108,26 @@ public class ChunkSchematic extends WorldChunk
         }
     }
 
+    /**
+     * Sets the block sections that were filled outside of the chunk, ie. on a worker thread.
+     * The null and empty sections are ignored.
+     */
+    public void setSections(ChunkSection[] sections)
+    {
+        ChunkSection[] arr = this.getSectionArray();
+
+        for (int i = 0; i < arr.length && i < sections.length; ++i)
+        {
+            if (ChunkSection.isEmpty(sections[i]) == false)
+            {
+                arr[i] = sections[i];
+                this.isEmpty = false;
+            }
+        }
+
+        this.markDirty();
+    }
+
     public long getTimeCreated()
     {
         return this.timeCreated;
@@ -0,0 +1,127 @@
+package fi.dy.masa.litematica.world;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import fi.dy.masa.litematica.schematic.LitematicaSchematic;
+import fi.dy.masa.litematica.schematic.placement.SchematicPlacement;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.util.BlockMirror;
+import net.minecraft.util.BlockRotation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+
+/**
+ * Collects the schematic blocks of one chunk into detached ChunkSections,
+ * so that the blocks can be transformed and placed on a worker thread.
+ * The finished sections are then swapped into the actual chunk on the client thread.
+ * The blocks with block entities (with or without any saved block entity data) are only
+ * collected here, and they get placed normally into the world when the sections are applied,
+ * so that the block entities get created.
+ */
+public class ChunkSchematicBuilder implements LitematicaSchematic.IBlockPlacer
+{
+    private final ChunkPos chunkPos;
+    private final ChunkSection[] sections = new ChunkSection[16];
+    private final Long2ObjectLinkedOpenHashMap<PendingBlockEntity> blockEntities = new Long2ObjectLinkedOpenHashMap<>();
+
+    public ChunkSchematicBuilder(ChunkPos chunkPos)
+    {
+        this.chunkPos = chunkPos;
+    }
+
+    public ChunkPos getChunkPos()
+    {
+        return this.chunkPos;
+    }
+
+    /**
+     * Places the blocks of all the given placements within this chunk.
+     * The later placements overwrite the earlier ones, same as when placing directly into the world.
+     */
+    public ChunkSchematicBuilder build(List<SchematicPlacement> placements)
+    {
+        for (SchematicPlacement placement : placements)
+        {
+            placement.getSchematic().placeBlocksWithinChunk(this, this.chunkPos, placement);
+        }
+
+        return this;
+    }
+
+    @Override
+    public void placeBlock(BlockPos pos, BlockState state, @Nullable CompoundTag teNBT,
+                           BlockMirror mirrorMain, BlockMirror mirrorSub, BlockRotation rotation)
+    {
+        final int y = pos.getY();
+
+        if (y < 0 || y >= 256 || (pos.getX() >> 4) != this.chunkPos.x || (pos.getZ() >> 4) != this.chunkPos.z)
+        {
+            return;
+        }
+
+        if (state.getBlock().hasBlockEntity())
+        {
+            // Clear any earlier block, so that the block entity gets created when the block is placed into the world
+            ChunkSection section = this.sections[y >> 4];
+
+            if (section != null)
+            {
+                section.setBlockState(pos.getX() & 0xF, y & 0xF, pos.getZ() & 0xF, Blocks.AIR.getDefaultState(), false);
+            }
+
+            this.blockEntities.put(pos.asLong(), new PendingBlockEntity(pos.toImmutable(), state, teNBT, mirrorMain, mirrorSub, rotation));
+            return;
+        }
+
+        ChunkSection section = this.sections[y >> 4];
+
+        if (section == null)
+        {
+            section = new ChunkSection(y & 0xF0);
+            this.sections[y >> 4] = section;
+        }
+
+        section.setBlockState(pos.getX() & 0xF, y & 0xF, pos.getZ() & 0xF, state, false);
+        this.blockEntities.remove(pos.asLong());
+    }
+
+    /**
+     * Swaps the built sections into the given (newly loaded) chunk,
+     * and then places the collected block entity blocks. Must be called on the client thread.
+     */
+    public void applyToChunk(World world, ChunkSchematic chunk)
+    {
+        chunk.setSections(this.sections);
+
+        for (PendingBlockEntity be : this.blockEntities.values())
+        {
+            LitematicaSchematic.placeBlockToWorld(world, be.pos, be.state, be.nbt, be.mirrorMain, be.mirrorSub, be.rotation);
+        }
+    }
+
+    private static class PendingBlockEntity
+    {
+        private final BlockPos pos;
+        private final BlockState state;
+        @Nullable private final CompoundTag nbt;
+        private final BlockMirror mirrorMain;
+        private final BlockMirror mirrorSub;
+        private final BlockRotation rotation;
+
+        private PendingBlockEntity(BlockPos pos, BlockState state, @Nullable CompoundTag nbt,
+                                   BlockMirror mirrorMain, BlockMirror mirrorSub, BlockRotation rotation)
+        {
+            this.pos = pos;
+            this.state = state;
+            this.nbt = nbt;
+            this.mirrorMain = mirrorMain;
+            this.mirrorSub = mirrorSub;
+            this.rotation = rotation;
+        }
+    }
+}